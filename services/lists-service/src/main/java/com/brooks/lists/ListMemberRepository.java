@@ -1,10 +1,19 @@
 package com.brooks.lists;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface ListMemberRepository extends JpaRepository<ListMemberEntity, UUID> {
   List<ListMemberEntity> findByListId(UUID listId);
   boolean existsByListIdAndMemberUserId(UUID listId, UUID memberUserId);
+
+  @Query("select m.listId from ListMemberEntity m where m.memberUserId = :memberUserId and m.listId in :listIds")
+  List<UUID> findListIdsContainingMember(
+      @Param("memberUserId") UUID memberUserId,
+      @Param("listIds") Collection<UUID> listIds
+  );
 }
@@ -1,8 +1,9 @@
 package com.brooks.lists;
 
 import com.brooks.security.SecurityContextUtil;
-import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
@@ -49,18 +50,23 @@ public class ListService {
     }
   }
 
+  /**
+   * Resolves which of the requested lists contain the user with a single
+   * list_id IN (...) query, however many list IDs are sent.
+   */
+  @Transactional(readOnly = true)
   public ListMembershipResponse membership(ListMembershipRequest request) {
     UUID userId = UUID.fromString(request.userId());
     if (request.listIds() == null || request.listIds().isEmpty()) {
       return new ListMembershipResponse(false, List.of());
     }
-    List<String> matched = new ArrayList<>();
+    Set<UUID> listUuids = new LinkedHashSet<>();
     for (String listId : request.listIds()) {
-      UUID listUuid = UUID.fromString(listId);
-      if (listMemberRepository.existsByListIdAndMemberUserId(listUuid, userId)) {
-        matched.add(listId);
-      }
+      listUuids.add(UUID.fromString(listId));
     }
+    List<String> matched = listMemberRepository.findListIdsContainingMember(userId, listUuids).stream()
+        .map(UUID::toString)
+        .toList();
     return new ListMembershipResponse(!matched.isEmpty(), matched);
   }
 
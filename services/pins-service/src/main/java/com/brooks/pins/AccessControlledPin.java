@@ -0,0 +1,24 @@
+package com.brooks.pins;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Pin fields read by batch access evaluation, implemented by both the PinEntity and the
+ * read-only PinSummary projection.
+ */
+public interface AccessControlledPin {
+  UUID getId();
+
+  UUID getOwnerId();
+
+  AudienceType getAudienceType();
+
+  Instant getAvailableFrom();
+
+  Instant getExpiresAt();
+
+  RevealType getRevealType();
+
+  boolean isFutureSelf();
+}
@@ -9,6 +9,8 @@ import org.locationtech.jts.geom.Polygon;
 
 public final class GeoUtil {
   private static final double EARTH_RADIUS_METERS = 6371000.0;
+  // Beyond this relative error bound the approximation is not worth it; use haversine only
+  private static final double MAX_APPROXIMATION_ERROR = 0.01;
 
   private GeoUtil() {
   }
@@ -44,10 +46,158 @@ public final class GeoUtil {
     return polygon != null && point != null && polygon.contains(point);
   }
 
+  /**
+   * Returns a bounding box [minLng, minLat, maxLng, maxLat] that contains every point
+   * within radiusMeters of the given location (not clipped at the antimeridian).
+   */
+  public static double[] boundingBox(double lat, double lng, double radiusMeters) {
+    double dLat = Math.toDegrees(radiusMeters / EARTH_RADIUS_METERS);
+    double cosLat = Math.cos(Math.toRadians(Math.min(90.0, Math.abs(lat) + dLat)));
+    double dLng = cosLat <= 0 ? 180.0 : Math.min(180.0, dLat / cosLat);
+    return new double[]{lng - dLng, lat - dLat, lng + dLng, lat + dLat};
+  }
+
   public static double distanceMeters(LocationRequest a, LocationRequest b) {
     return distanceMeters(a.lat(), a.lng(), b.lat(), b.lng());
   }
 
+  /**
+   * Batched radius test: sets within[i] when point i is at most radiusMeters from
+   * (lat, lng), with the same result as distanceMeters(...) <= radiusMeters.
+   *
+   * @return Number of points within the radius
+   * @see #withinRadii(double, double, double[], double[], double[], boolean[])
+   */
+  public static int withinRadius(
+      double lat,
+      double lng,
+      double radiusMeters,
+      double[] lats,
+      double[] lngs,
+      boolean[] within
+  ) {
+    return withinRadii(lat, lng, lats, lngs, null, radiusMeters, within);
+  }
+
+  /**
+   * Batched radius test with one radius per point: sets within[i] when point i is at
+   * most radiiMeters[i] from (lat, lng), with the same result as
+   * distanceMeters(...) <= radiiMeters[i].
+   *
+   * Most points are decided without trigonometry: a latitude/longitude box of the
+   * largest radius rejects far points, then an equirectangular distance using the
+   * viewer's precomputed cos(lat) accepts or rejects points clearly inside or outside
+   * the radius. Only points within the approximation's error bound of their radius
+   * fall back to exact haversine.
+   *
+   * @return Number of points within their radius
+   */
+  public static int withinRadii(
+      double lat,
+      double lng,
+      double[] lats,
+      double[] lngs,
+      double[] radiiMeters,
+      boolean[] within
+  ) {
+    double maxRadius = 0;
+    for (double radius : radiiMeters) {
+      maxRadius = Math.max(maxRadius, radius);
+    }
+    return withinRadii(lat, lng, lats, lngs, radiiMeters, maxRadius, within);
+  }
+
+  private static int withinRadii(
+      double lat,
+      double lng,
+      double[] lats,
+      double[] lngs,
+      double[] radiiMeters,
+      double maxRadius,
+      boolean[] within
+  ) {
+    double latRad = Math.toRadians(lat);
+    double cosLat = Math.cos(latRad);
+    double maxDLat = Math.toDegrees(maxRadius / EARTH_RADIUS_METERS);
+    double edgeCos = Math.cos(Math.toRadians(Math.min(90.0, Math.abs(lat) + maxDLat)));
+    double maxDLng = edgeCos <= 0 ? 180.0 : Math.min(180.0, maxDLat / edgeCos);
+    // Using the viewer's cos(lat) for the whole box misjudges east-west distances by up
+    // to about tan(lat) * dLat; second-order terms are covered by the squared term
+    double maxDLatRad = Math.toRadians(maxDLat);
+    double error = Math.abs(Math.tan(latRad)) * maxDLatRad + maxDLatRad * maxDLatRad + 1e-9;
+    boolean approximate = error < MAX_APPROXIMATION_ERROR;
+    double metersPerDegree = Math.toRadians(EARTH_RADIUS_METERS);
+
+    int count = 0;
+    for (int i = 0; i < lats.length; i++) {
+      double dLat = lats[i] - lat;
+      double dLng = lngs[i] - lng;
+      if (dLng > 180.0) {
+        dLng -= 360.0;
+      } else if (dLng < -180.0) {
+        dLng += 360.0;
+      }
+      if (Math.abs(dLat) > maxDLat || Math.abs(dLng) > maxDLng) {
+        within[i] = false;
+        continue;
+      }
+      double radius = radiiMeters == null ? maxRadius : radiiMeters[i];
+      boolean inside;
+      if (approximate) {
+        double x = dLng * cosLat;
+        double approxSquared = (x * x + dLat * dLat) * metersPerDegree * metersPerDegree;
+        double low = radius * (1 - error);
+        double high = radius * (1 + error);
+        if (approxSquared <= low * low) {
+          inside = true;
+        } else if (approxSquared > high * high) {
+          inside = false;
+        } else {
+          inside = distanceMeters(lat, lng, lats[i], lngs[i]) <= radius;
+        }
+      } else {
+        inside = distanceMeters(lat, lng, lats[i], lngs[i]) <= radius;
+      }
+      within[i] = inside;
+      if (inside) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Distance in meters from a point to the segment between (lat1, lng1) and (lat2, lng2).
+   * The closest point is found on an equirectangular projection centred on the point,
+   * which is accurate to well under 1% for segments of a few kilometres; when it is an
+   * end of the segment the haversine distance is returned, so a zero-length segment
+   * gives the same result as distanceMeters.
+   */
+  public static double segmentDistanceMeters(
+      double lat,
+      double lng,
+      double lat1,
+      double lng1,
+      double lat2,
+      double lng2
+  ) {
+    double metersPerDegree = EARTH_RADIUS_METERS * Math.PI / 180.0;
+    double cosLat = Math.cos(Math.toRadians(lat));
+    double x1 = (lng1 - lng) * cosLat * metersPerDegree;
+    double y1 = (lat1 - lat) * metersPerDegree;
+    double dx = (lng2 - lng1) * cosLat * metersPerDegree;
+    double dy = (lat2 - lat1) * metersPerDegree;
+    double lengthSquared = dx * dx + dy * dy;
+    double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, -(x1 * dx + y1 * dy) / lengthSquared));
+    if (t == 0) {
+      return distanceMeters(lat, lng, lat1, lng1);
+    }
+    if (t == 1) {
+      return distanceMeters(lat, lng, lat2, lng2);
+    }
+    return Math.hypot(x1 + t * dx, y1 + t * dy);
+  }
+
   public static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
     double dLat = Math.toRadians(lat2 - lat1);
     double dLng = Math.toRadians(lng2 - lng1);
@@ -0,0 +1,142 @@
+package com.brooks.pins;
+
+import java.time.Instant;
+import java.util.UUID;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+
+/**
+ * Compact, immutable copy of the pin fields that map, candidate and reveal-zone lookups
+ * read. Held by the in-memory indexes (ActivePinIndex, GeofenceIndex) instead of
+ * entities, so they keep neither the full text nor a JTS point per pin, and built from
+ * entities on the SQL path. Pin content is not included: reveals reload the pin.
+ */
+public final class IndexedPin implements AccessControlledPin {
+  private final UUID id;
+  private final UUID ownerId;
+  private final double lng;
+  private final double lat;
+  private final Double altitudeM;
+  private final long cellId;
+  private final AudienceType audienceType;
+  private final RevealType revealType;
+  private final MapPrecision mapPrecision;
+  private final Instant availableFrom;
+  private final Instant expiresAt;
+  private final boolean futureSelf;
+  private final Instant createdAt;
+  private final Integer revealRadiusM;
+  private final Integer notifyRadiusM;
+  private final PreparedGeometry mysteryZone;
+  private final String textPreview;
+
+  private IndexedPin(PinEntity pin) {
+    this.id = pin.getId();
+    this.ownerId = pin.getOwnerId();
+    this.lng = pin.getGeom().getX();
+    this.lat = pin.getGeom().getY();
+    this.altitudeM = pin.getAltitudeM();
+    this.cellId = pin.getCellId();
+    this.audienceType = pin.getAudienceType();
+    this.revealType = pin.getRevealType();
+    this.mapPrecision = pin.getMapPrecision();
+    this.availableFrom = pin.getAvailableFrom();
+    this.expiresAt = pin.getExpiresAt();
+    this.futureSelf = pin.isFutureSelf();
+    this.createdAt = pin.getCreatedAt();
+    this.revealRadiusM = pin.getRevealRadiusM();
+    this.notifyRadiusM = pin.getNotifyRadiusM();
+    this.mysteryZone = pin.getMysteryGeom() == null ? null : PreparedGeometryFactory.prepare(pin.getMysteryGeom());
+    this.textPreview = pin.getTextPreview();
+  }
+
+  public static IndexedPin of(PinEntity pin) {
+    return new IndexedPin(pin);
+  }
+
+  @Override
+  public UUID getId() {
+    return id;
+  }
+
+  @Override
+  public UUID getOwnerId() {
+    return ownerId;
+  }
+
+  public double getLng() {
+    return lng;
+  }
+
+  public double getLat() {
+    return lat;
+  }
+
+  public Double getAltitudeM() {
+    return altitudeM;
+  }
+
+  public long getCellId() {
+    return cellId;
+  }
+
+  @Override
+  public AudienceType getAudienceType() {
+    return audienceType;
+  }
+
+  @Override
+  public RevealType getRevealType() {
+    return revealType;
+  }
+
+  public MapPrecision getMapPrecision() {
+    return mapPrecision;
+  }
+
+  @Override
+  public Instant getAvailableFrom() {
+    return availableFrom;
+  }
+
+  @Override
+  public Instant getExpiresAt() {
+    return expiresAt;
+  }
+
+  @Override
+  public boolean isFutureSelf() {
+    return futureSelf;
+  }
+
+  public Instant getCreatedAt() {
+    return createdAt;
+  }
+
+  public Integer getRevealRadiusM() {
+    return revealRadiusM;
+  }
+
+  public Integer getNotifyRadiusM() {
+    return notifyRadiusM;
+  }
+
+  /**
+   * Mystery polygon prepared for repeated point-in-polygon tests, or null.
+   */
+  public PreparedGeometry getMysteryZone() {
+    return mysteryZone;
+  }
+
+  public Polygon getMysteryGeom() {
+    return mysteryZone == null ? null : (Polygon) mysteryZone.getGeometry();
+  }
+
+  /**
+   * Stored text preview (see PinEntity.getTextPreview), null for blank text.
+   */
+  public String getTextPreview() {
+    return textPreview;
+  }
+}
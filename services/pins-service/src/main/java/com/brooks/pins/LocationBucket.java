@@ -1,12 +1,23 @@
 package com.brooks.pins;
 
+import com.brooks.pins.domain.CellId;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
 public class LocationBucket {
+  /**
+   * Quadtree levels between bucket cells and the leaf cells stored per pin. Baked into
+   * pins.cell_id by V4__hierarchical_pin_cells.sql, so it is not configurable: changing it
+   * takes a migration that re-encodes that column.
+   */
+  public static final int LEAF_LEVELS = 3;
+
   private final double sizeDeg;
 
+  /**
+   * @param sizeDeg Bucket (client-facing cell) size in degrees
+   */
   public LocationBucket(double sizeDeg) {
     this.sizeDeg = sizeDeg;
   }
@@ -17,6 +28,46 @@ public class LocationBucket {
     return format(latBucket, lngBucket);
   }
 
+  /**
+   * Returns the 64-bit cell ID of the bucket containing a location.
+   */
+  public long cellId(double lat, double lng) {
+    return CellId.of(lat, lng, sizeDeg);
+  }
+
+  /**
+   * Returns the 64-bit ID of the leaf cell containing a location, the finest level of
+   * the cell hierarchy. Bucket cells are its ancestors LEAF_LEVELS levels up.
+   */
+  public long leafCellId(double lat, double lng) {
+    return CellId.of(lat, lng, sizeDeg / (1L << LEAF_LEVELS));
+  }
+
+  /**
+   * Converts a bucket cell ID (cellId(), parseCellId()) to its ancestor form in the
+   * leaf cell hierarchy, LEAF_LEVELS levels above the leaf cells.
+   */
+  public long bucketAncestor(long bucketCellId) {
+    return CellId.fromGrid(bucketCellId, LEAF_LEVELS);
+  }
+
+  /**
+   * Parses a client-supplied bucket, either a decimal cell ID or the legacy
+   * "lat:lng" string produced by bucket().
+   *
+   * @throws IllegalArgumentException if the bucket is in neither format
+   */
+  public long parseCellId(String bucket) {
+    int separator = bucket.indexOf(':');
+    if (separator < 0) {
+      return Long.parseLong(bucket.trim());
+    }
+    double lat = Double.parseDouble(bucket.substring(0, separator));
+    double lng = Double.parseDouble(bucket.substring(separator + 1));
+    // Legacy strings hold the cell's south-west corner rounded to 5 decimals
+    return CellId.encode(Math.round(lng / sizeDeg), Math.round(lat / sizeDeg));
+  }
+
   public List<String> neighbors(String bucket) {
     String[] parts = bucket.split(":");
     if (parts.length != 2) {
@@ -0,0 +1,42 @@
+package com.brooks.pins;
+
+import com.brooks.pins.service.LocationSessionService;
+import jakarta.validation.Valid;
+import java.util.UUID;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Streaming alternative to polling /pins/proximity-check: the client keeps one event
+ * stream open and posts location updates to it; reached pins arrive as "reveal" events.
+ */
+@RestController
+@RequestMapping("/pins/location-sessions")
+public class LocationSessionController {
+  private final LocationSessionService locationSessionService;
+
+  public LocationSessionController(LocationSessionService locationSessionService) {
+    this.locationSessionService = locationSessionService;
+  }
+
+  @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter open() {
+    return locationSessionService.open();
+  }
+
+  @PostMapping("/{sessionId}/locations")
+  public ResponseEntity<Void> update(
+      @PathVariable UUID sessionId,
+      @Valid @RequestBody ProximityCheckRequest request
+  ) {
+    locationSessionService.update(sessionId, request.location());
+    return ResponseEntity.accepted().build();
+  }
+}
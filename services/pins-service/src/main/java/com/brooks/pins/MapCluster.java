@@ -0,0 +1,10 @@
+package com.brooks.pins;
+
+/**
+ * Aggregate of visible pins sharing one map grid cell, placed at their centroid.
+ */
+public record MapCluster(
+    String cellId,
+    LocationRequest location,
+    int count
+) {}
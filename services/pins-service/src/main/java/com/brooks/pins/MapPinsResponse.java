@@ -2,6 +2,21 @@ package com.brooks.pins;
 
 import java.util.List;
 
+/**
+ * Map query result. When truncated is set, more candidate pins exist in the bounding box
+ * and the next page is requested with after=nextCursor.
+ */
 public record MapPinsResponse(
-    List<MapPin> pins
-) {}
+    List<MapPin> pins,
+    List<MapCluster> clusters,
+    boolean truncated,
+    String nextCursor
+) {
+  public MapPinsResponse(List<MapPin> pins) {
+    this(pins, List.of(), false, null);
+  }
+
+  public MapPinsResponse(List<MapPin> pins, List<MapCluster> clusters) {
+    this(pins, clusters, false, null);
+  }
+}
@@ -1,6 +1,25 @@
 package com.brooks.pins;
 
 public class PinAccessPolicy {
+  /*
+   * Policy factors packed into an int for the compiled evaluation path.
+   * Every combination is decided once, up front, by the rule chain in evaluate(PolicyInput).
+   */
+  public static final int TIME_ELIGIBLE = 1;
+  public static final int BLOCKED = 1 << 1;
+  public static final int ALLOWED_BY_AUDIENCE = 1 << 2;
+  public static final int HAS_ACL = 1 << 3;
+  public static final int ACL_ALLOWED = 1 << 4;
+  public static final int CAN_SEE_PINS = 1 << 5;
+  public static final int FOR_NOTIFICATION = 1 << 6;
+  public static final int CAN_RECEIVE_NOTIFICATIONS = 1 << 7;
+  public static final int REACH_TO_REVEAL = 1 << 8;
+  public static final int IN_REVEAL_RADIUS = 1 << 9;
+  public static final int FUTURE_SELF_MODE = 1 << 10;
+  private static final int FACTOR_COUNT = 11;
+
+  private static final PolicyDecision[] DECISIONS = compile();
+
   public PolicyDecision evaluate(PolicyInput input) {
     if (!input.timeEligible()) {
       return PolicyDecision.deny("TIME_WINDOW");
@@ -29,6 +48,56 @@ public class PinAccessPolicy {
     return PolicyDecision.allow();
   }
 
+  /**
+   * Compiled equivalent of evaluate(PolicyInput): a single table lookup with no allocation.
+   *
+   * @param factors Bitwise OR of the factor constants that hold for the pin
+   * @return Shared decision instance
+   */
+  public PolicyDecision evaluate(int factors) {
+    return DECISIONS[factors & (DECISIONS.length - 1)];
+  }
+
+  /**
+   * Packs a PolicyInput into factor bits.
+   */
+  public static int factors(PolicyInput input) {
+    int factors = 0;
+    if (input.timeEligible()) factors |= TIME_ELIGIBLE;
+    if (input.blocked()) factors |= BLOCKED;
+    if (input.allowedByAudience()) factors |= ALLOWED_BY_AUDIENCE;
+    if (input.hasAcl()) factors |= HAS_ACL;
+    if (input.aclAllowed()) factors |= ACL_ALLOWED;
+    if (input.canSeePins()) factors |= CAN_SEE_PINS;
+    if (input.forNotification()) factors |= FOR_NOTIFICATION;
+    if (input.canReceiveNotifications()) factors |= CAN_RECEIVE_NOTIFICATIONS;
+    if (input.revealType() == RevealType.REACH_TO_REVEAL) factors |= REACH_TO_REVEAL;
+    if (input.inRevealRadius()) factors |= IN_REVEAL_RADIUS;
+    if (input.futureSelfMode()) factors |= FUTURE_SELF_MODE;
+    return factors;
+  }
+
+  private static PolicyDecision[] compile() {
+    PinAccessPolicy rules = new PinAccessPolicy();
+    PolicyDecision[] decisions = new PolicyDecision[1 << FACTOR_COUNT];
+    for (int factors = 0; factors < decisions.length; factors++) {
+      decisions[factors] = rules.evaluate(new PolicyInput(
+          (factors & TIME_ELIGIBLE) != 0,
+          (factors & BLOCKED) != 0,
+          (factors & ALLOWED_BY_AUDIENCE) != 0,
+          (factors & HAS_ACL) != 0,
+          (factors & ACL_ALLOWED) != 0,
+          (factors & CAN_SEE_PINS) != 0,
+          (factors & FOR_NOTIFICATION) != 0,
+          (factors & CAN_RECEIVE_NOTIFICATIONS) != 0,
+          (factors & REACH_TO_REVEAL) != 0 ? RevealType.REACH_TO_REVEAL : RevealType.VISIBLE_ALWAYS,
+          (factors & IN_REVEAL_RADIUS) != 0,
+          (factors & FUTURE_SELF_MODE) != 0
+      ));
+    }
+    return decisions;
+  }
+
   public record PolicyInput(
       boolean timeEligible,
       boolean blocked,
@@ -44,11 +113,28 @@ public class PinAccessPolicy {
   ) {}
 
   public record PolicyDecision(boolean allowed, String reason) {
+    private static final PolicyDecision ALLOWED = new PolicyDecision(true, "OK");
+    private static final PolicyDecision[] DENIALS = {
+        new PolicyDecision(false, "TIME_WINDOW"),
+        new PolicyDecision(false, "BLOCKED"),
+        new PolicyDecision(false, "AUDIENCE"),
+        new PolicyDecision(false, "ACL"),
+        new PolicyDecision(false, "REL_PREF"),
+        new PolicyDecision(false, "NOTIFY_PREF"),
+        new PolicyDecision(false, "DISTANCE"),
+        new PolicyDecision(false, "FUTURE_SELF")
+    };
+
     public static PolicyDecision allow() {
-      return new PolicyDecision(true, "OK");
+      return ALLOWED;
     }
 
     public static PolicyDecision deny(String reason) {
+      for (PolicyDecision denial : DENIALS) {
+        if (denial.reason().equals(reason)) {
+          return denial;
+        }
+      }
       return new PolicyDecision(false, reason);
     }
   }
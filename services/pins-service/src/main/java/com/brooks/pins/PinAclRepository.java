@@ -1,9 +1,12 @@
 package com.brooks.pins;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface PinAclRepository extends JpaRepository<PinAclEntity, UUID> {
   List<PinAclEntity> findByPinId(UUID pinId);
+
+  List<PinAclEntity> findByPinIdIn(Collection<UUID> pinIds);
 }
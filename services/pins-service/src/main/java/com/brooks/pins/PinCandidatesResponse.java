@@ -2,6 +2,28 @@ package com.brooks.pins;
 
 import java.util.List;
 
+/**
+ * Geofence candidates for a bucket. A full response lists every candidate; a delta
+ * (delta set) lists only candidates added and IDs removed since the client's syncToken.
+ * Clients send the returned syncToken as since= on the next refresh; it is null when
+ * delta sync is unavailable.
+ *
+ * truncated is set when the bucket's neighbourhood holds more active pins than
+ * brooks.proximity.cells.max-candidates, so only the newest were evaluated. Responses for
+ * a still-current sync token do not re-read the pins, and the previous value applies.
+ */
 public record PinCandidatesResponse(
-    List<PinCandidate> candidates
-) {}
+    List<PinCandidate> candidates,
+    List<String> removed,
+    boolean delta,
+    String syncToken,
+    boolean truncated
+) {
+  public PinCandidatesResponse(List<PinCandidate> candidates) {
+    this(candidates, false);
+  }
+
+  public PinCandidatesResponse(List<PinCandidate> candidates, boolean truncated) {
+    this(candidates, List.of(), false, null, truncated);
+  }
+}
@@ -0,0 +1,10 @@
+package com.brooks.pins;
+
+import java.util.UUID;
+
+/**
+ * Published when a pin is created or deleted, so that in-memory pin indexes can
+ * reload it and caches holding its map tile can drop it once the transaction commits.
+ * The location is the pin's exact position.
+ */
+public record PinChangedEvent(UUID pinId, LocationRequest location) {}
@@ -1,15 +1,22 @@
 package com.brooks.pins;
 
+import com.brooks.pins.service.VectorTileEncoder;
 import jakarta.validation.Valid;
+import java.time.Duration;
 import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -19,9 +26,14 @@ import org.springframework.web.bind.annotation.RestController;
 public class PinController {
   private static final Logger log = LoggerFactory.getLogger(PinController.class);
   private final PinServiceRefactored pinService;
+  private final long tileMaxAgeSeconds;
 
-  public PinController(PinServiceRefactored pinService) {
+  public PinController(
+      PinServiceRefactored pinService,
+      @Value("${brooks.pins.map.tiles.max-age-seconds}") long tileMaxAgeSeconds
+  ) {
     this.pinService = pinService;
+    this.tileMaxAgeSeconds = tileMaxAgeSeconds;
   }
 
   @PostMapping
@@ -41,17 +53,60 @@ public class PinController {
   @GetMapping("/map")
   public ResponseEntity<MapPinsResponse> mapPins(
       @RequestParam String bbox,
+      @RequestParam(required = false) String scope,
+      @RequestParam(required = false) Integer zoom,
+      @RequestParam(defaultValue = "false") boolean cluster,
+      @RequestParam(required = false) String after,
+      @RequestParam(required = false) Integer limit,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+  ) {
+    PinMapScope pinMapScope = PinMapScope.fromRequest(scope);
+    log.info("map pins request: bbox={}, scope={}, zoom={}, cluster={}, after={}, limit={}",
+        bbox, pinMapScope, zoom, cluster, after, limit);
+    String etag = pinService.mapEtag(bbox, pinMapScope, zoom, cluster, after, limit);
+    if (etag == null) {
+      return ResponseEntity.ok(pinService.mapPins(bbox, pinMapScope, zoom, cluster, after, limit));
+    }
+    if (matches(ifNoneMatch, etag)) {
+      return notModified(etag);
+    }
+    return revalidated(etag).body(pinService.mapPins(bbox, pinMapScope, zoom, cluster, after, limit));
+  }
+
+  @GetMapping(value = "/tiles/{z}/{x}/{y}", produces = VectorTileEncoder.MEDIA_TYPE)
+  public ResponseEntity<byte[]> mapTile(
+      @PathVariable int z,
+      @PathVariable int x,
+      @PathVariable int y,
       @RequestParam(required = false) String scope
   ) {
     PinMapScope pinMapScope = PinMapScope.fromRequest(scope);
-    log.info("map pins request: bbox={}, scope={}", bbox, pinMapScope);
-    return ResponseEntity.ok(pinService.mapPins(bbox, pinMapScope));
+    log.info("map tile request: z={}, x={}, y={}, scope={}", z, x, y, pinMapScope);
+    // Tiles are per viewer, so only the client may cache them
+    return ResponseEntity.ok()
+        .cacheControl(CacheControl.maxAge(Duration.ofSeconds(tileMaxAgeSeconds)).cachePrivate())
+        .body(pinService.mapTile(z, x, y, pinMapScope));
   }
 
   @GetMapping("/candidates")
-  public ResponseEntity<PinCandidatesResponse> candidates(@RequestParam String bucket) {
-    log.info("pin candidates request: bucket={}", bucket);
-    return ResponseEntity.ok(pinService.candidates(bucket));
+  public ResponseEntity<PinCandidatesResponse> candidates(
+      @RequestParam String bucket,
+      @RequestParam(required = false) String since,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+  ) {
+    log.info("pin candidates request: bucket={}, delta={}", bucket, since != null);
+    if (since != null) {
+      // Deltas depend on the client's token, so they are not cached or revalidated
+      return ResponseEntity.ok(pinService.candidates(bucket, since));
+    }
+    String etag = pinService.candidatesEtag(bucket);
+    if (etag == null) {
+      return ResponseEntity.ok(pinService.candidates(bucket, null));
+    }
+    if (matches(ifNoneMatch, etag)) {
+      return notModified(etag);
+    }
+    return revalidated(etag).body(pinService.candidates(bucket, null));
   }
 
   @PostMapping("/{id}/check-reveal")
@@ -76,10 +131,44 @@ public class PinController {
     return ResponseEntity.ok(pinService.proximityCheck(request));
   }
 
+  @PostMapping("/proximity-check/trajectory")
+  public ResponseEntity<ProximityCheckResponse> trajectoryCheck(
+      @Valid @RequestBody TrajectoryCheckRequest request
+  ) {
+    log.info("trajectory check request: samples={}", request.samples().size());
+    return ResponseEntity.ok(pinService.trajectoryCheck(request));
+  }
+
   @DeleteMapping("/{id}")
   public ResponseEntity<Void> delete(@PathVariable UUID id) {
     log.info("delete pin request: pinId={}", id);
     pinService.delete(id);
     return ResponseEntity.noContent().build();
   }
+
+  /**
+   * Weak If-None-Match comparison against the current ETag.
+   */
+  static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+      if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(opaque)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static <T> ResponseEntity<T> notModified(String etag) {
+    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+  }
+
+  // Responses are per viewer; clients keep them but revalidate with the ETag before reuse
+  private static ResponseEntity.BodyBuilder revalidated(String etag) {
+    return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache().cachePrivate());
+  }
 }
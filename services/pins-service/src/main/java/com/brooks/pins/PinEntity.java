@@ -8,12 +8,14 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.Table;
 import java.time.Instant;
 import java.util.UUID;
+import org.hibernate.annotations.Generated;
+import org.hibernate.generator.EventType;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
 
 @Entity
 @Table(name = "pins")
-public class PinEntity extends BaseEntity {
+public class PinEntity extends BaseEntity implements AccessControlledPin {
   @Column(nullable = false)
   private UUID ownerId;
 
@@ -61,12 +63,20 @@ public class PinEntity extends BaseEntity {
   @Column(nullable = false)
   private String bucket;
 
+  @Column(name = "cell_id", nullable = false)
+  private long cellId;
+
   @Column(nullable = false, columnDefinition = "geometry(Point,4326)")
   private Point geom;
 
   @Column(columnDefinition = "geometry(Polygon,4326)")
   private Polygon mysteryGeom;
 
+  // Generated by the database from text, see V5__pin_text_preview.sql; re-read after every write
+  @Generated(event = {EventType.INSERT, EventType.UPDATE})
+  @Column(name = "text_preview")
+  private String textPreview;
+
   public UUID getOwnerId() {
     return ownerId;
   }
@@ -83,6 +93,10 @@ public class PinEntity extends BaseEntity {
     this.text = text;
   }
 
+  public String getTextPreview() {
+    return textPreview;
+  }
+
   public String getLinkUrl() {
     return linkUrl;
   }
@@ -187,6 +201,14 @@ public class PinEntity extends BaseEntity {
     this.bucket = bucket;
   }
 
+  public long getCellId() {
+    return cellId;
+  }
+
+  public void setCellId(long cellId) {
+    this.cellId = cellId;
+  }
+
   public Point getGeom() {
     return geom;
   }
@@ -3,44 +3,237 @@ package com.brooks.pins;
 import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 public interface PinRepository extends JpaRepository<PinEntity, UUID> {
+  /**
+   * Select clause of the PinSummary projection queries below.
+   */
+  String SUMMARY = "select new com.brooks.pins.PinSummary(p.id, p.ownerId, "
+      + "cast(function('ST_Y', p.geom) as Double), cast(function('ST_X', p.geom) as Double), p.altitudeM, "
+      + "p.textPreview, p.audienceType, p.revealType, p.mapPrecision, p.availableFrom, p.expiresAt, "
+      + "p.futureSelf, p.createdAt) ";
+
+  /**
+   * Active pins in a bounding box, as a keyset page: pins with an ID after afterId in
+   * ID order, at most pageable.getPageSize() of them.
+   */
   @Query("select p from PinEntity p where p.expiresAt > :now and p.availableFrom <= :now and "
-      + "function('ST_Intersects', p.geom, function('ST_MakeEnvelope', :minLng, :minLat, :maxLng, :maxLat, 4326)) = true")
+      + "function('ST_Intersects', p.geom, function('ST_MakeEnvelope', :minLng, :minLat, :maxLng, :maxLat, 4326)) = true "
+      + "and p.id > :afterId order by p.id")
   List<PinEntity> findInBoundingBox(
       @Param("minLng") double minLng,
       @Param("minLat") double minLat,
       @Param("maxLng") double maxLng,
       @Param("maxLat") double maxLat,
-      @Param("now") Instant now
+      @Param("now") Instant now,
+      @Param("afterId") UUID afterId,
+      Pageable pageable
   );
 
-  @Query("select p from PinEntity p where p.ownerId = :ownerId and p.expiresAt > :now and p.availableFrom <= :now and "
-      + "function('ST_Intersects', p.geom, function('ST_MakeEnvelope', :minLng, :minLat, :maxLng, :maxLat, 4326)) = true")
-  List<PinEntity> findOwnerPinsInBoundingBox(
+  /**
+   * Active pins in a bounding box that can possibly be visible to a viewer: the viewer's
+   * own pins, plus pins whose owner is in the owner set matching the pin's audience type.
+   * Paged by ID like findInBoundingBox. The owner sets are bound as arrays, so their size
+   * is not limited by the bind parameter limit. arraycontains is the function behind
+   * PostgreSQL's @> operator; Hibernate's array_contains cannot take a parameter as its array.
+   */
+  @Query(SUMMARY + "from PinEntity p where p.expiresAt > :now and p.availableFrom <= :now and "
+      + "function('ST_Intersects', p.geom, function('ST_MakeEnvelope', :minLng, :minLat, :maxLng, :maxLat, 4326)) = true "
+      + "and (p.ownerId = :viewerId "
+      + "or (p.audienceType = com.brooks.pins.AudienceType.PUBLIC "
+      + "and function('arraycontains', :publicOwnerIds, array(p.ownerId)) = true) "
+      + "or (p.audienceType = com.brooks.pins.AudienceType.FRIENDS "
+      + "and function('arraycontains', :friendsOwnerIds, array(p.ownerId)) = true) "
+      + "or (p.audienceType = com.brooks.pins.AudienceType.FOLLOWERS "
+      + "and function('arraycontains', :followersOwnerIds, array(p.ownerId)) = true)) "
+      + "and p.id > :afterId order by p.id")
+  List<PinSummary> findVisibleCandidatesInBoundingBox(
+      @Param("viewerId") UUID viewerId,
+      @Param("publicOwnerIds") UUID[] publicOwnerIds,
+      @Param("friendsOwnerIds") UUID[] friendsOwnerIds,
+      @Param("followersOwnerIds") UUID[] followersOwnerIds,
+      @Param("minLng") double minLng,
+      @Param("minLat") double minLat,
+      @Param("maxLng") double maxLng,
+      @Param("maxLat") double maxLat,
+      @Param("now") Instant now,
+      @Param("afterId") UUID afterId,
+      Pageable pageable
+  );
+
+  /**
+   * findVisibleCandidatesInBoundingBox without the PUBLIC, VISIBLE_ALWAYS pins of other
+   * owners, which the shared public layer serves (see PublicTileCache).
+   */
+  @Query(SUMMARY + "from PinEntity p where p.expiresAt > :now and p.availableFrom <= :now and "
+      + "function('ST_Intersects', p.geom, function('ST_MakeEnvelope', :minLng, :minLat, :maxLng, :maxLat, 4326)) = true "
+      + "and (p.ownerId = :viewerId "
+      + "or (p.audienceType = com.brooks.pins.AudienceType.PUBLIC "
+      + "and function('arraycontains', :publicOwnerIds, array(p.ownerId)) = true "
+      + "and p.revealType <> com.brooks.pins.RevealType.VISIBLE_ALWAYS) "
+      + "or (p.audienceType = com.brooks.pins.AudienceType.FRIENDS "
+      + "and function('arraycontains', :friendsOwnerIds, array(p.ownerId)) = true) "
+      + "or (p.audienceType = com.brooks.pins.AudienceType.FOLLOWERS "
+      + "and function('arraycontains', :followersOwnerIds, array(p.ownerId)) = true)) "
+      + "and p.id > :afterId order by p.id")
+  List<PinSummary> findPersonalCandidatesInBoundingBox(
+      @Param("viewerId") UUID viewerId,
+      @Param("publicOwnerIds") UUID[] publicOwnerIds,
+      @Param("friendsOwnerIds") UUID[] friendsOwnerIds,
+      @Param("followersOwnerIds") UUID[] followersOwnerIds,
+      @Param("minLng") double minLng,
+      @Param("minLat") double minLat,
+      @Param("maxLng") double maxLng,
+      @Param("maxLat") double maxLat,
+      @Param("now") Instant now,
+      @Param("afterId") UUID afterId,
+      Pageable pageable
+  );
+
+  /**
+   * Unexpired PUBLIC, VISIBLE_ALWAYS pins in a bounding box, including pins that are not
+   * available yet, in ID order. Loads one tile of the shared public layer.
+   */
+  @Query(SUMMARY + "from PinEntity p where p.expiresAt > :now "
+      + "and p.audienceType = com.brooks.pins.AudienceType.PUBLIC "
+      + "and p.revealType = com.brooks.pins.RevealType.VISIBLE_ALWAYS and "
+      + "function('ST_Intersects', p.geom, function('ST_MakeEnvelope', :minLng, :minLat, :maxLng, :maxLat, 4326)) = true "
+      + "order by p.id")
+  List<PinSummary> findPublicLayerInBoundingBox(
+      @Param("minLng") double minLng,
+      @Param("minLat") double minLat,
+      @Param("maxLng") double maxLng,
+      @Param("maxLat") double maxLat,
+      @Param("now") Instant now,
+      Pageable pageable
+  );
+
+  /**
+   * The owner's active pins in a bounding box, paged by ID like findInBoundingBox.
+   */
+  @Query(SUMMARY + "from PinEntity p where p.ownerId = :ownerId and p.expiresAt > :now and p.availableFrom <= :now and "
+      + "function('ST_Intersects', p.geom, function('ST_MakeEnvelope', :minLng, :minLat, :maxLng, :maxLat, 4326)) = true "
+      + "and p.id > :afterId order by p.id")
+  List<PinSummary> findOwnerPinsInBoundingBox(
       @Param("ownerId") UUID ownerId,
       @Param("minLng") double minLng,
       @Param("minLat") double minLat,
       @Param("maxLng") double maxLng,
       @Param("maxLat") double maxLat,
+      @Param("now") Instant now,
+      @Param("afterId") UUID afterId,
+      Pageable pageable
+  );
+
+  /**
+   * Active pins whose leaf cell falls in any of the given ranges, newest first.
+   * Each range is a contiguous block of descendants of one coarser cell (see CellRanges).
+   */
+  @Query(value = "SELECT p.* FROM pins p "
+      + "JOIN unnest(CAST(:lows AS BIGINT[]), CAST(:highs AS BIGINT[])) AS r(lo, hi) "
+      + "ON p.cell_id BETWEEN r.lo AND r.hi "
+      + "WHERE p.expires_at > :now AND p.available_from < :now "
+      + "ORDER BY p.available_from DESC LIMIT :limit",
+      nativeQuery = true)
+  List<PinEntity> findActiveInCellRanges(
+      @Param("lows") Long[] lows,
+      @Param("highs") Long[] highs,
+      @Param("now") Instant now,
+      @Param("limit") int limit
+  );
+
+  /**
+   * Active REACH_TO_REVEAL pins of other owners whose reveal zone contains the viewer.
+   * Pins with a mystery polygon match by ST_Contains (served by idx_pins_mystery_geom);
+   * the rest match when the viewer is within their reveal radius, falling back to the
+   * notify radius. The maxRadiusM bound lets idx_pins_reveal_geography limit the rows
+   * before the per-pin radius is checked.
+   */
+  @Query(value = "SELECT p.* FROM pins p "
+      + "WHERE p.reveal_type = 'REACH_TO_REVEAL' AND p.owner_id <> :viewerId "
+      + "AND p.expires_at > :now AND p.available_from < :now "
+      + "AND p.mystery_geom IS NOT NULL "
+      + "AND ST_Contains(p.mystery_geom, ST_SetSRID(ST_MakePoint(:lng, :lat), 4326)) "
+      + "UNION ALL "
+      + "SELECT p.* FROM pins p "
+      + "WHERE p.reveal_type = 'REACH_TO_REVEAL' AND p.owner_id <> :viewerId "
+      + "AND p.expires_at > :now AND p.available_from < :now "
+      + "AND p.mystery_geom IS NULL "
+      + "AND ST_DWithin(CAST(p.geom AS geography), "
+      + "CAST(ST_SetSRID(ST_MakePoint(:lng, :lat), 4326) AS geography), :maxRadiusM) "
+      + "AND ST_DWithin(CAST(p.geom AS geography), "
+      + "CAST(ST_SetSRID(ST_MakePoint(:lng, :lat), 4326) AS geography), "
+      + "COALESCE(p.reveal_radius_m, p.notify_radius_m))",
+      nativeQuery = true)
+  List<PinEntity> findRevealableNear(
+      @Param("viewerId") UUID viewerId,
+      @Param("lat") double lat,
+      @Param("lng") double lng,
+      @Param("maxRadiusM") double maxRadiusM,
+      @Param("now") Instant now
+  );
+
+  /**
+   * Unexpired REACH_TO_REVEAL pins of other owners whose point, or mystery polygon, lies
+   * in a bounding box. Upcoming pins are included so location sessions can hold them
+   * until they become available.
+   */
+  @Query(value = "SELECT p.* FROM pins p "
+      + "WHERE p.reveal_type = 'REACH_TO_REVEAL' AND p.owner_id <> :viewerId AND p.expires_at > :now "
+      + "AND p.mystery_geom IS NOT NULL "
+      + "AND p.mystery_geom && ST_MakeEnvelope(:minLng, :minLat, :maxLng, :maxLat, 4326) "
+      + "UNION ALL "
+      + "SELECT p.* FROM pins p "
+      + "WHERE p.reveal_type = 'REACH_TO_REVEAL' AND p.owner_id <> :viewerId AND p.expires_at > :now "
+      + "AND p.mystery_geom IS NULL "
+      + "AND ST_Intersects(p.geom, ST_MakeEnvelope(:minLng, :minLat, :maxLng, :maxLat, 4326))",
+      nativeQuery = true)
+  List<PinEntity> findRevealableInBoundingBox(
+      @Param("viewerId") UUID viewerId,
+      @Param("minLng") double minLng,
+      @Param("minLat") double minLat,
+      @Param("maxLng") double maxLng,
+      @Param("maxLat") double maxLat,
       @Param("now") Instant now
   );
 
+  /**
+   * Counts active pins in the given leaf cell ranges, stopping at cap.
+   * Answerable from idx_pins_cell_time_composite, so density probes stay cheap in dense areas.
+   */
+  @Query(value = "SELECT count(*) FROM (SELECT 1 FROM pins p "
+      + "JOIN unnest(CAST(:lows AS BIGINT[]), CAST(:highs AS BIGINT[])) AS r(lo, hi) "
+      + "ON p.cell_id BETWEEN r.lo AND r.hi "
+      + "WHERE p.expires_at > :now AND p.available_from < :now LIMIT :cap) capped",
+      nativeQuery = true)
+  long countActiveInCellRanges(
+      @Param("lows") Long[] lows,
+      @Param("highs") Long[] highs,
+      @Param("now") Instant now,
+      @Param("cap") int cap
+  );
+
   List<PinEntity> findByBucketInAndExpiresAtAfterAndAvailableFromBefore(
       List<String> buckets,
       Instant now1,
       Instant now2
   );
 
-  List<PinEntity> findByOwnerIdAndExpiresAtAfterAndAvailableFromBeforeOrderByCreatedAtDesc(
-      UUID ownerId,
-      Instant now1,
-      Instant now2
-  );
+  List<PinEntity> findByExpiresAtAfter(Instant now);
+
+  List<PinEntity> findByRevealTypeAndExpiresAtAfter(RevealType revealType, Instant now);
+
+  /**
+   * The owner's available pins as PinSummary projections, newest first.
+   */
+  @Query(SUMMARY + "from PinEntity p where p.ownerId = :ownerId and p.expiresAt > :now and p.availableFrom < :now "
+      + "order by p.createdAt desc")
+  List<PinSummary> findSummariesByOwner(@Param("ownerId") UUID ownerId, @Param("now") Instant now);
 
   long countByOwnerIdAndExpiresAtAfterAndAvailableFromBefore(
       UUID ownerId,
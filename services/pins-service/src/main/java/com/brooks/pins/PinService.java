@@ -1,5 +1,6 @@
 package com.brooks.pins;
 
+import com.brooks.pins.service.MapPage;
 import com.brooks.security.SecurityContextUtil;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -11,6 +12,7 @@ import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.PrecisionModel;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -39,6 +41,7 @@ public class PinService {
   private final GeometryFactory geometryFactory;
   private final String socialBaseUrl;
   private final String listsBaseUrl;
+  private final int maxRevealRadiusM;
 
   public PinService(
       PinRepository pinRepository,
@@ -47,7 +50,8 @@ public class PinService {
       RestTemplate restTemplate,
       @Value("${brooks.proximity.bucket-size-deg}") double bucketSizeDeg,
       @Value("${brooks.social.base-url}") String socialBaseUrl,
-      @Value("${brooks.lists.base-url}") String listsBaseUrl
+      @Value("${brooks.lists.base-url}") String listsBaseUrl,
+      @Value("${brooks.proximity.reveal.max-radius-m}") int maxRevealRadiusM
   ) {
     this.pinRepository = pinRepository;
     this.pinAclRepository = pinAclRepository;
@@ -58,6 +62,7 @@ public class PinService {
     this.geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
     this.socialBaseUrl = socialBaseUrl;
     this.listsBaseUrl = listsBaseUrl;
+    this.maxRevealRadiusM = maxRevealRadiusM;
   }
 
   @Transactional
@@ -89,6 +94,7 @@ public class PinService {
     pin.setAltitudeM(request.location().altitudeM());
     pin.setGeom(GeoUtil.toPoint(request.location(), geometryFactory));
     pin.setBucket(locationBucket.bucket(request.location().lat(), request.location().lng()));
+    pin.setCellId(locationBucket.leafCellId(request.location().lat(), request.location().lng()));
     if (request.mysteryPolygon() != null) {
       pin.setMysteryGeom(GeoUtil.toPolygon(request.mysteryPolygon(), geometryFactory));
     }
@@ -124,7 +130,8 @@ public class PinService {
     double[] bounds = parseBbox(bbox);
     Instant now = Instant.now();
 
-    List<PinEntity> pins = pinRepository.findInBoundingBox(bounds[0], bounds[1], bounds[2], bounds[3], now);
+    List<PinEntity> pins = pinRepository.findInBoundingBox(
+        bounds[0], bounds[1], bounds[2], bounds[3], now, MapPage.START, Pageable.unpaged());
     Map<UUID, SocialGraphView> graphCache = new HashMap<>();
     List<MapPin> results = new ArrayList<>();
     for (PinEntity pin : pins) {
@@ -138,7 +145,7 @@ public class PinService {
             pin.getOwnerId().toString(),
             location,
             pin.getMapPrecision(),
-            previewText(pin.getText()),
+            pin.getTextPreview() == null ? PinSummary.UNTITLED : pin.getTextPreview(),
             pin.getAudienceType(),
             pin.getRevealType(),
             isOwner(viewerId, pin)
@@ -166,7 +173,7 @@ public class PinService {
             pin.getId().toString(),
             new LocationRequest(pin.getGeom().getY(), pin.getGeom().getX(), pin.getAltitudeM()),
             pin.getRevealType(),
-            pin.getRevealRadiusM(),
+            pin.getRevealRadiusM() != null ? Math.min(pin.getRevealRadiusM(), maxRevealRadiusM) : null,
             GeoUtil.toPolygonRequest(pin.getMysteryGeom())
         ));
       }
@@ -263,7 +270,8 @@ public class PinService {
           Point viewerPoint = GeoUtil.toPoint(location, geometryFactory);
           inRevealRadius = GeoUtil.withinPolygon(viewerPoint, pin.getMysteryGeom());
         } else if (pin.getRevealRadiusM() != null) {
-          inRevealRadius = GeoUtil.distanceMeters(location, pinLocation) <= pin.getRevealRadiusM();
+          inRevealRadius = GeoUtil.distanceMeters(location, pinLocation)
+              <= Math.min(pin.getRevealRadiusM(), maxRevealRadiusM);
         } else {
           inRevealRadius = false;
         }
@@ -293,17 +301,6 @@ public class PinService {
     return viewerId.equals(pin.getOwnerId());
   }
 
-  private String previewText(String text) {
-    if (text == null || text.isBlank()) {
-      return "Untitled memory";
-    }
-    String normalized = text.trim().replaceAll("\\s+", " ");
-    if (normalized.length() <= 140) {
-      return normalized;
-    }
-    return normalized.substring(0, 137) + "...";
-  }
-
   private LocationRequest toLocation(PinEntity pin, MapPrecision precision) {
     double lat = pin.getGeom().getY();
     double lng = pin.getGeom().getX();
@@ -1,11 +1,17 @@
 package com.brooks.pins;
 
 import com.brooks.pins.client.NotificationsClient;
+import com.brooks.pins.service.CandidateSync;
+import com.brooks.pins.service.CellVersions;
+import com.brooks.pins.service.MapClusterer;
+import com.brooks.pins.service.MapPage;
 import com.brooks.pins.service.PinAccessService;
 import com.brooks.pins.service.ProximityService;
+import com.brooks.pins.service.VectorTileEncoder;
 import com.brooks.security.SecurityContextUtil;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -17,6 +23,7 @@ import org.locationtech.jts.geom.PrecisionModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -38,9 +45,14 @@ public class PinServiceRefactored {
   private final PinNotificationStateRepository pinNotificationStateRepository;
   private final PinAccessService pinAccessService;
   private final ProximityService proximityService;
+  private final MapClusterer mapClusterer;
   private final NotificationsClient notificationsClient;
+  private final CellVersions cellVersions;
+  private final CandidateSync candidateSync;
+  private final ApplicationEventPublisher eventPublisher;
   private final LocationBucket locationBucket;
   private final GeometryFactory geometryFactory;
+  private final int maxMapResults;
 
   public PinServiceRefactored(
       PinRepository pinRepository,
@@ -48,17 +60,27 @@ public class PinServiceRefactored {
       PinNotificationStateRepository pinNotificationStateRepository,
       PinAccessService pinAccessService,
       ProximityService proximityService,
+      MapClusterer mapClusterer,
       NotificationsClient notificationsClient,
-      @Value("${brooks.proximity.bucket-size-deg}") double bucketSizeDeg
+      CellVersions cellVersions,
+      CandidateSync candidateSync,
+      ApplicationEventPublisher eventPublisher,
+      @Value("${brooks.proximity.bucket-size-deg}") double bucketSizeDeg,
+      @Value("${brooks.pins.map.max-results}") int maxMapResults
   ) {
     this.pinRepository = pinRepository;
     this.pinAclRepository = pinAclRepository;
     this.pinNotificationStateRepository = pinNotificationStateRepository;
     this.pinAccessService = pinAccessService;
     this.proximityService = proximityService;
+    this.mapClusterer = mapClusterer;
     this.notificationsClient = notificationsClient;
+    this.cellVersions = cellVersions;
+    this.candidateSync = candidateSync;
+    this.eventPublisher = eventPublisher;
     this.locationBucket = new LocationBucket(bucketSizeDeg);
     this.geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+    this.maxMapResults = maxMapResults;
   }
 
   /**
@@ -75,6 +97,7 @@ public class PinServiceRefactored {
 
     // Validate future-self constraints
     validateFutureSelfConstraints(request);
+    validateRevealRadius(request);
 
     // Create pin entity
     PinEntity pin = buildPinEntity(request, ownerId, now);
@@ -82,6 +105,7 @@ public class PinServiceRefactored {
 
     // Create ACL entries
     createAclEntries(saved.getId(), request.acl());
+    eventPublisher.publishEvent(new PinChangedEvent(saved.getId(), request.location()));
 
     return new PinResponse(saved.getId().toString(), "CREATED");
   }
@@ -90,33 +114,169 @@ public class PinServiceRefactored {
    * Returns pins visible to the viewer within a map bounding box.
    * Applies access control and map precision.
    *
+   * When clustering is requested (cluster=true or a zoom level), dense grid cells are
+   * returned as clusters with counts instead of individual pins.
+   *
+   * At most limit candidate pins (capped by brooks.pins.map.max-results) are evaluated
+   * per request, in pin ID order. A truncated response carries the cursor for the next page.
+   *
    * @param bbox Bounding box string (minLng,minLat,maxLng,maxLat)
-   * @return Response with visible pins
+   * @param zoom Map zoom level, or null to derive it from the bbox when clustering
+   * @param cluster Whether to cluster even without a zoom level
+   * @param after Cursor from the previous page, or null for the first page
+   * @param limit Maximum candidates to evaluate, or null for the configured maximum
+   * @return Response with visible pins and clusters
    */
-  public MapPinsResponse mapPins(String bbox, PinMapScope scope) {
+  public MapPinsResponse mapPins(
+      String bbox,
+      PinMapScope scope,
+      Integer zoom,
+      boolean cluster,
+      String after,
+      Integer limit
+  ) {
     UUID viewerId = requireActor();
     double[] bounds = parseBbox(bbox);
+    if (zoom != null && (zoom < 0 || zoom > MapClusterer.MAX_ZOOM)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid zoom");
+    }
+    MapPage page = parseMapPage(after, limit);
+
+    MapPinsResponse response = findMapPins(viewerId, bounds, scope, page);
+    if (zoom == null && !cluster) {
+      return response;
+    }
+    MapPinsResponse clustered = mapClusterer.cluster(
+        response.pins(), zoom != null ? zoom : mapClusterer.zoomFor(bounds));
+    return new MapPinsResponse(clustered.pins(), clustered.clusters(), response.truncated(), response.nextCursor());
+  }
+
+  /**
+   * Returns the ETag of the mapPins() response for the same arguments. Computed from the
+   * version counters of the cells under the bbox, the viewer's unlock counter, the viewer's
+   * cached social graph and the arguments, without database work.
+   *
+   * @return Weak ETag, or null when the bbox spans too many cells, versions are unavailable
+   *     or the social graph lookup misses the downstream deadline
+   */
+  public String mapEtag(String bbox, PinMapScope scope, Integer zoom, boolean cluster, String after, Integer limit) {
+    UUID viewerId = requireActor();
+    long[] versions = cellVersions.inBoundingBox(parseBbox(bbox), viewerId);
+    if (versions == null) {
+      return null;
+    }
+    Integer graphHash = graphHash(viewerId);
+    if (graphHash == null) {
+      return null;
+    }
+    return cellVersions.etag(versions, Instant.now(), "map", viewerId, graphHash,
+        bbox, scope, zoom, cluster, after, limit, maxMapResults);
+  }
+
+  /**
+   * Returns one Mapbox Vector Tile of the map layer, with the same visibility rules and
+   * precision blurring as mapPins(). Dense cells are clustered for the tile's zoom.
+   *
+   * @return Encoded tile, empty when nothing is visible
+   */
+  public byte[] mapTile(int z, int x, int y, PinMapScope scope) {
+    UUID viewerId = requireActor();
+    if (!VectorTileEncoder.isValidTile(z, x, y)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid tile coordinates");
+    }
+    double[] bounds = VectorTileEncoder.tileBounds(z, x, y);
+
+    // Tiles are not paginated; a tile beyond max-results shows its first page only
+    MapPinsResponse response = findMapPins(viewerId, bounds, scope, MapPage.first(maxMapResults));
+    return VectorTileEncoder.encode(z, x, y, mapClusterer.cluster(response.pins(), z));
+  }
 
-    List<MapPin> pins = switch (scope) {
-      case HOME -> proximityService.findPinsInBoundingBox(viewerId, bounds);
-      case MINE -> proximityService.findOwnPinsInBoundingBox(viewerId, bounds);
-      case FRIENDS -> proximityService.findFriendPinsInBoundingBox(viewerId, bounds);
+  private MapPinsResponse findMapPins(UUID viewerId, double[] bounds, PinMapScope scope, MapPage page) {
+    return switch (scope) {
+      case HOME -> proximityService.findPinsInBoundingBox(viewerId, bounds, page);
+      case MINE -> proximityService.findOwnPinsInBoundingBox(viewerId, bounds, page);
+      case FRIENDS -> proximityService.findFriendPinsInBoundingBox(viewerId, bounds, page);
     };
-    return new MapPinsResponse(pins);
+  }
+
+  private MapPage parseMapPage(String after, Integer limit) {
+    if (limit != null && limit < 1) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid limit");
+    }
+    int pageLimit = limit == null ? maxMapResults : Math.min(limit, maxMapResults);
+    if (after == null || after.isBlank()) {
+      return MapPage.first(pageLimit);
+    }
+    try {
+      return new MapPage(UUID.fromString(after), pageLimit);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+    }
   }
 
   /**
    * Returns pin candidates for geofence registration.
    * Used by the client to set up proximity-based discovery.
    *
+   * With a sync token from an earlier response, returns only the candidates added and the
+   * IDs removed since then, and skips the query entirely when none of the bucket's cells
+   * or the viewer's social graph or unlocks have changed.
+   *
    * @param bucket Location bucket identifier
+   * @param since Sync token of the client's last response, or null for a full list
    * @return Pin candidates with zones but not content
    */
-  public PinCandidatesResponse candidates(String bucket) {
+  public PinCandidatesResponse candidates(String bucket, String since) {
     UUID viewerId = requireActor();
+    String syncToken = candidatesDigest(viewerId, bucket);
+    if (syncToken != null && syncToken.equals(since)) {
+      return CandidateSync.unchanged(syncToken);
+    }
+
+    PinCandidatesResponse full = proximityService.findCandidatesInBucket(viewerId, bucket);
+    if (syncToken == null) {
+      return full;
+    }
+    return candidateSync.respond(viewerId, locationBucket.parseCellId(bucket), syncToken, since, full);
+  }
 
-    List<PinCandidate> candidates = proximityService.findCandidatesInBucket(viewerId, bucket);
-    return new PinCandidatesResponse(candidates);
+  /**
+   * Returns the ETag of the full candidates() response for a bucket, like mapEtag().
+   *
+   * @return Weak ETag, or null for malformed buckets, when versions are unavailable or when
+   *     the social graph lookup misses the downstream deadline
+   */
+  public String candidatesEtag(String bucket) {
+    String digest = candidatesDigest(requireActor(), bucket);
+    return digest == null ? null : "W/\"" + digest + "\"";
+  }
+
+  // Also the delta sync token, so a 304 leaves the client's token current
+  private String candidatesDigest(UUID viewerId, String bucket) {
+    long cellId;
+    try {
+      cellId = locationBucket.parseCellId(bucket);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+    long[] versions = cellVersions.aroundBucket(cellId, viewerId);
+    if (versions == null) {
+      return null;
+    }
+    Integer graphHash = graphHash(viewerId);
+    if (graphHash == null) {
+      return null;
+    }
+    return cellVersions.digest(versions, Instant.now(), "candidates", viewerId, graphHash, cellId);
+  }
+
+  /**
+   * Content hash of the viewer's social graph snapshot, fetched under the downstream
+   * deadline. Null when the lookup misses it: no tag is better than one that could match
+   * a response built from a different graph.
+   */
+  private Integer graphHash(UUID viewerId) {
+    return pinAccessService.fetchGraphSnapshot(viewerId).map(SocialGraphSnapshot::contentHash).orElse(null);
   }
 
   /**
@@ -128,23 +288,35 @@ public class PinServiceRefactored {
   public ProximityCheckResponse proximityCheck(ProximityCheckRequest request) {
     UUID viewerId = requireActor();
     LocationRequest viewerLocation = request.location();
-    String bucket = locationBucket.bucket(viewerLocation.lat(), viewerLocation.lng());
     Instant now = Instant.now();
 
-    // Query neighboring buckets for candidate pins
-    List<String> buckets = locationBucket.neighbors(bucket);
-    List<PinEntity> candidatePins = pinRepository.findByBucketInAndExpiresAtAfterAndAvailableFromBefore(
-        buckets, now, now
-    );
+    // Indexed radius search: only REACH_TO_REVEAL pins of other owners whose zone contains the viewer
+    List<IndexedPin> reachToRevealPins = proximityService.findRevealablePinsNear(viewerId, viewerLocation, now);
 
-    // Filter to REACH_TO_REVEAL pins not owned by viewer
-    List<PinEntity> reachToRevealPins = candidatePins.stream()
-        .filter(pin -> pin.getRevealType() == RevealType.REACH_TO_REVEAL)
-        .filter(pin -> !viewerId.equals(pin.getOwnerId()))
-        .collect(Collectors.toList());
+    return new ProximityCheckResponse(revealAllowed(viewerId, reachToRevealPins));
+  }
+
+  /**
+   * Batch proximity check over a path: unlocks the REACH_TO_REVEAL pins whose zone the
+   * viewer passed through between and at the samples, in one transaction.
+   */
+  @Transactional
+  public ProximityCheckResponse trajectoryCheck(TrajectoryCheckRequest request) {
+    UUID viewerId = requireActor();
+    List<TrajectorySample> samples = request.samples().stream()
+        .sorted(Comparator.comparing(TrajectorySample::recordedAt))
+        .toList();
 
+    List<IndexedPin> passed = proximityService.findRevealablePinsAlong(viewerId, samples, Instant.now());
+    return new ProximityCheckResponse(revealAllowed(viewerId, passed));
+  }
+
+  /**
+   * Reveals the reached pins the viewer may access and has not unlocked yet.
+   */
+  private List<ProximityCheckResponse.RevealedPin> revealAllowed(UUID viewerId, List<IndexedPin> reachToRevealPins) {
     if (reachToRevealPins.isEmpty()) {
-      return new ProximityCheckResponse(List.of());
+      return List.of();
     }
 
     // Batch evaluate access control
@@ -152,7 +324,7 @@ public class PinServiceRefactored {
         pinAccessService.evaluateBatch(reachToRevealPins, viewerId, false);
 
     // Filter to allowed pins
-    List<PinEntity> allowedPins = reachToRevealPins.stream()
+    List<IndexedPin> allowedPins = reachToRevealPins.stream()
         .filter(pin -> {
           PinAccessService.AccessEvaluationResult result = accessResults.get(pin.getId());
           return result != null && result.isAllowed();
@@ -160,11 +332,11 @@ public class PinServiceRefactored {
         .collect(Collectors.toList());
 
     if (allowedPins.isEmpty()) {
-      return new ProximityCheckResponse(List.of());
+      return List.of();
     }
 
     // Check which are already unlocked
-    List<UUID> allowedPinIds = allowedPins.stream().map(PinEntity::getId).collect(Collectors.toList());
+    List<UUID> allowedPinIds = allowedPins.stream().map(IndexedPin::getId).collect(Collectors.toList());
     Set<UUID> alreadyUnlocked = pinNotificationStateRepository
         .findByUserIdAndPinIdIn(viewerId, allowedPinIds)
         .stream()
@@ -172,42 +344,42 @@ public class PinServiceRefactored {
         .map(PinNotificationStateEntity::getPinId)
         .collect(Collectors.toSet());
 
-    // For each not-yet-unlocked pin, check distance
-    List<ProximityCheckResponse.RevealedPin> revealed = new ArrayList<>();
-    for (PinEntity pin : allowedPins) {
-      if (alreadyUnlocked.contains(pin.getId())) {
-        continue;
-      }
-
-      LocationRequest pinLocation = new LocationRequest(
-          pin.getGeom().getY(),
-          pin.getGeom().getX(),
-          pin.getAltitudeM()
-      );
-
-      Integer effectiveRadius = pin.getRevealRadiusM() != null
-          ? pin.getRevealRadiusM()
-          : pin.getNotifyRadiusM();
+    // Every remaining pin is already within its reveal radius
+    List<IndexedPin> reached = allowedPins.stream()
+        .filter(pin -> !alreadyUnlocked.contains(pin.getId()))
+        .collect(Collectors.toList());
+    return reveal(viewerId, reached);
+  }
 
-      if (effectiveRadius == null) {
+  /**
+   * Unlocks pins whose reveal zone the viewer has reached and sends a notification for
+   * each first reveal. Callers have already evaluated access and dropped unlocked pins.
+   * Pins are reloaded for their content; those deleted since they were found are skipped.
+   *
+   * @return Revealed content, in the order of pins
+   */
+  @Transactional
+  public List<ProximityCheckResponse.RevealedPin> reveal(UUID viewerId, List<IndexedPin> pins) {
+    Map<UUID, PinEntity> loaded = pinRepository.findAllById(pins.stream().map(IndexedPin::getId).toList())
+        .stream()
+        .collect(Collectors.toMap(PinEntity::getId, pin -> pin));
+    List<ProximityCheckResponse.RevealedPin> revealed = new ArrayList<>();
+    for (IndexedPin reached : pins) {
+      PinEntity pin = loaded.get(reached.getId());
+      if (pin == null) {
         continue;
       }
-
-      double distance = GeoUtil.distanceMeters(viewerLocation, pinLocation);
-      if (distance <= effectiveRadius) {
-        boolean firstReveal = recordUnlock(pin.getId(), viewerId);
-        if (firstReveal) {
-          notificationsClient.sendRevealNotification(viewerId, pin.getId(), pin.getOwnerId());
-        }
-        revealed.add(new ProximityCheckResponse.RevealedPin(
-            pin.getId().toString(),
-            pin.getText(),
-            pin.getLinkUrl()
-        ));
+      boolean firstReveal = recordUnlock(pin, viewerId);
+      if (firstReveal) {
+        notificationsClient.sendRevealNotification(viewerId, pin.getId(), pin.getOwnerId());
       }
+      revealed.add(new ProximityCheckResponse.RevealedPin(
+          pin.getId().toString(),
+          pin.getText(),
+          pin.getLinkUrl()
+      ));
     }
-
-    return new ProximityCheckResponse(revealed);
+    return revealed;
   }
 
   /**
@@ -222,7 +394,7 @@ public class PinServiceRefactored {
   public RevealCheckResponse checkReveal(UUID pinId, RevealCheckRequest request) {
     UUID viewerId = requireActor();
 
-    PinEntity pin = pinRepository.findById(pinId)
+    PinEntity pin = proximityService.findPinForReveal(pinId)
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Pin not found"));
 
     // Evaluate access with precise location
@@ -240,7 +412,7 @@ public class PinServiceRefactored {
     // Check if within reveal radius
     if (result.inRevealRadius()) {
       // Record unlock
-      recordUnlock(pin.getId(), viewerId);
+      recordUnlock(pin, viewerId);
 
       // Return pin content
       PinDetail detail = new PinDetail(
@@ -271,6 +443,8 @@ public class PinServiceRefactored {
     }
 
     pinRepository.delete(pin);
+    eventPublisher.publishEvent(new PinChangedEvent(
+        pinId, new LocationRequest(pin.getGeom().getY(), pin.getGeom().getX(), pin.getAltitudeM())));
   }
 
   // --- Private helper methods ---
@@ -295,6 +469,22 @@ public class PinServiceRefactored {
     }
   }
 
+  /**
+   * Keeps reveal zones within the radius that proximityCheck searches.
+   */
+  private void validateRevealRadius(PinCreateRequest request) {
+    if (request.revealType() != RevealType.REACH_TO_REVEAL) {
+      return;
+    }
+    Integer effectiveRadius = request.revealRadiusM() != null ? request.revealRadiusM() : request.notifyRadiusM();
+    if (effectiveRadius != null && effectiveRadius > proximityService.maxRevealRadiusM()) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST,
+          "Reveal radius must not exceed " + proximityService.maxRevealRadiusM() + " meters"
+      );
+    }
+  }
+
   private PinEntity buildPinEntity(PinCreateRequest request, UUID ownerId, Instant now) {
     PinEntity pin = new PinEntity();
     pin.setOwnerId(ownerId);
@@ -313,6 +503,7 @@ public class PinServiceRefactored {
     pin.setAltitudeM(request.location().altitudeM());
     pin.setGeom(GeoUtil.toPoint(request.location(), geometryFactory));
     pin.setBucket(locationBucket.bucket(request.location().lat(), request.location().lng()));
+    pin.setCellId(locationBucket.leafCellId(request.location().lat(), request.location().lng()));
 
     if (request.mysteryPolygon() != null) {
       pin.setMysteryGeom(GeoUtil.toPolygon(request.mysteryPolygon(), geometryFactory));
@@ -349,18 +540,23 @@ public class PinServiceRefactored {
     }
   }
 
-  private boolean recordUnlock(UUID pinId, UUID userId) {
+  /**
+   * Records the first unlock of a pin. Unlocked pins show on the viewer's map, so the
+   * viewer's unlock version is bumped too.
+   */
+  private boolean recordUnlock(PinEntity pin, UUID userId) {
     Optional<PinNotificationStateEntity> existing =
-        pinNotificationStateRepository.findByPinIdAndUserId(pinId, userId);
+        pinNotificationStateRepository.findByPinIdAndUserId(pin.getId(), userId);
     if (existing.isPresent() && existing.get().getUnlockedAt() != null) {
       return false; // Already unlocked
     }
     PinNotificationStateEntity state = existing.orElseGet(PinNotificationStateEntity::new);
-    state.setPinId(pinId);
+    state.setPinId(pin.getId());
     state.setUserId(userId);
     state.setUnlockedAt(Instant.now());
     state.setLastNotifiedAt(Instant.now());
     pinNotificationStateRepository.save(state);
+    eventPublisher.publishEvent(new PinUnlockedEvent(userId, pin.getId()));
     return true; // First reveal
   }
 
@@ -0,0 +1,141 @@
+package com.brooks.pins;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Read-only projection of a pin for map and profile listings.
+ * Loaded with a JPQL constructor expression (see PinRepository.SUMMARY), so it carries
+ * plain coordinates and the stored text preview instead of JTS geometries and the full
+ * text, and is never attached to the persistence context.
+ */
+public final class PinSummary implements AccessControlledPin {
+  public static final String UNTITLED = "Untitled memory";
+
+  private final UUID id;
+  private final UUID ownerId;
+  private final double lat;
+  private final double lng;
+  private final Double altitudeM;
+  private final String textPreview;
+  private final AudienceType audienceType;
+  private final RevealType revealType;
+  private final MapPrecision mapPrecision;
+  private final Instant availableFrom;
+  private final Instant expiresAt;
+  private final boolean futureSelf;
+  private final Instant createdAt;
+
+  public PinSummary(
+      UUID id,
+      UUID ownerId,
+      Double lat,
+      Double lng,
+      Double altitudeM,
+      String textPreview,
+      AudienceType audienceType,
+      RevealType revealType,
+      MapPrecision mapPrecision,
+      Instant availableFrom,
+      Instant expiresAt,
+      Boolean futureSelf,
+      Instant createdAt
+  ) {
+    this.id = id;
+    this.ownerId = ownerId;
+    this.lat = lat;
+    this.lng = lng;
+    this.altitudeM = altitudeM;
+    this.textPreview = textPreview == null ? UNTITLED : textPreview;
+    this.audienceType = audienceType;
+    this.revealType = revealType;
+    this.mapPrecision = mapPrecision;
+    this.availableFrom = availableFrom;
+    this.expiresAt = expiresAt;
+    this.futureSelf = futureSelf;
+    this.createdAt = createdAt;
+  }
+
+  /**
+   * Builds the projection of an indexed pin, e.g. from the in-memory index.
+   */
+  public static PinSummary of(IndexedPin pin) {
+    return new PinSummary(
+        pin.getId(),
+        pin.getOwnerId(),
+        pin.getLat(),
+        pin.getLng(),
+        pin.getAltitudeM(),
+        pin.getTextPreview(),
+        pin.getAudienceType(),
+        pin.getRevealType(),
+        pin.getMapPrecision(),
+        pin.getAvailableFrom(),
+        pin.getExpiresAt(),
+        pin.isFutureSelf(),
+        pin.getCreatedAt()
+    );
+  }
+
+  @Override
+  public UUID getId() {
+    return id;
+  }
+
+  @Override
+  public UUID getOwnerId() {
+    return ownerId;
+  }
+
+  public double getLat() {
+    return lat;
+  }
+
+  public double getLng() {
+    return lng;
+  }
+
+  public Double getAltitudeM() {
+    return altitudeM;
+  }
+
+  /**
+   * Preview text, or UNTITLED when the pin has no text.
+   */
+  public String getTextPreview() {
+    return textPreview;
+  }
+
+  @Override
+  public AudienceType getAudienceType() {
+    return audienceType;
+  }
+
+  @Override
+  public RevealType getRevealType() {
+    return revealType;
+  }
+
+  public MapPrecision getMapPrecision() {
+    return mapPrecision;
+  }
+
+  @Override
+  public Instant getAvailableFrom() {
+    return availableFrom;
+  }
+
+  @Override
+  public Instant getExpiresAt() {
+    return expiresAt;
+  }
+
+  @Override
+  public boolean isFutureSelf() {
+    return futureSelf;
+  }
+
+  public Instant getCreatedAt() {
+    return createdAt;
+  }
+}
@@ -0,0 +1,9 @@
+package com.brooks.pins;
+
+import java.util.UUID;
+
+/**
+ * Published when a viewer unlocks a pin. Only that viewer's map and candidates change,
+ * so version counters are bumped per viewer rather than per cell once the transaction commits.
+ */
+public record PinUnlockedEvent(UUID viewerId, UUID pinId) {}
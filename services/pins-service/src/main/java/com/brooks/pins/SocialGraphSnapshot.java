@@ -0,0 +1,78 @@
+package com.brooks.pins;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * A viewer's whole relevant social neighbourhood, as served by social-service.
+ * Each array holds UUIDs packed as (mostSignificantBits, leastSignificantBits) pairs,
+ * sorted by most then least significant bits (signed comparison), so membership is
+ * a binary search and no per-subject lookup leaves the process.
+ */
+public record SocialGraphSnapshot(
+    long[] friendIds,
+    long[] followeeIds,
+    long[] blockedIds,
+    long[] canSeePinsIds,
+    long[] canReceiveNotificationsIds
+) {
+  public static final SocialGraphSnapshot EMPTY =
+      new SocialGraphSnapshot(new long[0], new long[0], new long[0], new long[0], new long[0]);
+
+  /**
+   * Answers the same question as GET /internal/graph/view for this viewer and the given subject.
+   */
+  public SocialGraphView viewOf(UUID subjectId) {
+    long msb = subjectId.getMostSignificantBits();
+    long lsb = subjectId.getLeastSignificantBits();
+    return new SocialGraphView(
+        contains(blockedIds, msb, lsb),
+        contains(friendIds, msb, lsb),
+        contains(followeeIds, msb, lsb),
+        contains(canSeePinsIds, msb, lsb),
+        contains(canReceiveNotificationsIds, msb, lsb)
+    );
+  }
+
+  @JsonIgnore
+  public boolean isEmpty() {
+    return length(friendIds) == 0 && length(followeeIds) == 0 && length(blockedIds) == 0
+        && length(canSeePinsIds) == 0 && length(canReceiveNotificationsIds) == 0;
+  }
+
+  /**
+   * Hash of the snapshot contents, for validators of responses that depend on the graph.
+   */
+  public int contentHash() {
+    return Arrays.deepHashCode(
+        new Object[]{friendIds, followeeIds, blockedIds, canSeePinsIds, canReceiveNotificationsIds});
+  }
+
+  static boolean contains(long[] packed, long msb, long lsb) {
+    if (packed == null) {
+      return false;
+    }
+    int low = 0;
+    int high = packed.length / 2 - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = Long.compare(packed[2 * mid], msb);
+      if (cmp == 0) {
+        cmp = Long.compare(packed[2 * mid + 1], lsb);
+      }
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int length(long[] packed) {
+    return packed == null ? 0 : packed.length;
+  }
+}
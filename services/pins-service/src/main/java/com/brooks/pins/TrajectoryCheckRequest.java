@@ -0,0 +1,16 @@
+package com.brooks.pins;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+/**
+ * Location samples collected by a client since its last check, in any order; the server
+ * sorts them by recordedAt and treats consecutive samples as straight path segments.
+ */
+public record TrajectoryCheckRequest(
+    @NotNull
+    @Size(min = 1, max = 500, message = "Trajectory must have between 1 and 500 samples")
+    List<@Valid @NotNull TrajectorySample> samples
+) {}
@@ -0,0 +1,10 @@
+package com.brooks.pins;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import java.time.Instant;
+
+public record TrajectorySample(
+    @Valid @NotNull LocationRequest location,
+    @NotNull(message = "Sample time is required") Instant recordedAt
+) {}
@@ -1,6 +1,8 @@
 package com.brooks.pins.client;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -16,4 +18,14 @@ public interface ListsClient {
    * @return true if the user is in at least one of the lists
    */
   boolean isUserInAnyList(UUID userId, List<String> listIds);
+
+  /**
+   * Resolves which of the specified lists contain a user in a single call.
+   * Used to evaluate the list ACLs of a whole batch of pins locally.
+   *
+   * @param userId The user to check
+   * @param listIds The union of list IDs to check membership in
+   * @return The subset of listIds the user is a member of
+   */
+  Set<String> findMemberListIds(UUID userId, Collection<String> listIds);
 }
@@ -5,7 +5,12 @@ import com.brooks.pins.ListMembershipResponse;
 import com.brooks.security.SecurityContextUtil;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -76,6 +81,42 @@ public class ListsClientImpl implements ListsClient {
     return body != null && body.inAny();
   }
 
+  @Override
+  @Cacheable(
+      cacheNames = "listsMembership",
+      key = "'set|' + #userId.toString() + '|' + T(java.lang.String).join(',', new java.util.TreeSet(#listIds))"
+  )
+  @CircuitBreaker(name = "listsService", fallbackMethod = "findMemberListIdsFallback")
+  @Retry(name = "listsService")
+  public Set<String> findMemberListIds(UUID userId, Collection<String> listIds) {
+    if (listIds == null || listIds.isEmpty()) {
+      return new HashSet<>();
+    }
+    long startedAt = System.currentTimeMillis();
+    log.info("lists-service request start: baseUrl={}, userId={}, listCount={}", listsBaseUrl, userId, listIds.size());
+
+    ListMembershipRequest request = new ListMembershipRequest(userId.toString(), new ArrayList<>(new TreeSet<>(listIds)));
+    ResponseEntity<ListMembershipResponse> response = restTemplate.exchange(
+        listsBaseUrl + "/internal/lists/membership",
+        HttpMethod.POST,
+        new HttpEntity<>(request, createAuthHeaders()),
+        ListMembershipResponse.class
+    );
+    log.info(
+        "lists-service request end: baseUrl={}, status={}, durationMs={}",
+        listsBaseUrl,
+        response.getStatusCode().value(),
+        System.currentTimeMillis() - startedAt
+    );
+
+    ListMembershipResponse body = response.getBody();
+    if (body == null || body.memberOfListIds() == null) {
+      return new HashSet<>();
+    }
+    // Mutable set so the cached value round-trips through the JSON serializer
+    return new HashSet<>(body.memberOfListIds());
+  }
+
   /**
    * Fallback method when lists service is unavailable.
    * Returns false as safe default (denies access).
@@ -87,6 +128,16 @@ public class ListsClientImpl implements ListsClient {
     return false;
   }
 
+  /**
+   * Batch fallback when lists service is unavailable.
+   * Returns no memberships as safe default (denies list ACLs).
+   */
+  private Set<String> findMemberListIdsFallback(UUID userId, Collection<String> listIds, Exception ex) {
+    log.warn("Lists service unavailable for userId={}, listCount={}. Using fallback. Error: {}",
+        userId, listIds == null ? 0 : listIds.size(), ex.getMessage());
+    return new HashSet<>();
+  }
+
   private HttpHeaders createAuthHeaders() {
     HttpHeaders headers = new HttpHeaders();
     String token = SecurityContextUtil.currentToken();
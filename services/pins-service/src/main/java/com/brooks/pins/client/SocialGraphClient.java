@@ -1,5 +1,6 @@
 package com.brooks.pins.client;
 
+import com.brooks.pins.SocialGraphSnapshot;
 import com.brooks.pins.SocialGraphView;
 import java.util.UUID;
 
@@ -17,4 +18,13 @@ public interface SocialGraphClient {
    * @return Social graph view containing relationship information
    */
   SocialGraphView fetchGraphView(UUID viewerId, UUID subjectId);
+
+  /**
+   * Fetches the viewer's friends, followees, blocks and relationship preferences
+   * in one call so that graph views for any subject can be answered locally.
+   *
+   * @param viewerId The user viewing the content
+   * @return Compact snapshot of the viewer's social graph
+   */
+  SocialGraphSnapshot fetchGraphSnapshot(UUID viewerId);
 }
@@ -1,5 +1,6 @@
 package com.brooks.pins.client;
 
+import com.brooks.pins.SocialGraphSnapshot;
 import com.brooks.pins.SocialGraphView;
 import com.brooks.security.SecurityContextUtil;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
@@ -23,6 +24,11 @@ import org.springframework.web.client.RestTemplate;
 @Component
 public class SocialGraphClientImpl implements SocialGraphClient {
   private static final Logger log = LoggerFactory.getLogger(SocialGraphClientImpl.class);
+  private static final String GRAPH_VIEW_CACHE = "socialGraphView";
+  private static final String GRAPH_SNAPSHOT_CACHE = "socialGraphSnapshot";
+  /** Returned only by the snapshot fallback, so the cache can tell it apart from a real empty graph. */
+  private static final SocialGraphSnapshot FALLBACK_SNAPSHOT =
+      new SocialGraphSnapshot(new long[0], new long[0], new long[0], new long[0], new long[0]);
   private final RestTemplate restTemplate;
   private final String socialBaseUrl;
   private final String serviceName;
@@ -42,7 +48,7 @@ public class SocialGraphClientImpl implements SocialGraphClient {
 
   @Override
   @Cacheable(
-      cacheNames = "socialGraphView",
+      cacheNames = GRAPH_VIEW_CACHE,
       key = "#viewerId.toString() + '|' + #subjectId.toString()"
   )
   @CircuitBreaker(name = "socialService", fallbackMethod = "fetchGraphViewFallback")
@@ -75,6 +81,40 @@ public class SocialGraphClientImpl implements SocialGraphClient {
     return body;
   }
 
+  /**
+   * Loads the viewer's whole social neighbourhood with one GET /internal/graph/snapshot call.
+   * Empty snapshots are cached like any other; the fallback snapshot never is.
+   */
+  @Override
+  @Cacheable(
+      cacheNames = GRAPH_SNAPSHOT_CACHE,
+      key = "#viewerId.toString()",
+      unless = "T(com.brooks.pins.client.SocialGraphClientImpl).isFallback(#result)"
+  )
+  @CircuitBreaker(name = "socialService", fallbackMethod = "fetchGraphSnapshotFallback")
+  @Retry(name = "socialService")
+  public SocialGraphSnapshot fetchGraphSnapshot(UUID viewerId) {
+    String url = String.format("%s/internal/graph/snapshot?viewerId=%s", socialBaseUrl, viewerId);
+    long startedAt = System.currentTimeMillis();
+    log.info("social-service request start: url={}, viewerId={}", url, viewerId);
+
+    ResponseEntity<SocialGraphSnapshot> response = restTemplate.exchange(
+        url,
+        HttpMethod.GET,
+        new HttpEntity<>(null, createAuthHeaders()),
+        SocialGraphSnapshot.class
+    );
+    log.info(
+        "social-service request end: url={}, status={}, durationMs={}",
+        url,
+        response.getStatusCode().value(),
+        System.currentTimeMillis() - startedAt
+    );
+
+    SocialGraphSnapshot body = response.getBody();
+    return body == null ? SocialGraphSnapshot.EMPTY : body;
+  }
+
   /**
    * Fallback method when social service is unavailable.
    * Returns a restrictive default view to fail-safe.
@@ -86,6 +126,23 @@ public class SocialGraphClientImpl implements SocialGraphClient {
     return new SocialGraphView(false, false, false, false, false);
   }
 
+  /**
+   * Snapshot fallback when social service is unavailable.
+   * An empty snapshot resolves to the deny-all view for every subject.
+   */
+  private SocialGraphSnapshot fetchGraphSnapshotFallback(UUID viewerId, Exception ex) {
+    log.warn("Social service unavailable for viewerId={}. Using empty snapshot. Error: {}",
+        viewerId, ex.getMessage());
+    return FALLBACK_SNAPSHOT;
+  }
+
+  /**
+   * True for the snapshot served by the fallback, checked by identity.
+   */
+  public static boolean isFallback(SocialGraphSnapshot snapshot) {
+    return snapshot == FALLBACK_SNAPSHOT;
+  }
+
   private HttpHeaders createAuthHeaders() {
     HttpHeaders headers = new HttpHeaders();
     String token = SecurityContextUtil.currentToken();
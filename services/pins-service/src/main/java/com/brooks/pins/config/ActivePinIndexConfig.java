@@ -0,0 +1,40 @@
+package com.brooks.pins.config;
+
+import com.brooks.pins.service.ActivePinIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Wires cross-node synchronisation for the in-memory pin index.
+ * Only active when brooks.pins.index.enabled is true.
+ */
+@Configuration
+@ConditionalOnProperty(name = "brooks.pins.index.enabled", havingValue = "true")
+public class ActivePinIndexConfig {
+  @Bean
+  public PinIndexSync activePinIndexSync(
+      ActivePinIndex activePinIndex,
+      StringRedisTemplate redisTemplate,
+      @Value("${brooks.pins.index.changed-channel}") String channel
+  ) {
+    return new PinIndexSync(activePinIndex::refresh, redisTemplate, channel);
+  }
+
+  @Bean
+  public RedisMessageListenerContainer activePinIndexListenerContainer(
+      RedisConnectionFactory connectionFactory,
+      PinIndexSync activePinIndexSync,
+      @Value("${brooks.pins.index.changed-channel}") String channel
+  ) {
+    RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(connectionFactory);
+    container.addMessageListener(activePinIndexSync, new ChannelTopic(channel));
+    return container;
+  }
+}
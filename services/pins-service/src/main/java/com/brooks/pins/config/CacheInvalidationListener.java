@@ -0,0 +1,78 @@
+package com.brooks.pins.config;
+
+import java.nio.charset.StandardCharsets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+
+/**
+ * Applies cache invalidations received over Redis pub/sub.
+ * Handles L1 evictions broadcast by other pins-service nodes and relationship
+ * changes published by social-service ("userA|userB").
+ */
+public class CacheInvalidationListener implements MessageListener {
+  static final String SOCIAL_GRAPH_VIEW_CACHE = "socialGraphView";
+  static final String SOCIAL_GRAPH_SNAPSHOT_CACHE = "socialGraphSnapshot";
+
+  private static final Logger log = LoggerFactory.getLogger(CacheInvalidationListener.class);
+  private final TwoLevelCacheManager cacheManager;
+  private final String invalidationChannel;
+  private final String graphChangedChannel;
+
+  public CacheInvalidationListener(
+      TwoLevelCacheManager cacheManager,
+      String invalidationChannel,
+      String graphChangedChannel
+  ) {
+    this.cacheManager = cacheManager;
+    this.invalidationChannel = invalidationChannel;
+    this.graphChangedChannel = graphChangedChannel;
+  }
+
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+    String body = new String(message.getBody(), StandardCharsets.UTF_8);
+    if (invalidationChannel.equals(channel)) {
+      applyLocalInvalidation(body);
+    } else if (graphChangedChannel.equals(channel)) {
+      applyGraphChange(body);
+    }
+  }
+
+  private void applyLocalInvalidation(String body) {
+    int separator = body.indexOf('\n');
+    if (separator < 0) {
+      return;
+    }
+    TwoLevelCache cache = cacheManager.getExistingCache(body.substring(0, separator));
+    if (cache == null) {
+      return;
+    }
+    String key = body.substring(separator + 1);
+    if (key.isEmpty()) {
+      cache.clearLocal();
+    } else {
+      cache.evictLocal(key);
+    }
+  }
+
+  private void applyGraphChange(String body) {
+    String[] users = body.split("\\|");
+    if (users.length != 2) {
+      log.warn("Ignoring malformed social graph change message: {}", body);
+      return;
+    }
+    // Resolve through getCache so the shared L2 entries are dropped even on nodes
+    // that have not served these caches yet
+    TwoLevelCache views = (TwoLevelCache) cacheManager.getCache(SOCIAL_GRAPH_VIEW_CACHE);
+    // Graph views are directional, so drop both viewer/subject orders
+    views.evictWithoutBroadcast(users[0] + '|' + users[1]);
+    views.evictWithoutBroadcast(users[1] + '|' + users[0]);
+    // Snapshots are keyed by viewer and both users' neighbourhoods changed
+    TwoLevelCache snapshots = (TwoLevelCache) cacheManager.getCache(SOCIAL_GRAPH_SNAPSHOT_CACHE);
+    snapshots.evictWithoutBroadcast(users[0]);
+    snapshots.evictWithoutBroadcast(users[1]);
+  }
+}
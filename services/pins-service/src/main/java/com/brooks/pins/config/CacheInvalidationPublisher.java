@@ -0,0 +1,37 @@
+package com.brooks.pins.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * Broadcasts L1 evictions to the other pins-service nodes over Redis pub/sub.
+ * Message format is "cacheName\nkey" for a single key and "cacheName\n" for a clear.
+ */
+public class CacheInvalidationPublisher {
+  private static final Logger log = LoggerFactory.getLogger(CacheInvalidationPublisher.class);
+  private final StringRedisTemplate redisTemplate;
+  private final String channel;
+
+  public CacheInvalidationPublisher(StringRedisTemplate redisTemplate, String channel) {
+    this.redisTemplate = redisTemplate;
+    this.channel = channel;
+  }
+
+  public void publishEvict(String cacheName, Object key) {
+    publish(cacheName + "\n" + key);
+  }
+
+  public void publishClear(String cacheName) {
+    publish(cacheName + "\n");
+  }
+
+  private void publish(String message) {
+    try {
+      redisTemplate.convertAndSend(channel, message);
+    } catch (Exception ex) {
+      // Other nodes fall back to the L1 TTL when the broadcast is lost
+      log.warn("Failed to publish cache invalidation on channel={}. Error: {}", channel, ex.getMessage());
+    }
+  }
+}
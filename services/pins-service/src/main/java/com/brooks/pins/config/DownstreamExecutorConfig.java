@@ -0,0 +1,38 @@
+package com.brooks.pins.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+
+/**
+ * Executor for concurrent downstream calls (social-service, lists-service) made while
+ * evaluating pin access. Parallelism is bounded; when the queue is full the calling
+ * request thread runs the task itself. The caller's security context is propagated so
+ * clients can forward the bearer token.
+ */
+@Configuration
+public class DownstreamExecutorConfig {
+  @Bean(destroyMethod = "shutdown")
+  public ExecutorService downstreamExecutor(
+      @Value("${brooks.downstream.max-concurrency}") int maxConcurrency,
+      @Value("${brooks.downstream.queue-capacity}") int queueCapacity
+  ) {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        maxConcurrency,
+        maxConcurrency,
+        60,
+        TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(queueCapacity),
+        new CustomizableThreadFactory("downstream-"),
+        new ThreadPoolExecutor.CallerRunsPolicy()
+    );
+    executor.allowCoreThreadTimeOut(true);
+    return new DelegatingSecurityContextExecutorService(executor);
+  }
+}
@@ -0,0 +1,40 @@
+package com.brooks.pins.config;
+
+import com.brooks.pins.service.GeofenceIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Wires cross-node synchronisation for the in-memory geofence index.
+ * Only active when brooks.pins.geofences.enabled is true.
+ */
+@Configuration
+@ConditionalOnProperty(name = "brooks.pins.geofences.enabled", havingValue = "true")
+public class GeofenceIndexConfig {
+  @Bean
+  public PinIndexSync geofenceIndexSync(
+      GeofenceIndex geofenceIndex,
+      StringRedisTemplate redisTemplate,
+      @Value("${brooks.pins.geofences.changed-channel}") String channel
+  ) {
+    return new PinIndexSync(geofenceIndex::refresh, redisTemplate, channel);
+  }
+
+  @Bean
+  public RedisMessageListenerContainer geofenceIndexListenerContainer(
+      RedisConnectionFactory connectionFactory,
+      PinIndexSync geofenceIndexSync,
+      @Value("${brooks.pins.geofences.changed-channel}") String channel
+  ) {
+    RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(connectionFactory);
+    container.addMessageListener(geofenceIndexSync, new ChannelTopic(channel));
+    return container;
+  }
+}
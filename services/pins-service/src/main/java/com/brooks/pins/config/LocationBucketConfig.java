@@ -19,9 +19,7 @@ public class LocationBucketConfig {
    * @return Configured location bucket
    */
   @Bean
-  public LocationBucket locationBucket(
-      @Value("${brooks.proximity.bucket-size-deg}") double bucketSizeDeg
-  ) {
+  public LocationBucket locationBucket(@Value("${brooks.proximity.bucket-size-deg}") double bucketSizeDeg) {
     return new LocationBucket(bucketSizeDeg);
   }
 }
@@ -0,0 +1,55 @@
+package com.brooks.pins.config;
+
+import com.brooks.pins.PinChangedEvent;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Keeps every node's copy of an in-memory pin index (ActivePinIndex, GeofenceIndex)
+ * current. Committed pin changes are applied locally and broadcast over Redis pub/sub
+ * (message body is the pin ID); nodes receiving a broadcast reload the pin from the
+ * database. Each index has its own channel.
+ */
+public class PinIndexSync implements MessageListener {
+  private static final Logger log = LoggerFactory.getLogger(PinIndexSync.class);
+  private final Consumer<UUID> refresh;
+  private final StringRedisTemplate redisTemplate;
+  private final String channel;
+
+  /**
+   * @param refresh Re-reads one pin into the index, e.g. ActivePinIndex::refresh
+   */
+  public PinIndexSync(Consumer<UUID> refresh, StringRedisTemplate redisTemplate, String channel) {
+    this.refresh = refresh;
+    this.redisTemplate = redisTemplate;
+    this.channel = channel;
+  }
+
+  @TransactionalEventListener
+  public void onPinChanged(PinChangedEvent event) {
+    refresh.accept(event.pinId());
+    try {
+      redisTemplate.convertAndSend(channel, event.pinId().toString());
+    } catch (Exception ex) {
+      // Other nodes still drop expired pins on their sweep, but miss this change
+      log.warn("Failed to publish pin change for pinId={}. Error: {}", event.pinId(), ex.getMessage());
+    }
+  }
+
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    String body = new String(message.getBody(), StandardCharsets.UTF_8);
+    try {
+      refresh.accept(UUID.fromString(body));
+    } catch (IllegalArgumentException ex) {
+      log.warn("Ignoring malformed pin change message: {}", body);
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package com.brooks.pins.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import java.time.Duration;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.EnableCaching;
@@ -8,17 +9,36 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+/**
+ * Cache configuration for pins-service.
+ * Every cache is two-level: a short-lived in-heap L1 (Caffeine) in front of the shared Redis L2.
+ */
 @Configuration
 @EnableCaching
 public class RedisCacheConfig {
   @Bean
-  public RedisCacheManager redisCacheManager(
+  public CacheInvalidationPublisher cacheInvalidationPublisher(
+      StringRedisTemplate redisTemplate,
+      @Value("${brooks.cache.invalidation-channel}") String invalidationChannel
+  ) {
+    return new CacheInvalidationPublisher(redisTemplate, invalidationChannel);
+  }
+
+  @Bean
+  public TwoLevelCacheManager cacheManager(
       RedisConnectionFactory connectionFactory,
-      @Value("${brooks.cache.ttl-seconds}") long ttlSeconds
+      CacheInvalidationPublisher invalidationPublisher,
+      MeterRegistry meterRegistry,
+      @Value("${brooks.cache.ttl-seconds}") long ttlSeconds,
+      @Value("${brooks.cache.l1.ttl-seconds}") long l1TtlSeconds,
+      @Value("${brooks.cache.l1.max-size}") long l1MaxSize
   ) {
     RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
         .entryTtl(Duration.ofSeconds(ttlSeconds))
@@ -28,8 +48,36 @@ public class RedisCacheConfig {
         .serializeValuesWith(
             RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()));
 
-    return RedisCacheManager.builder(connectionFactory)
+    RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
         .cacheDefaults(config)
         .build();
+    redisCacheManager.afterPropertiesSet();
+
+    return new TwoLevelCacheManager(
+        redisCacheManager,
+        Duration.ofSeconds(l1TtlSeconds),
+        l1MaxSize,
+        invalidationPublisher,
+        meterRegistry
+    );
+  }
+
+  /**
+   * Subscribes to L1 invalidations from other nodes and to social-service relationship changes.
+   */
+  @Bean
+  public RedisMessageListenerContainer cacheInvalidationListenerContainer(
+      RedisConnectionFactory connectionFactory,
+      TwoLevelCacheManager cacheManager,
+      @Value("${brooks.cache.invalidation-channel}") String invalidationChannel,
+      @Value("${brooks.social.graph-changed-channel}") String graphChangedChannel
+  ) {
+    RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(connectionFactory);
+    CacheInvalidationListener listener =
+        new CacheInvalidationListener(cacheManager, invalidationChannel, graphChangedChannel);
+    container.addMessageListener(listener, new ChannelTopic(invalidationChannel));
+    container.addMessageListener(listener, new ChannelTopic(graphChangedChannel));
+    return container;
   }
 }
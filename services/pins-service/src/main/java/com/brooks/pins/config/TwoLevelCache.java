@@ -0,0 +1,157 @@
+package com.brooks.pins.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.Callable;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+/**
+ * Cache that keeps a short-lived in-heap copy (L1) in front of a shared Redis cache (L2).
+ * L1 hits return the stored object directly, without a network round trip or deserialization.
+ * Writes go to both layers; evictions drop both layers and are broadcast so other nodes
+ * drop their L1 copy too.
+ */
+public class TwoLevelCache implements Cache {
+  private final String name;
+  private final com.github.benmanes.caffeine.cache.Cache<Object, Object> l1;
+  private final Cache l2;
+  private final CacheInvalidationPublisher invalidationPublisher;
+  private final Counter l1Hits;
+  private final Counter l1Misses;
+  private final Counter l2Hits;
+  private final Counter l2Misses;
+
+  public TwoLevelCache(
+      String name,
+      com.github.benmanes.caffeine.cache.Cache<Object, Object> l1,
+      Cache l2,
+      CacheInvalidationPublisher invalidationPublisher,
+      MeterRegistry meterRegistry
+  ) {
+    this.name = name;
+    this.l1 = l1;
+    this.l2 = l2;
+    this.invalidationPublisher = invalidationPublisher;
+    this.l1Hits = counter(meterRegistry, name, "l1", "hit");
+    this.l1Misses = counter(meterRegistry, name, "l1", "miss");
+    this.l2Hits = counter(meterRegistry, name, "l2", "hit");
+    this.l2Misses = counter(meterRegistry, name, "l2", "miss");
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public Object getNativeCache() {
+    return this;
+  }
+
+  @Override
+  public ValueWrapper get(Object key) {
+    Object local = l1.getIfPresent(key);
+    if (local != null) {
+      l1Hits.increment();
+      return new SimpleValueWrapper(local);
+    }
+    l1Misses.increment();
+
+    ValueWrapper remote = l2.get(key);
+    if (remote == null || remote.get() == null) {
+      l2Misses.increment();
+      return null;
+    }
+    l2Hits.increment();
+    l1.put(key, remote.get());
+    return remote;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(Object key, Class<T> type) {
+    ValueWrapper wrapper = get(key);
+    if (wrapper == null) {
+      return null;
+    }
+    Object value = wrapper.get();
+    if (type != null && !type.isInstance(value)) {
+      throw new IllegalStateException(
+          "Cached value is not of required type [" + type.getName() + "]: " + value);
+    }
+    return (T) value;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(Object key, Callable<T> valueLoader) {
+    ValueWrapper wrapper = get(key);
+    if (wrapper != null) {
+      return (T) wrapper.get();
+    }
+    T value;
+    try {
+      value = valueLoader.call();
+    } catch (Exception ex) {
+      throw new ValueRetrievalException(key, valueLoader, ex);
+    }
+    if (value != null) {
+      put(key, value);
+    }
+    return value;
+  }
+
+  @Override
+  public void put(Object key, Object value) {
+    l2.put(key, value);
+    l1.put(key, value);
+  }
+
+  @Override
+  public void evict(Object key) {
+    l2.evict(key);
+    l1.invalidate(key);
+    invalidationPublisher.publishEvict(name, key);
+  }
+
+  @Override
+  public void clear() {
+    l2.clear();
+    l1.invalidateAll();
+    invalidationPublisher.publishClear(name);
+  }
+
+  /**
+   * Drops both layers for a key without broadcasting.
+   * Used when every node has already been told about the change.
+   */
+  public void evictWithoutBroadcast(Object key) {
+    l2.evict(key);
+    l1.invalidate(key);
+  }
+
+  /**
+   * Drops the L1 copy of a key without touching Redis.
+   * Called when another node broadcasts an eviction.
+   */
+  public void evictLocal(Object key) {
+    l1.invalidate(key);
+  }
+
+  /**
+   * Drops every L1 entry without touching Redis.
+   */
+  public void clearLocal() {
+    l1.invalidateAll();
+  }
+
+  private static Counter counter(MeterRegistry registry, String cacheName, String layer, String result) {
+    return Counter.builder("brooks.cache.gets")
+        .description("Two-level cache lookups by layer and result")
+        .tag("cache", cacheName)
+        .tag("layer", layer)
+        .tag("result", result)
+        .register(registry);
+  }
+}
@@ -0,0 +1,67 @@
+package com.brooks.pins.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+/**
+ * CacheManager that layers a size-bounded in-heap cache over another CacheManager (Redis).
+ * Each cache gets its own L1 with the configured TTL and maximum size.
+ */
+public class TwoLevelCacheManager implements CacheManager {
+  private final CacheManager l2CacheManager;
+  private final Duration l1Ttl;
+  private final long l1MaxSize;
+  private final CacheInvalidationPublisher invalidationPublisher;
+  private final MeterRegistry meterRegistry;
+  private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+  public TwoLevelCacheManager(
+      CacheManager l2CacheManager,
+      Duration l1Ttl,
+      long l1MaxSize,
+      CacheInvalidationPublisher invalidationPublisher,
+      MeterRegistry meterRegistry
+  ) {
+    this.l2CacheManager = l2CacheManager;
+    this.l1Ttl = l1Ttl;
+    this.l1MaxSize = l1MaxSize;
+    this.invalidationPublisher = invalidationPublisher;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public Cache getCache(String name) {
+    return caches.computeIfAbsent(name, this::createCache);
+  }
+
+  @Override
+  public Collection<String> getCacheNames() {
+    return Collections.unmodifiableSet(caches.keySet());
+  }
+
+  /**
+   * Returns the cache only if it has already been created on this node.
+   */
+  public TwoLevelCache getExistingCache(String name) {
+    return caches.get(name);
+  }
+
+  private TwoLevelCache createCache(String name) {
+    Cache l2 = l2CacheManager.getCache(name);
+    if (l2 == null) {
+      throw new IllegalStateException("No L2 cache available for " + name);
+    }
+    com.github.benmanes.caffeine.cache.Cache<Object, Object> l1 = Caffeine.newBuilder()
+        .maximumSize(l1MaxSize)
+        .expireAfterWrite(l1Ttl)
+        .build();
+    return new TwoLevelCache(name, l1, l2, invalidationPublisher, meterRegistry);
+  }
+}
@@ -0,0 +1,136 @@
+package com.brooks.pins.domain;
+
+/**
+ * 64-bit Morton (Z-order) cell identifiers for the location bucket grid.
+ * A cell is addressed by its integer grid coordinates x = floor(lng / size) and
+ * y = floor(lat / size), each offset into the unsigned 32-bit range and interleaved
+ * (x on even bits, y on odd bits). Neighbouring cells are computed with bit
+ * arithmetic on the interleaved value, without decoding.
+ *
+ * Cells form a quadtree: shifting a cell ID right by 2 bits gives the cell one level
+ * coarser (twice the edge length), so a cell's descendants at any finer level share its
+ * bits as a prefix and occupy one contiguous ID range.
+ *
+ * The encoding must stay in sync with brooks_cell_id() in V3__add_pin_cell_id.sql.
+ */
+public final class CellId {
+  private static final long X_MASK = 0x5555555555555555L;
+  private static final long Y_MASK = 0xAAAAAAAAAAAAAAAAL;
+  private static final long OFFSET = 1L << 31;
+
+  private CellId() {
+  }
+
+  /**
+   * Encodes the cell containing a location.
+   */
+  public static long of(double lat, double lng, double sizeDegrees) {
+    return encode((long) Math.floor(lng / sizeDegrees), (long) Math.floor(lat / sizeDegrees));
+  }
+
+  /**
+   * Encodes signed grid coordinates.
+   */
+  public static long encode(long x, long y) {
+    return spread(x + OFFSET) | (spread(y + OFFSET) << 1);
+  }
+
+  /**
+   * Returns the signed grid x (longitude) coordinate of a cell.
+   */
+  public static long x(long cellId) {
+    return compact(cellId) - OFFSET;
+  }
+
+  /**
+   * Returns the signed grid y (latitude) coordinate of a cell.
+   */
+  public static long y(long cellId) {
+    return compact(cellId >>> 1) - OFFSET;
+  }
+
+  /**
+   * Returns the ancestor of a cell the given number of levels up.
+   */
+  public static long parent(long cellId, int levels) {
+    return cellId >>> (2 * levels);
+  }
+
+  /**
+   * Converts a cell encoded on its own grid, as returned by of() with a size of
+   * leafSize * 2^levels, to its ancestor form in the leaf hierarchy, i.e. the value
+   * parent(leafCellId, levels) of any leaf cell inside it. The two differ because the
+   * coordinate offset is shifted along with the coordinates.
+   */
+  public static long fromGrid(long gridCellId, int levels) {
+    long offset = OFFSET >> levels;
+    return spread(x(gridCellId) + offset) | (spread(y(gridCellId) + offset) << 1);
+  }
+
+  /**
+   * Returns the first descendant of a cell the given number of levels down.
+   */
+  public static long firstDescendant(long cellId, int levels) {
+    return cellId << (2 * levels);
+  }
+
+  /**
+   * Returns the last descendant of a cell the given number of levels down.
+   */
+  public static long lastDescendant(long cellId, int levels) {
+    return firstDescendant(cellId, levels) | ((1L << (2 * levels)) - 1);
+  }
+
+  /**
+   * Returns the cell and its 8 neighbours (3x3 block).
+   */
+  public static long[] withNeighbors(long cellId) {
+    long[] row = {decY(cellId), cellId, incY(cellId)};
+    long[] cells = new long[9];
+    int i = 0;
+    for (long center : row) {
+      cells[i++] = decX(center);
+      cells[i++] = center;
+      cells[i++] = incX(center);
+    }
+    return cells;
+  }
+
+  static long incX(long cellId) {
+    return (((cellId | Y_MASK) + 1) & X_MASK) | (cellId & Y_MASK);
+  }
+
+  static long decX(long cellId) {
+    return (((cellId & X_MASK) - 1) & X_MASK) | (cellId & Y_MASK);
+  }
+
+  static long incY(long cellId) {
+    return (((cellId | X_MASK) + 1) & Y_MASK) | (cellId & X_MASK);
+  }
+
+  static long decY(long cellId) {
+    return (((cellId & Y_MASK) - 1) & Y_MASK) | (cellId & X_MASK);
+  }
+
+  // Moves the low 32 bits of value to the even bit positions
+  private static long spread(long value) {
+    long v = value & 0xFFFFFFFFL;
+    v = (v | (v << 16)) & 0x0000FFFF0000FFFFL;
+    v = (v | (v << 8)) & 0x00FF00FF00FF00FFL;
+    v = (v | (v << 4)) & 0x0F0F0F0F0F0F0F0FL;
+    v = (v | (v << 2)) & 0x3333333333333333L;
+    v = (v | (v << 1)) & 0x5555555555555555L;
+    return v;
+  }
+
+  // Inverse of spread: gathers the even bit positions into the low 32 bits
+  private static long compact(long value) {
+    long v = value & 0x5555555555555555L;
+    v = (v | (v >>> 1)) & 0x3333333333333333L;
+    v = (v | (v >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+    v = (v | (v >>> 4)) & 0x00FF00FF00FF00FFL;
+    v = (v | (v >>> 8)) & 0x0000FFFF0000FFFFL;
+    v = (v | (v >>> 16)) & 0x00000000FFFFFFFFL;
+    return v;
+  }
+}
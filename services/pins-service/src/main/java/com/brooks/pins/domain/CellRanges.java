@@ -0,0 +1,87 @@
+package com.brooks.pins.domain;
+
+import java.util.Arrays;
+
+/**
+ * Leaf cell ID ranges covering a set of coarser cells.
+ * Each coarse cell maps to one contiguous range of leaf IDs; ranges of cells that are
+ * adjacent in Z-order are merged, so a 3x3 block usually needs fewer than 9 ranges.
+ * Immutable to ensure thread safety.
+ */
+public final class CellRanges {
+  private final Long[] lows;
+  private final Long[] highs;
+
+  private CellRanges(Long[] lows, Long[] highs) {
+    this.lows = lows;
+    this.highs = highs;
+  }
+
+  /**
+   * Builds the leaf ranges covering the given cells.
+   *
+   * @param cellIds Cells at one level
+   * @param level Number of levels between those cells and the leaf cells
+   * @return Merged ranges in ascending order
+   */
+  public static CellRanges of(long[] cellIds, int level) {
+    long span = CellId.lastDescendant(0, level);
+    long[] starts = Arrays.stream(cellIds)
+        .map(cellId -> CellId.firstDescendant(cellId, level))
+        .distinct()
+        .sorted()
+        .toArray();
+    Long[] lows = new Long[starts.length];
+    Long[] highs = new Long[starts.length];
+    int count = 0;
+    for (long low : starts) {
+      long high = low | span;
+      if (count > 0 && highs[count - 1] + 1 == low) {
+        highs[count - 1] = high;
+      } else {
+        lows[count] = low;
+        highs[count] = high;
+        count++;
+      }
+    }
+    return new CellRanges(Arrays.copyOf(lows, count), Arrays.copyOf(highs, count));
+  }
+
+  /**
+   * Checks whether a leaf cell falls in any of the ranges.
+   */
+  public boolean contains(long leafCellId) {
+    for (int i = 0; i < lows.length; i++) {
+      if (leafCellId >= lows[i] && leafCellId <= highs[i]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public int size() {
+    return lows.length;
+  }
+
+  public long low(int index) {
+    return lows[index];
+  }
+
+  public long high(int index) {
+    return highs[index];
+  }
+
+  /**
+   * Range starts, boxed for binding as a SQL bigint[] parameter.
+   */
+  public Long[] lows() {
+    return lows.clone();
+  }
+
+  /**
+   * Range ends (inclusive), boxed for binding as a SQL bigint[] parameter.
+   */
+  public Long[] highs() {
+    return highs.clone();
+  }
+}
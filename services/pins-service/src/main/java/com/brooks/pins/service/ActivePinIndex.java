@@ -0,0 +1,366 @@
+package com.brooks.pins.service;
+
+import com.brooks.pins.GeoUtil;
+import com.brooks.pins.IndexedPin;
+import com.brooks.pins.PinEntity;
+import com.brooks.pins.PinRepository;
+import com.brooks.pins.RevealType;
+import com.brooks.pins.domain.CellRanges;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.index.quadtree.Quadtree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Optional in-heap spatial index of active and upcoming pins (expiresAt in the future).
+ * Serves bounding-box and cell lookups without touching PostGIS. Pins are held as
+ * IndexedPin copies, without their text. Loaded once the application is ready, kept
+ * current through PinChangedEvent (see PinIndexSync), swept for expired pins
+ * periodically and fully reloaded every reload-ms.
+ *
+ * Until the initial load completes, or when brooks.pins.index.enabled is false,
+ * isServing() returns false and callers use the SQL path.
+ */
+@Component
+public class ActivePinIndex {
+  private static final Logger log = LoggerFactory.getLogger(ActivePinIndex.class);
+
+  private final PinRepository pinRepository;
+  private final boolean enabled;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<UUID, IndexedPin> pinsById = new HashMap<>();
+  private final NavigableMap<Long, Set<UUID>> pinIdsByCell = new TreeMap<>();
+  private Quadtree tree = new Quadtree();
+  private volatile boolean serving;
+  // Pins refreshed while load() reads its snapshot; replayed once the snapshot is swapped in
+  private volatile Set<UUID> refreshedDuringLoad;
+
+  public ActivePinIndex(
+      PinRepository pinRepository,
+      @Value("${brooks.pins.index.enabled}") boolean enabled
+  ) {
+    this.pinRepository = pinRepository;
+    this.enabled = enabled;
+  }
+
+  public boolean isServing() {
+    return serving;
+  }
+
+  /**
+   * Loads every unexpired pin into the index.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void load() {
+    if (!enabled) {
+      return;
+    }
+    long startedAt = System.currentTimeMillis();
+    Set<UUID> refreshed = ConcurrentHashMap.newKeySet();
+    refreshedDuringLoad = refreshed;
+    List<PinEntity> pins = pinRepository.findByExpiresAtAfter(Instant.now());
+    lock.writeLock().lock();
+    try {
+      pinsById.clear();
+      pinIdsByCell.clear();
+      tree = new Quadtree();
+      pins.forEach(pin -> insert(IndexedPin.of(pin)));
+      refreshedDuringLoad = null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+    // Changes committed while the snapshot was read may be missing from it or were wiped by the swap
+    refreshed.forEach(this::refresh);
+    serving = true;
+    log.info("Active pin index loaded: pins={}, durationMs={}", pins.size(), System.currentTimeMillis() - startedAt);
+  }
+
+  /**
+   * Re-reads one pin from the database, inserting, replacing or removing it.
+   */
+  public void refresh(UUID pinId) {
+    if (!enabled) {
+      return;
+    }
+    Set<UUID> refreshed = refreshedDuringLoad;
+    if (refreshed != null) {
+      refreshed.add(pinId);
+    }
+    PinEntity pin = pinRepository.findById(pinId)
+        .filter(found -> found.getExpiresAt().isAfter(Instant.now()))
+        .orElse(null);
+    lock.writeLock().lock();
+    try {
+      remove(pinId);
+      if (pin != null) {
+        insert(IndexedPin.of(pin));
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Periodically reloads the whole index, so a node that missed a pin change broadcast
+   * converges within reload-ms.
+   */
+  @Scheduled(initialDelayString = "${brooks.pins.index.reload-ms}", fixedDelayString = "${brooks.pins.index.reload-ms}")
+  public void reconcile() {
+    if (serving) {
+      load();
+    }
+  }
+
+  /**
+   * Drops pins whose expiry has passed.
+   */
+  @Scheduled(fixedDelayString = "${brooks.pins.index.expiry-sweep-ms}")
+  public void evictExpired() {
+    if (!serving) {
+      return;
+    }
+    Instant now = Instant.now();
+    lock.writeLock().lock();
+    try {
+      List<UUID> expired = new ArrayList<>();
+      for (IndexedPin pin : pinsById.values()) {
+        if (!pin.getExpiresAt().isAfter(now)) {
+          expired.add(pin.getId());
+        }
+      }
+      expired.forEach(this::remove);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Same result set as PinRepository.findInBoundingBox(..., afterId, PageRequest.of(0, maxRows)),
+   * further narrowed by a filter.
+   */
+  public List<IndexedPin> findInBoundingBox(
+      double[] bbox,
+      Instant now,
+      Predicate<? super IndexedPin> filter,
+      UUID afterId,
+      int maxRows
+  ) {
+    Envelope envelope = new Envelope(bbox[0], bbox[2], bbox[1], bbox[3]);
+    List<IndexedPin> results = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      for (Object item : tree.query(envelope)) {
+        IndexedPin pin = (IndexedPin) item;
+        if (envelope.contains(pin.getLng(), pin.getLat())
+            && pin.getExpiresAt().isAfter(now)
+            && !pin.getAvailableFrom().isAfter(now)
+            && MapPage.ID_ORDER.compare(pin.getId(), afterId) > 0
+            && filter.test(pin)) {
+          results.add(pin);
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    results.sort(Comparator.comparing(IndexedPin::getId, MapPage.ID_ORDER));
+    return results.size() > maxRows ? new ArrayList<>(results.subList(0, maxRows)) : results;
+  }
+
+  /**
+   * Same result set as PinRepository.findRevealableNear, with distances measured by
+   * GeoUtil.distanceMeters. Mystery polygons are indexed by their envelope, so they are
+   * found wherever they extend to.
+   */
+  public List<IndexedPin> findRevealableNear(UUID viewerId, double lat, double lng, double maxRadiusM, Instant now) {
+    double[] bbox = GeoUtil.boundingBox(lat, lng, maxRadiusM);
+    Envelope envelope = new Envelope(bbox[0], bbox[2], bbox[1], bbox[3]);
+    Point viewer = null;
+    List<IndexedPin> results = new ArrayList<>();
+    List<IndexedPin> radiusPins = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      for (Object item : tree.query(envelope)) {
+        IndexedPin pin = (IndexedPin) item;
+        if (pin.getRevealType() != RevealType.REACH_TO_REVEAL
+            || viewerId.equals(pin.getOwnerId())
+            || !isActive(pin, now)) {
+          continue;
+        }
+        PreparedGeometry zone = pin.getMysteryZone();
+        if (zone != null) {
+          if (viewer == null) {
+            viewer = zone.getGeometry().getFactory().createPoint(new Coordinate(lng, lat));
+          }
+          if (zone.contains(viewer)) {
+            results.add(pin);
+          }
+        } else if (pin.getRevealRadiusM() != null || pin.getNotifyRadiusM() != null) {
+          radiusPins.add(pin);
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    // Radius pins go through the batched distance kernel
+    int size = radiusPins.size();
+    double[] lats = new double[size];
+    double[] lngs = new double[size];
+    double[] radii = new double[size];
+    for (int i = 0; i < size; i++) {
+      IndexedPin pin = radiusPins.get(i);
+      lats[i] = pin.getLat();
+      lngs[i] = pin.getLng();
+      int radius = pin.getRevealRadiusM() != null ? pin.getRevealRadiusM() : pin.getNotifyRadiusM();
+      radii[i] = Math.min(radius, maxRadiusM);
+    }
+    boolean[] within = new boolean[size];
+    GeoUtil.withinRadii(lat, lng, lats, lngs, radii, within);
+    for (int i = 0; i < size; i++) {
+      if (within[i]) {
+        results.add(radiusPins.get(i));
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Same result set as PinRepository.findRevealableInBoundingBox.
+   *
+   * @param bbox Bounding box coordinates [minLng, minLat, maxLng, maxLat]
+   */
+  public List<IndexedPin> findRevealableInBoundingBox(UUID viewerId, double[] bbox, Instant now) {
+    Envelope envelope = new Envelope(bbox[0], bbox[2], bbox[1], bbox[3]);
+    List<IndexedPin> results = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      for (Object item : tree.query(envelope)) {
+        IndexedPin pin = (IndexedPin) item;
+        if (pin.getRevealType() == RevealType.REACH_TO_REVEAL
+            && !viewerId.equals(pin.getOwnerId())
+            && pin.getExpiresAt().isAfter(now)
+            && envelope.intersects(treeEnvelope(pin))) {
+          results.add(pin);
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    return results;
+  }
+
+  /**
+   * Same result set as PinRepository.findActiveInCellRanges(lows, highs, now, limit).
+   */
+  public List<IndexedPin> findInCellRanges(CellRanges ranges, Instant now, int limit) {
+    List<IndexedPin> results = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      for (int i = 0; i < ranges.size(); i++) {
+        for (Set<UUID> pinIds : pinIdsByCell.subMap(ranges.low(i), true, ranges.high(i), true).values()) {
+          for (UUID pinId : pinIds) {
+            IndexedPin pin = pinsById.get(pinId);
+            if (isActive(pin, now)) {
+              results.add(pin);
+            }
+          }
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    results.sort(Comparator.comparing(IndexedPin::getAvailableFrom).reversed());
+    return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+  }
+
+  /**
+   * Same result as PinRepository.countActiveInCellRanges(lows, highs, now, cap).
+   */
+  public long countInCellRanges(CellRanges ranges, Instant now, int cap) {
+    long count = 0;
+    lock.readLock().lock();
+    try {
+      for (int i = 0; i < ranges.size(); i++) {
+        for (Set<UUID> pinIds : pinIdsByCell.subMap(ranges.low(i), true, ranges.high(i), true).values()) {
+          for (UUID pinId : pinIds) {
+            if (isActive(pinsById.get(pinId), now) && ++count >= cap) {
+              return count;
+            }
+          }
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    return count;
+  }
+
+  int size() {
+    lock.readLock().lock();
+    try {
+      return pinsById.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private static boolean isActive(IndexedPin pin, Instant now) {
+    return pin.getExpiresAt().isAfter(now) && pin.getAvailableFrom().isBefore(now);
+  }
+
+  private void insert(IndexedPin pin) {
+    pinsById.put(pin.getId(), pin);
+    pinIdsByCell.computeIfAbsent(pin.getCellId(), cellId -> new HashSet<>()).add(pin.getId());
+    tree.insert(treeEnvelope(pin), pin);
+  }
+
+  private void remove(UUID pinId) {
+    IndexedPin pin = pinsById.remove(pinId);
+    if (pin == null) {
+      return;
+    }
+    Set<UUID> cellPins = pinIdsByCell.get(pin.getCellId());
+    if (cellPins != null) {
+      cellPins.remove(pinId);
+      if (cellPins.isEmpty()) {
+        pinIdsByCell.remove(pin.getCellId());
+      }
+    }
+    tree.remove(treeEnvelope(pin), pin);
+  }
+
+  /**
+   * Tree key of a pin: its point, widened to its mystery polygon when it has one.
+   * Bounding-box lookups still test the point itself.
+   */
+  private static Envelope treeEnvelope(IndexedPin pin) {
+    Envelope envelope = new Envelope(pin.getLng(), pin.getLng(), pin.getLat(), pin.getLat());
+    if (pin.getMysteryZone() != null) {
+      envelope.expandToInclude(pin.getMysteryZone().getGeometry().getEnvelopeInternal());
+    }
+    return envelope;
+  }
+}
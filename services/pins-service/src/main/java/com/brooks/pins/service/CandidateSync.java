@@ -0,0 +1,114 @@
+package com.brooks.pins.service;
+
+import com.brooks.pins.PinCandidate;
+import com.brooks.pins.PinCandidatesResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Delta sync for /pins/candidates. Keeps the candidate IDs last sent to each viewer for a
+ * bucket in Redis, tagged with the sync token they were sent with, so the next refresh
+ * can return only the candidates added and the IDs removed since then.
+ *
+ * Sync tokens are CellVersions digests of the bucket's version cells and the viewer's
+ * social graph. A client whose token is still current needs nothing, and one whose token
+ * no longer matches the stored snapshot (expired, or replaced by a refresh from another
+ * device) gets a full response.
+ */
+@Component
+public class CandidateSync {
+  private static final Logger log = LoggerFactory.getLogger(CandidateSync.class);
+
+  private final StringRedisTemplate redisTemplate;
+  private final String keyPrefix;
+  private final Duration ttl;
+
+  public CandidateSync(
+      StringRedisTemplate redisTemplate,
+      @Value("${brooks.pins.candidate-sync.key-prefix}") String keyPrefix,
+      @Value("${brooks.pins.candidate-sync.ttl-seconds}") long ttlSeconds
+  ) {
+    this.redisTemplate = redisTemplate;
+    this.keyPrefix = keyPrefix;
+    this.ttl = Duration.ofSeconds(ttlSeconds);
+  }
+
+  /**
+   * Response for a client whose sync token is still current.
+   */
+  public static PinCandidatesResponse unchanged(String syncToken) {
+    return new PinCandidatesResponse(List.of(), List.of(), true, syncToken, false);
+  }
+
+  /**
+   * Records the current candidates under a new sync token and returns them as a delta
+   * against the snapshot the client's token refers to, or in full when there is none.
+   *
+   * @param since Sync token the client last received, or null
+   * @param full Full response for the bucket
+   */
+  public PinCandidatesResponse respond(
+      UUID viewerId,
+      long cellId,
+      String syncToken,
+      String since,
+      PinCandidatesResponse full
+  ) {
+    List<PinCandidate> candidates = full.candidates();
+    String key = keyPrefix + viewerId + ":" + cellId;
+    Set<String> previous = since == null ? null : load(key, since);
+    List<String> ids = candidates.stream().map(PinCandidate::id).toList();
+    save(key, syncToken, ids);
+    if (previous == null) {
+      return new PinCandidatesResponse(candidates, List.of(), false, syncToken, full.truncated());
+    }
+
+    Set<String> current = new HashSet<>(ids);
+    List<PinCandidate> added = candidates.stream()
+        .filter(candidate -> !previous.contains(candidate.id()))
+        .toList();
+    List<String> removed = previous.stream()
+        .filter(id -> !current.contains(id))
+        .toList();
+    return new PinCandidatesResponse(added, removed, true, syncToken, full.truncated());
+  }
+
+  // Snapshot format: "<sync token>\n<id>,<id>,..."
+  private Set<String> load(String key, String since) {
+    String snapshot;
+    try {
+      snapshot = redisTemplate.opsForValue().get(key);
+    } catch (Exception ex) {
+      log.warn("Failed to read candidate snapshot. Error: {}", ex.getMessage());
+      return null;
+    }
+    if (snapshot == null) {
+      return null;
+    }
+    int separator = snapshot.indexOf('\n');
+    if (separator < 0 || !snapshot.substring(0, separator).equals(since)) {
+      return null;
+    }
+    String ids = snapshot.substring(separator + 1);
+    return ids.isEmpty() ? new LinkedHashSet<>() : new LinkedHashSet<>(Arrays.asList(ids.split(",")));
+  }
+
+  private void save(String key, String syncToken, List<String> ids) {
+    try {
+      redisTemplate.opsForValue().set(key, syncToken + "\n" + String.join(",", ids), ttl);
+    } catch (Exception ex) {
+      // The next refresh with this token gets a full response
+      log.warn("Failed to store candidate snapshot. Error: {}", ex.getMessage());
+    }
+  }
+}
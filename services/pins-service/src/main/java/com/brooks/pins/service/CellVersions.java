@@ -0,0 +1,202 @@
+package com.brooks.pins.service;
+
+import com.brooks.pins.LocationBucket;
+import com.brooks.pins.LocationRequest;
+import com.brooks.pins.PinChangedEvent;
+import com.brooks.pins.PinUnlockedEvent;
+import com.brooks.pins.domain.CellId;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Monotonic per-cell version counters in Redis, bumped after every committed pin change.
+ * Cells are the coarsest proximity cells (brooks.proximity.cells.max-level above the leaf
+ * grid), so the 3x3 neighbourhood of a bucket at that level covers every candidate search.
+ *
+ * A second set of counters, one per viewer, is bumped when the viewer unlocks a pin: that
+ * changes what the viewer sees but nobody else's view, so it must not invalidate the cell.
+ *
+ * Versions let map and candidate responses carry an ETag that is computed without touching
+ * the database. Expiry, availability, social graph and list membership changes do not bump
+ * a cell, so ETags also roll over every etag-window-seconds.
+ */
+@Component
+public class CellVersions {
+  private static final Logger log = LoggerFactory.getLogger(CellVersions.class);
+
+  private final StringRedisTemplate redisTemplate;
+  private final LocationBucket locationBucket;
+  private final int level;
+  private final String keyPrefix;
+  private final String viewerKeyPrefix;
+  private final int maxCells;
+  private final long etagWindowSeconds;
+
+  public CellVersions(
+      StringRedisTemplate redisTemplate,
+      LocationBucket locationBucket,
+      @Value("${brooks.proximity.cells.max-level}") int level,
+      @Value("${brooks.pins.versions.key-prefix}") String keyPrefix,
+      @Value("${brooks.pins.versions.viewer-key-prefix}") String viewerKeyPrefix,
+      @Value("${brooks.pins.versions.max-cells}") int maxCells,
+      @Value("${brooks.pins.versions.etag-window-seconds}") long etagWindowSeconds
+  ) {
+    this.redisTemplate = redisTemplate;
+    this.locationBucket = locationBucket;
+    this.level = level;
+    this.keyPrefix = keyPrefix;
+    this.viewerKeyPrefix = viewerKeyPrefix;
+    this.maxCells = maxCells;
+    this.etagWindowSeconds = etagWindowSeconds;
+  }
+
+  // Runs before PublicTileCache evicts, so a tile loaded before the change sees the bump
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  @TransactionalEventListener
+  public void onPinChanged(PinChangedEvent event) {
+    LocationRequest location = event.location();
+    if (location != null) {
+      bump(locationBucket.leafCellId(location.lat(), location.lng()));
+    }
+  }
+
+  @TransactionalEventListener
+  public void onPinUnlocked(PinUnlockedEvent event) {
+    String key = viewerKeyPrefix + event.viewerId();
+    try {
+      redisTemplate.opsForValue().increment(key);
+      // Once the ETag window has rolled over, a reset counter cannot reproduce an old tag
+      redisTemplate.expire(key, Duration.ofSeconds(2 * etagWindowSeconds));
+    } catch (Exception ex) {
+      log.warn("Failed to bump unlock version for viewerId={}. Error: {}", event.viewerId(), ex.getMessage());
+    }
+  }
+
+  /**
+   * Versions of the version cells overlapping a bounding box followed by the viewer's
+   * unlock counter, or null when the box overlaps more than max-cells cells or Redis is
+   * unavailable.
+   *
+   * @param bbox Bounding box coordinates [minLng, minLat, maxLng, maxLat]
+   */
+  public long[] inBoundingBox(double[] bbox, UUID viewerId) {
+    long southWest = versionCell(locationBucket.leafCellId(bbox[1], bbox[0]));
+    long northEast = versionCell(locationBucket.leafCellId(bbox[3], bbox[2]));
+    long width = CellId.x(northEast) - CellId.x(southWest) + 1;
+    long height = CellId.y(northEast) - CellId.y(southWest) + 1;
+    if (width < 1 || height < 1 || width * height > maxCells) {
+      return null;
+    }
+    List<Long> cells = new ArrayList<>();
+    for (long y = CellId.y(southWest); y <= CellId.y(northEast); y++) {
+      for (long x = CellId.x(southWest); x <= CellId.x(northEast); x++) {
+        cells.add(CellId.encode(x, y));
+      }
+    }
+    return read(cells, viewerId);
+  }
+
+  /**
+   * Versions of the version cells overlapping a bounding box, without a viewer counter,
+   * or null when the box overlaps more than max-cells cells or Redis is unavailable.
+   */
+  public long[] inBoundingBox(double[] bbox) {
+    return inBoundingBox(bbox, null);
+  }
+
+  /**
+   * Versions of the 3x3 version cells around a bucket followed by the viewer's unlock
+   * counter, or null when Redis is unavailable.
+   *
+   * @param bucketCellId Bucket cell ID as returned by LocationBucket.parseCellId
+   */
+  public long[] aroundBucket(long bucketCellId, UUID viewerId) {
+    long cell = CellId.parent(locationBucket.bucketAncestor(bucketCellId), level - LocationBucket.LEAF_LEVELS);
+    List<Long> cells = new ArrayList<>();
+    for (long neighbour : CellId.withNeighbors(cell)) {
+      cells.add(neighbour);
+    }
+    return read(cells, viewerId);
+  }
+
+  /**
+   * Builds a weak ETag from cell versions and whatever else the response depends on.
+   * Includes the current ETag window, so equal inputs produce a new tag every window.
+   */
+  public String etag(long[] versions, Instant now, Object... parts) {
+    return "W/\"" + digest(versions, now, parts) + "\"";
+  }
+
+  /**
+   * The opaque part of etag(): 32 hex characters identifying the versions, parts and window.
+   */
+  public String digest(long[] versions, Instant now, Object... parts) {
+    StringBuilder input = new StringBuilder();
+    input.append(now.getEpochSecond() / etagWindowSeconds);
+    for (long version : versions) {
+      input.append(',').append(version);
+    }
+    for (Object part : parts) {
+      input.append('|').append(part);
+    }
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(input.toString().getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest, 0, 16);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void bump(long leafCellId) {
+    long cell = versionCell(leafCellId);
+    try {
+      redisTemplate.opsForValue().increment(keyPrefix + cell);
+    } catch (Exception ex) {
+      // Stale versions only last until the ETag window rolls over
+      log.warn("Failed to bump cell version for cell {}. Error: {}", cell, ex.getMessage());
+    }
+  }
+
+  private long[] read(List<Long> cells, UUID viewerId) {
+    List<String> keys = new ArrayList<>(cells.size() + 1);
+    cells.forEach(cell -> keys.add(keyPrefix + cell));
+    if (viewerId != null) {
+      keys.add(viewerKeyPrefix + viewerId);
+    }
+    List<String> values;
+    try {
+      values = redisTemplate.opsForValue().multiGet(keys);
+    } catch (Exception ex) {
+      log.warn("Failed to read cell versions. Error: {}", ex.getMessage());
+      return null;
+    }
+    if (values == null) {
+      return null;
+    }
+    long[] versions = new long[keys.size()];
+    for (int i = 0; i < versions.length; i++) {
+      String value = values.get(i);
+      versions[i] = value == null ? 0 : Long.parseLong(value);
+    }
+    return versions;
+  }
+
+  private long versionCell(long leafCellId) {
+    return CellId.parent(leafCellId, level);
+  }
+}
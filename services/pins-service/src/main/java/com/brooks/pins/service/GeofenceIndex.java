@@ -0,0 +1,291 @@
+package com.brooks.pins.service;
+
+import com.brooks.pins.GeoUtil;
+import com.brooks.pins.IndexedPin;
+import com.brooks.pins.PinEntity;
+import com.brooks.pins.PinRepository;
+import com.brooks.pins.RevealType;
+import com.brooks.pins.domain.CellId;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Optional in-heap index of the reveal zones of unexpired REACH_TO_REVEAL pins: circles
+ * of the reveal radius (falling back to the notify radius, capped at max-radius-m) and
+ * prepared mystery polygons. Each zone is registered in every grid cell of cell-size-deg
+ * its bounding box touches, so "which zones contain this point" reads one cell and tests
+ * the few zones in it. Zones spanning more than max-cells-per-zone cells are kept in a
+ * short list tested by envelope instead. Zones hold IndexedPin copies, without pin text.
+ *
+ * Loaded once the application is ready, kept current through PinChangedEvent (see
+ * PinIndexSync), swept for expired pins periodically and fully reloaded every
+ * reload-ms. Until the initial load completes, or when brooks.pins.geofences.enabled is
+ * false, isServing() returns false.
+ */
+@Component
+public class GeofenceIndex {
+  private static final Logger log = LoggerFactory.getLogger(GeofenceIndex.class);
+
+  private final PinRepository pinRepository;
+  private final boolean enabled;
+  private final double cellSizeDeg;
+  private final int maxCellsPerZone;
+  private final int maxRadiusM;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<UUID, Zone> zonesById = new HashMap<>();
+  private final Map<Long, List<Zone>> zonesByCell = new HashMap<>();
+  private final List<Zone> oversized = new ArrayList<>();
+  private volatile boolean serving;
+  // Pins refreshed while load() reads its snapshot; replayed once the snapshot is swapped in
+  private volatile Set<UUID> refreshedDuringLoad;
+
+  public GeofenceIndex(
+      PinRepository pinRepository,
+      @Value("${brooks.pins.geofences.enabled}") boolean enabled,
+      @Value("${brooks.pins.geofences.cell-size-deg}") double cellSizeDeg,
+      @Value("${brooks.pins.geofences.max-cells-per-zone}") int maxCellsPerZone,
+      @Value("${brooks.proximity.reveal.max-radius-m}") int maxRadiusM
+  ) {
+    this.pinRepository = pinRepository;
+    this.enabled = enabled;
+    this.cellSizeDeg = cellSizeDeg;
+    this.maxCellsPerZone = maxCellsPerZone;
+    this.maxRadiusM = maxRadiusM;
+  }
+
+  public boolean isServing() {
+    return serving;
+  }
+
+  /**
+   * Loads the zones of every unexpired REACH_TO_REVEAL pin.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void load() {
+    if (!enabled) {
+      return;
+    }
+    long startedAt = System.currentTimeMillis();
+    Set<UUID> refreshed = ConcurrentHashMap.newKeySet();
+    refreshedDuringLoad = refreshed;
+    List<PinEntity> pins = pinRepository.findByRevealTypeAndExpiresAtAfter(RevealType.REACH_TO_REVEAL, Instant.now());
+    lock.writeLock().lock();
+    try {
+      zonesById.clear();
+      zonesByCell.clear();
+      oversized.clear();
+      pins.forEach(pin -> insert(IndexedPin.of(pin)));
+      refreshedDuringLoad = null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+    // Changes committed while the snapshot was read may be missing from it or were wiped by the swap
+    refreshed.forEach(this::refresh);
+    serving = true;
+    log.info("Geofence index loaded: zones={}, cells={}, oversized={}, durationMs={}",
+        zonesById.size(), zonesByCell.size(), oversized.size(), System.currentTimeMillis() - startedAt);
+  }
+
+  /**
+   * Re-reads one pin from the database, inserting, replacing or removing its zone.
+   */
+  public void refresh(UUID pinId) {
+    if (!enabled) {
+      return;
+    }
+    Set<UUID> refreshed = refreshedDuringLoad;
+    if (refreshed != null) {
+      refreshed.add(pinId);
+    }
+    PinEntity pin = pinRepository.findById(pinId)
+        .filter(found -> found.getRevealType() == RevealType.REACH_TO_REVEAL)
+        .filter(found -> found.getExpiresAt().isAfter(Instant.now()))
+        .orElse(null);
+    lock.writeLock().lock();
+    try {
+      remove(pinId);
+      if (pin != null) {
+        insert(IndexedPin.of(pin));
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Periodically reloads the whole index, so a node that missed a pin change broadcast
+   * converges within reload-ms.
+   */
+  @Scheduled(initialDelayString = "${brooks.pins.geofences.reload-ms}", fixedDelayString = "${brooks.pins.geofences.reload-ms}")
+  public void reconcile() {
+    if (serving) {
+      load();
+    }
+  }
+
+  /**
+   * Drops zones whose pin has expired.
+   */
+  @Scheduled(fixedDelayString = "${brooks.pins.geofences.expiry-sweep-ms}")
+  public void evictExpired() {
+    if (!serving) {
+      return;
+    }
+    Instant now = Instant.now();
+    lock.writeLock().lock();
+    try {
+      List<UUID> expired = new ArrayList<>();
+      for (Zone zone : zonesById.values()) {
+        if (!zone.pin().getExpiresAt().isAfter(now)) {
+          expired.add(zone.pin().getId());
+        }
+      }
+      expired.forEach(this::remove);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Same result set as PinRepository.findRevealableNear(viewerId, lat, lng, max-radius-m, now):
+   * active pins of other owners whose zone contains the point.
+   */
+  public List<IndexedPin> findContaining(UUID viewerId, double lat, double lng, Instant now) {
+    List<IndexedPin> results = new ArrayList<>();
+    Point point = null;
+    lock.readLock().lock();
+    try {
+      List<Zone> candidates = zonesByCell.getOrDefault(CellId.of(lat, lng, cellSizeDeg), List.of());
+      for (int i = 0; i < candidates.size() + oversized.size(); i++) {
+        Zone zone = i < candidates.size() ? candidates.get(i) : oversized.get(i - candidates.size());
+        IndexedPin pin = zone.pin();
+        if (viewerId.equals(pin.getOwnerId()) || !isActive(pin, now) || !zone.envelope().contains(lng, lat)) {
+          continue;
+        }
+        PreparedGeometry polygon = pin.getMysteryZone();
+        if (polygon != null) {
+          if (point == null) {
+            point = polygon.getGeometry().getFactory().createPoint(new Coordinate(lng, lat));
+          }
+          if (polygon.contains(point)) {
+            results.add(pin);
+          }
+        } else if (GeoUtil.distanceMeters(lat, lng, pin.getLat(), pin.getLng()) <= zone.radiusM()) {
+          results.add(pin);
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    return results;
+  }
+
+  int size() {
+    lock.readLock().lock();
+    try {
+      return zonesById.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private static boolean isActive(IndexedPin pin, Instant now) {
+    return pin.getExpiresAt().isAfter(now) && pin.getAvailableFrom().isBefore(now);
+  }
+
+  private void insert(IndexedPin pin) {
+    Zone zone = zoneOf(pin);
+    if (zone == null) {
+      return;
+    }
+    zonesById.put(pin.getId(), zone);
+    if (zone.cells() == null) {
+      oversized.add(zone);
+      return;
+    }
+    for (long cell : zone.cells()) {
+      zonesByCell.computeIfAbsent(cell, key -> new ArrayList<>(2)).add(zone);
+    }
+  }
+
+  private void remove(UUID pinId) {
+    Zone zone = zonesById.remove(pinId);
+    if (zone == null) {
+      return;
+    }
+    if (zone.cells() == null) {
+      oversized.remove(zone);
+      return;
+    }
+    for (long cell : zone.cells()) {
+      List<Zone> cellZones = zonesByCell.get(cell);
+      if (cellZones != null) {
+        cellZones.remove(zone);
+        if (cellZones.isEmpty()) {
+          zonesByCell.remove(cell);
+        }
+      }
+    }
+  }
+
+  /**
+   * Builds a pin's zone, or returns null for REACH_TO_REVEAL pins without a radius or
+   * polygon, which can never be reached.
+   */
+  private Zone zoneOf(IndexedPin pin) {
+    Envelope envelope;
+    double radiusM = 0;
+    if (pin.getMysteryZone() != null) {
+      envelope = pin.getMysteryZone().getGeometry().getEnvelopeInternal();
+    } else if (pin.getRevealRadiusM() != null || pin.getNotifyRadiusM() != null) {
+      radiusM = Math.min(pin.getRevealRadiusM() != null ? pin.getRevealRadiusM() : pin.getNotifyRadiusM(), maxRadiusM);
+      double[] bbox = GeoUtil.boundingBox(pin.getLat(), pin.getLng(), radiusM);
+      envelope = new Envelope(bbox[0], bbox[2], bbox[1], bbox[3]);
+    } else {
+      return null;
+    }
+
+    long southWest = CellId.of(envelope.getMinY(), envelope.getMinX(), cellSizeDeg);
+    long northEast = CellId.of(envelope.getMaxY(), envelope.getMaxX(), cellSizeDeg);
+    long width = CellId.x(northEast) - CellId.x(southWest) + 1;
+    long height = CellId.y(northEast) - CellId.y(southWest) + 1;
+    if (width * height > maxCellsPerZone) {
+      return new Zone(pin, radiusM, envelope, null);
+    }
+    long[] cells = new long[(int) (width * height)];
+    int i = 0;
+    for (long y = CellId.y(southWest); y <= CellId.y(northEast); y++) {
+      for (long x = CellId.x(southWest); x <= CellId.x(northEast); x++) {
+        cells[i++] = CellId.encode(x, y);
+      }
+    }
+    return new Zone(pin, radiusM, envelope, cells);
+  }
+
+  /**
+   * One pin's reveal zone: the pin's prepared mystery zone when it has one, otherwise a
+   * circle of radiusM.
+   *
+   * @param cells Grid cells the envelope touches, or null when the zone is oversized
+   */
+  private record Zone(IndexedPin pin, double radiusM, Envelope envelope, long[] cells) {}
+}
@@ -0,0 +1,336 @@
+package com.brooks.pins.service;
+
+import com.brooks.pins.GeoUtil;
+import com.brooks.pins.IndexedPin;
+import com.brooks.pins.LocationRequest;
+import com.brooks.pins.PinChangedEvent;
+import com.brooks.pins.PinNotificationStateEntity;
+import com.brooks.pins.PinNotificationStateRepository;
+import com.brooks.pins.PinServiceRefactored;
+import com.brooks.pins.ProximityCheckResponse;
+import com.brooks.security.SecurityContextUtil;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Long-lived location sessions: the client opens a server-sent event stream, then posts
+ * location updates to it, and pins it reaches are pushed back as "reveal" events.
+ *
+ * Each session holds the REACH_TO_REVEAL pins around its last load point that the viewer
+ * may access and has not unlocked, so an update costs a few in-memory distance and
+ * polygon checks. Sessions reload when the viewer moves more than load-radius-m from the
+ * load point, every refresh-ms (access, social graph and pins created on other nodes),
+ * and when a pin near them is created or deleted on this node.
+ *
+ * Sessions live in this node's memory, so updates must reach the node holding the stream
+ * (sticky routing); elsewhere they get 404 and the client reopens the stream. A node holds
+ * at most max-sessions streams, and a viewer opening more than max-sessions-per-viewer
+ * closes their oldest one.
+ */
+@Service
+public class LocationSessionService {
+  private static final Logger log = LoggerFactory.getLogger(LocationSessionService.class);
+
+  private final ProximityService proximityService;
+  private final PinAccessService pinAccessService;
+  private final PinNotificationStateRepository pinNotificationStateRepository;
+  private final PinServiceRefactored pinService;
+  private final MysteryZoneCache mysteryZones;
+  private final double loadRadiusM;
+  private final long refreshMs;
+  private final long timeoutMs;
+  private final int maxSessions;
+  private final int maxSessionsPerViewer;
+  private final Map<UUID, Session> sessions = new ConcurrentHashMap<>();
+  // Session IDs per viewer, oldest first; only touched inside compute calls
+  private final Map<UUID, Deque<UUID>> sessionsByViewer = new ConcurrentHashMap<>();
+  private final AtomicInteger openSessions = new AtomicInteger();
+
+  public LocationSessionService(
+      ProximityService proximityService,
+      PinAccessService pinAccessService,
+      PinNotificationStateRepository pinNotificationStateRepository,
+      PinServiceRefactored pinService,
+      MysteryZoneCache mysteryZones,
+      @Value("${brooks.pins.location-sessions.load-radius-m}") double loadRadiusM,
+      @Value("${brooks.pins.location-sessions.refresh-ms}") long refreshMs,
+      @Value("${brooks.pins.location-sessions.timeout-ms}") long timeoutMs,
+      @Value("${brooks.pins.location-sessions.max-sessions}") int maxSessions,
+      @Value("${brooks.pins.location-sessions.max-sessions-per-viewer}") int maxSessionsPerViewer
+  ) {
+    this.proximityService = proximityService;
+    this.pinAccessService = pinAccessService;
+    this.pinNotificationStateRepository = pinNotificationStateRepository;
+    this.pinService = pinService;
+    this.mysteryZones = mysteryZones;
+    this.loadRadiusM = loadRadiusM;
+    this.refreshMs = refreshMs;
+    this.timeoutMs = timeoutMs;
+    this.maxSessions = maxSessions;
+    this.maxSessionsPerViewer = maxSessionsPerViewer;
+  }
+
+  /**
+   * Opens a session for the viewer. The stream starts with a "session" event carrying
+   * the session ID that location updates are posted to.
+   */
+  public SseEmitter open() {
+    return open(requireActor());
+  }
+
+  SseEmitter open(UUID viewerId) {
+    // Reserve the node slot first so concurrent opens cannot overshoot max-sessions
+    if (openSessions.incrementAndGet() > maxSessions) {
+      openSessions.decrementAndGet();
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many location sessions");
+    }
+    UUID sessionId = UUID.randomUUID();
+    SseEmitter emitter = new SseEmitter(timeoutMs);
+    sessions.put(sessionId, new Session(viewerId, emitter));
+    emitter.onCompletion(() -> close(sessionId));
+    emitter.onTimeout(() -> close(sessionId));
+    emitter.onError(error -> close(sessionId));
+
+    List<UUID> evicted = new ArrayList<>();
+    sessionsByViewer.compute(viewerId, (id, open) -> {
+      Deque<UUID> sessionIds = open != null ? open : new ArrayDeque<>();
+      sessionIds.addLast(sessionId);
+      while (sessionIds.size() > maxSessionsPerViewer) {
+        evicted.add(sessionIds.pollFirst());
+      }
+      return sessionIds;
+    });
+    for (UUID oldest : evicted) {
+      Session session = close(oldest);
+      if (session != null) {
+        session.emitter.complete();
+      }
+    }
+
+    send(sessionId, emitter, SseEmitter.event().name("session").data(sessionId.toString()));
+    return emitter;
+  }
+
+  /**
+   * Evaluates a location update, unlocking the pins the viewer has reached and pushing
+   * them to the session's stream.
+   *
+   * @throws ResponseStatusException 404 when the session is closed, on another node, or
+   *     belongs to a different viewer
+   */
+  public void update(UUID sessionId, LocationRequest location) {
+    update(sessionId, requireActor(), location);
+  }
+
+  void update(UUID sessionId, UUID viewerId, LocationRequest location) {
+    Session session = sessions.get(sessionId);
+    if (session == null || !session.viewerId.equals(viewerId)) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Location session not found");
+    }
+
+    List<ProximityCheckResponse.RevealedPin> revealed;
+    synchronized (session) {
+      Instant now = Instant.now();
+      if (session.needsReload(location, now, loadRadiusM, refreshMs)) {
+        load(session, location, now);
+      }
+      List<IndexedPin> reached = session.reached(location, now, mysteryZones);
+      if (reached.isEmpty()) {
+        return;
+      }
+      revealed = pinService.reveal(viewerId, reached);
+      session.unlocked(reached);
+    }
+    send(sessionId, session.emitter,
+        SseEmitter.event().name("reveal").data(new ProximityCheckResponse(revealed)));
+  }
+
+  /**
+   * Marks sessions whose loaded area may include a created or deleted pin for reload.
+   */
+  @TransactionalEventListener
+  public void onPinChanged(PinChangedEvent event) {
+    LocationRequest location = event.location();
+    if (location == null) {
+      return;
+    }
+    double reachM = loadRadiusM + proximityService.maxRevealRadiusM();
+    for (Session session : sessions.values()) {
+      LocationRequest loadedAt = session.loadedAt;
+      if (loadedAt != null && GeoUtil.distanceMeters(loadedAt, location) <= reachM) {
+        session.stale = true;
+      }
+    }
+  }
+
+  Set<UUID> sessionIds() {
+    return sessions.keySet();
+  }
+
+  /**
+   * Drops a session and releases its slots; returns null when it was already closed.
+   */
+  private Session close(UUID sessionId) {
+    Session session = sessions.remove(sessionId);
+    if (session == null) {
+      return null;
+    }
+    openSessions.decrementAndGet();
+    sessionsByViewer.computeIfPresent(session.viewerId, (id, sessionIds) -> {
+      sessionIds.remove(sessionId);
+      return sessionIds.isEmpty() ? null : sessionIds;
+    });
+    return session;
+  }
+
+  private void load(Session session, LocationRequest location, Instant now) {
+    List<IndexedPin> pins = proximityService.findRevealablePinsAround(session.viewerId, location, loadRadiusM, now);
+    Map<UUID, PinAccessService.AccessEvaluationResult> accessResults =
+        pinAccessService.evaluateBatch(pins, session.viewerId, false);
+    List<IndexedPin> allowed = pins.stream()
+        .filter(pin -> {
+          PinAccessService.AccessEvaluationResult result = accessResults.get(pin.getId());
+          return result != null && result.isAllowed();
+        })
+        .toList();
+
+    Set<UUID> unlocked = new HashSet<>();
+    if (!allowed.isEmpty()) {
+      pinNotificationStateRepository
+          .findByUserIdAndPinIdIn(session.viewerId, allowed.stream().map(IndexedPin::getId).toList())
+          .stream()
+          .filter(state -> state.getUnlockedAt() != null)
+          .map(PinNotificationStateEntity::getPinId)
+          .forEach(unlocked::add);
+    }
+    session.load(allowed.stream().filter(pin -> !unlocked.contains(pin.getId())).toList(),
+        location, now, proximityService.maxRevealRadiusM());
+  }
+
+  private UUID requireActor() {
+    UUID actorId = SecurityContextUtil.currentUserId();
+    if (actorId == null) {
+      throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing user context");
+    }
+    return actorId;
+  }
+
+  private void send(UUID sessionId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+    try {
+      emitter.send(event);
+    } catch (IOException | IllegalStateException ex) {
+      // Client went away; reveals are already recorded and notified
+      log.debug("Closing location session {}: {}", sessionId, ex.getMessage());
+      close(sessionId);
+      emitter.completeWithError(ex);
+    }
+  }
+
+  /**
+   * Per-stream state. Zones are split into radius zones, kept as arrays for
+   * GeoUtil.withinRadii, and mystery polygons, tested through MysteryZoneCache.
+   */
+  static final class Session {
+    private final UUID viewerId;
+    private final SseEmitter emitter;
+    private volatile LocationRequest loadedAt;
+    private volatile boolean stale;
+    private Instant loadedTime;
+    private List<IndexedPin> radiusPins = List.of();
+    private double[] lats = new double[0];
+    private double[] lngs = new double[0];
+    private double[] radii = new double[0];
+    private List<IndexedPin> polygonPins = List.of();
+    private final Set<UUID> unlocked = new HashSet<>();
+
+    Session(UUID viewerId, SseEmitter emitter) {
+      this.viewerId = viewerId;
+      this.emitter = emitter;
+    }
+
+    boolean needsReload(LocationRequest location, Instant now, double loadRadiusM, long refreshMs) {
+      return loadedAt == null
+          || stale
+          || !now.isBefore(loadedTime.plusMillis(refreshMs))
+          || GeoUtil.distanceMeters(loadedAt, location) > loadRadiusM;
+    }
+
+    void load(List<IndexedPin> pins, LocationRequest location, Instant now, double maxRadiusM) {
+      List<IndexedPin> radius = new ArrayList<>();
+      List<IndexedPin> polygons = new ArrayList<>();
+      for (IndexedPin pin : pins) {
+        if (pin.getMysteryGeom() != null) {
+          polygons.add(pin);
+        } else if (pin.getRevealRadiusM() != null || pin.getNotifyRadiusM() != null) {
+          radius.add(pin);
+        }
+      }
+      int size = radius.size();
+      lats = new double[size];
+      lngs = new double[size];
+      radii = new double[size];
+      for (int i = 0; i < size; i++) {
+        IndexedPin pin = radius.get(i);
+        lats[i] = pin.getLat();
+        lngs[i] = pin.getLng();
+        int radiusM = pin.getRevealRadiusM() != null ? pin.getRevealRadiusM() : pin.getNotifyRadiusM();
+        radii[i] = Math.min(radiusM, maxRadiusM);
+      }
+      radiusPins = radius;
+      polygonPins = polygons;
+      unlocked.clear();
+      loadedAt = location;
+      loadedTime = now;
+      stale = false;
+    }
+
+    /**
+     * Active, not yet unlocked pins whose reveal zone contains the location.
+     */
+    List<IndexedPin> reached(LocationRequest location, Instant now, MysteryZoneCache mysteryZones) {
+      List<IndexedPin> reached = new ArrayList<>();
+      boolean[] within = new boolean[radiusPins.size()];
+      if (GeoUtil.withinRadii(location.lat(), location.lng(), lats, lngs, radii, within) > 0) {
+        for (int i = 0; i < within.length; i++) {
+          IndexedPin pin = radiusPins.get(i);
+          if (within[i] && isActive(pin, now) && !unlocked.contains(pin.getId())) {
+            reached.add(pin);
+          }
+        }
+      }
+      for (IndexedPin pin : polygonPins) {
+        if (isActive(pin, now) && !unlocked.contains(pin.getId())
+            && mysteryZones.contains(pin.getId(), pin.getMysteryGeom(), location)) {
+          reached.add(pin);
+        }
+      }
+      return reached;
+    }
+
+    void unlocked(List<IndexedPin> pins) {
+      pins.forEach(pin -> unlocked.add(pin.getId()));
+    }
+
+    private static boolean isActive(IndexedPin pin, Instant now) {
+      return pin.getExpiresAt().isAfter(now) && pin.getAvailableFrom().isBefore(now);
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package com.brooks.pins.service;
+
+import com.brooks.pins.LocationRequest;
+import com.brooks.pins.MapCluster;
+import com.brooks.pins.MapPin;
+import com.brooks.pins.MapPinsResponse;
+import com.brooks.pins.domain.CellId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Server-side clustering for zoomed-out map viewports.
+ * Groups already access-filtered map pins into a degree grid derived from the zoom level
+ * (cells-per-tile cells across one web map tile) and replaces dense cells with a single
+ * centroid and count. Works on the precision-blurred locations of MapPin, so cluster
+ * centroids never reveal more than the individual pins would.
+ */
+@Component
+public class MapClusterer {
+  public static final int MAX_ZOOM = 22;
+
+  private final int cellsPerTile;
+  private final int minClusterSize;
+  private final int maxClusterZoom;
+
+  public MapClusterer(
+      @Value("${brooks.pins.map.cluster.cells-per-tile}") int cellsPerTile,
+      @Value("${brooks.pins.map.cluster.min-size}") int minClusterSize,
+      @Value("${brooks.pins.map.cluster.max-zoom}") int maxClusterZoom
+  ) {
+    this.cellsPerTile = cellsPerTile;
+    this.minClusterSize = minClusterSize;
+    this.maxClusterZoom = maxClusterZoom;
+  }
+
+  /**
+   * Picks the zoom level at which a bounding box spans roughly one tile.
+   *
+   * @param bbox Bounding box coordinates [minLng, minLat, maxLng, maxLat]
+   */
+  public int zoomFor(double[] bbox) {
+    double span = Math.max(bbox[2] - bbox[0], bbox[3] - bbox[1]);
+    if (span <= 0) {
+      return MAX_ZOOM;
+    }
+    int zoom = (int) Math.floor(Math.log(360.0 / span) / Math.log(2));
+    return Math.max(0, Math.min(MAX_ZOOM, zoom));
+  }
+
+  /**
+   * Clusters pins for the given zoom level. Cells holding fewer than min-size pins, and
+   * every pin at or beyond max-zoom, are returned individually.
+   */
+  public MapPinsResponse cluster(List<MapPin> pins, int zoom) {
+    if (zoom >= maxClusterZoom || pins.size() < minClusterSize) {
+      return new MapPinsResponse(pins);
+    }
+    double cellSizeDeg = 360.0 / ((1L << zoom) * cellsPerTile);
+    Map<Long, List<MapPin>> cells = new LinkedHashMap<>();
+    for (MapPin pin : pins) {
+      long cellId = CellId.of(pin.location().lat(), pin.location().lng(), cellSizeDeg);
+      cells.computeIfAbsent(cellId, key -> new ArrayList<>()).add(pin);
+    }
+
+    List<MapPin> singles = new ArrayList<>();
+    List<MapCluster> clusters = new ArrayList<>();
+    cells.forEach((cellId, cellPins) -> {
+      if (cellPins.size() < minClusterSize) {
+        singles.addAll(cellPins);
+        return;
+      }
+      double latSum = 0;
+      double lngSum = 0;
+      for (MapPin pin : cellPins) {
+        latSum += pin.location().lat();
+        lngSum += pin.location().lng();
+      }
+      clusters.add(new MapCluster(
+          Long.toString(cellId),
+          new LocationRequest(latSum / cellPins.size(), lngSum / cellPins.size(), null),
+          cellPins.size()
+      ));
+    });
+    return new MapPinsResponse(singles, clusters);
+  }
+}
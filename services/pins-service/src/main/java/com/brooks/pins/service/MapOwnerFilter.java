@@ -0,0 +1,96 @@
+package com.brooks.pins.service;
+
+import com.brooks.pins.AccessControlledPin;
+import com.brooks.pins.SocialGraphSnapshot;
+import com.brooks.pins.SocialGraphView;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Owner sets whose pins can possibly pass access evaluation for a viewer, split by the
+ * audience type that would admit them. Pushed into the map query so pins that would be
+ * denied anyway never leave the database. Always a superset of the visible pins:
+ * PinAccessService still makes the final decision.
+ */
+record MapOwnerFilter(
+    UUID viewerId,
+    Set<UUID> publicOwnerIds,
+    Set<UUID> friendsOwnerIds,
+    Set<UUID> followersOwnerIds
+) {
+  /**
+   * Matches no owner. FRIENDS filters use it in place of the viewer ID.
+   */
+  static final UUID NO_OWNER = new UUID(0L, 0L);
+
+  /**
+   * HOME scope: the viewer's own pins plus pins of owners the viewer may see,
+   * restricted by audience type.
+   */
+  static MapOwnerFilter home(UUID viewerId, SocialGraphSnapshot snapshot) {
+    return of(viewerId, snapshot, false);
+  }
+
+  /**
+   * FRIENDS scope: pins of friends only, never the viewer's own.
+   */
+  static MapOwnerFilter friends(UUID viewerId, SocialGraphSnapshot snapshot) {
+    return of(NO_OWNER, snapshot, true);
+  }
+
+  /**
+   * In-memory equivalent of the owner predicate in PinRepository.findVisibleCandidatesInBoundingBox.
+   */
+  boolean admits(AccessControlledPin pin) {
+    UUID ownerId = pin.getOwnerId();
+    if (ownerId.equals(viewerId)) {
+      return true;
+    }
+    return switch (pin.getAudienceType()) {
+      case PUBLIC -> publicOwnerIds.contains(ownerId);
+      case FRIENDS -> friendsOwnerIds.contains(ownerId);
+      case FOLLOWERS -> followersOwnerIds.contains(ownerId);
+      case PRIVATE -> false;
+    };
+  }
+
+  /**
+   * admits() without the pins that the shared public layer serves to this viewer.
+   * In-memory equivalent of the owner predicate in PinRepository.findPersonalCandidatesInBoundingBox.
+   */
+  boolean admitsPersonal(AccessControlledPin pin) {
+    return admits(pin) && (pin.getOwnerId().equals(viewerId) || !PublicTileCache.isShared(pin));
+  }
+
+  /**
+   * Whether a shared public-layer pin of this owner can possibly be visible to the viewer.
+   * The viewer's own pins are loaded by the personal query instead.
+   */
+  boolean admitsShared(UUID ownerId) {
+    return !ownerId.equals(viewerId) && publicOwnerIds.contains(ownerId);
+  }
+
+  private static MapOwnerFilter of(UUID viewerId, SocialGraphSnapshot snapshot, boolean friendsOnly) {
+    Set<UUID> publicOwners = new LinkedHashSet<>();
+    Set<UUID> friendsOwners = new LinkedHashSet<>();
+    Set<UUID> followersOwners = new LinkedHashSet<>();
+    // REL_PREF: non-owners are only visible when the viewer's canSeePins preference is set
+    long[] canSeePins = snapshot.canSeePinsIds() == null ? new long[0] : snapshot.canSeePinsIds();
+    for (int i = 0; i + 1 < canSeePins.length; i += 2) {
+      UUID ownerId = new UUID(canSeePins[i], canSeePins[i + 1]);
+      SocialGraphView view = snapshot.viewOf(ownerId);
+      if (view.blocked() || (friendsOnly && !view.friend())) {
+        continue;
+      }
+      publicOwners.add(ownerId);
+      if (view.friend()) {
+        friendsOwners.add(ownerId);
+      }
+      if (view.follower()) {
+        followersOwners.add(ownerId);
+      }
+    }
+    return new MapOwnerFilter(viewerId, publicOwners, friendsOwners, followersOwners);
+  }
+}
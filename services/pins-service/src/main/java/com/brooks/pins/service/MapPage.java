@@ -0,0 +1,23 @@
+package com.brooks.pins.service;
+
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Keyset page of a map bounding-box query: pins whose ID sorts after {@code after},
+ * at most {@code limit} of them. IDs are ordered as PostgreSQL orders uuid values
+ * (unsigned, most significant bits first), so the SQL and in-memory paths agree.
+ */
+public record MapPage(UUID after, int limit) {
+  /** Sorts before every pin ID. */
+  public static final UUID START = new UUID(0, 0);
+
+  public static final Comparator<UUID> ID_ORDER = (a, b) -> {
+    int cmp = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+    return cmp != 0 ? cmp : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+  };
+
+  public static MapPage first(int limit) {
+    return new MapPage(START, limit);
+  }
+}
@@ -0,0 +1,84 @@
+package com.brooks.pins.service;
+
+import com.brooks.pins.LocationRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.UUID;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Dimension;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.IntersectionMatrix;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Location;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of mystery polygons prepared for point-in-polygon tests.
+ * A PreparedGeometry indexes the polygon's edges once, so each contains() check is
+ * logarithmic in the vertex count instead of scanning every edge. Pins are never
+ * edited after creation, so entries are keyed by pin ID alone.
+ */
+@Component
+public class MysteryZoneCache {
+  private final GeometryFactory geometryFactory;
+  private final Cache<UUID, PreparedGeometry> zones;
+
+  public MysteryZoneCache(
+      GeometryFactory geometryFactory,
+      @Value("${brooks.pins.mystery-zones.cache-size}") long cacheSize
+  ) {
+    this.geometryFactory = geometryFactory;
+    this.zones = Caffeine.newBuilder().maximumSize(cacheSize).build();
+  }
+
+  /**
+   * Checks whether a pin's mystery zone contains a location (boundary excluded, like
+   * Polygon.contains and ST_Contains).
+   */
+  public boolean contains(UUID pinId, Polygon zone, LocationRequest location) {
+    if (zone == null || location == null) {
+      return false;
+    }
+    return prepared(pinId, zone).contains(point(location));
+  }
+
+  /**
+   * Checks whether the straight segment between two locations passes through a pin's
+   * mystery zone, i.e. has a point inside it. Segments that only touch the boundary do
+   * not count, matching contains().
+   */
+  public boolean crosses(UUID pinId, Polygon zone, LocationRequest from, LocationRequest to) {
+    if (zone == null) {
+      return false;
+    }
+    PreparedGeometry prepared = prepared(pinId, zone);
+    Point start = point(from);
+    Point end = point(to);
+    if (prepared.contains(start) || prepared.contains(end)) {
+      return true;
+    }
+    if (start.equalsExact(end)) {
+      return false;
+    }
+    LineString segment = geometryFactory.createLineString(new Coordinate[]{start.getCoordinate(), end.getCoordinate()});
+    if (!prepared.intersects(segment)) {
+      return false;
+    }
+    // Both ends lie outside; the segment crosses unless it only runs along the boundary
+    IntersectionMatrix relation = zone.relate(segment);
+    return relation.get(Location.INTERIOR, Location.INTERIOR) != Dimension.FALSE;
+  }
+
+  private PreparedGeometry prepared(UUID pinId, Polygon zone) {
+    return zones.get(pinId, id -> PreparedGeometryFactory.prepare(zone));
+  }
+
+  private Point point(LocationRequest location) {
+    return geometryFactory.createPoint(new Coordinate(location.lng(), location.lat()));
+  }
+}
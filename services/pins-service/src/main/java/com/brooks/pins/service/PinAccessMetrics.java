@@ -0,0 +1,107 @@
+package com.brooks.pins.service;
+
+import com.brooks.pins.PinAccessPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Micrometer instrumentation for pin access evaluation and map queries.
+ * <ul>
+ *   <li>brooks.pins.access.decisions: counter per decision reason (OK or denial) and context</li>
+ *   <li>brooks.pins.access.phase: timer per downstream/DB phase (graph, acl, membership)</li>
+ *   <li>brooks.pins.map.candidates / brooks.pins.map.results: pins per request and scope,
+ *       before and after access evaluation</li>
+ * </ul>
+ */
+@Component
+public class PinAccessMetrics {
+  public static final String PHASE_GRAPH = "graph";
+  public static final String PHASE_ACL = "acl";
+  public static final String PHASE_MEMBERSHIP = "membership";
+
+  private final MeterRegistry meterRegistry;
+  private final Map<String, Counter> decisionCounters = new ConcurrentHashMap<>();
+  private final Map<String, Timer> phaseTimers = new ConcurrentHashMap<>();
+  private final Map<String, DistributionSummary> candidateSummaries = new ConcurrentHashMap<>();
+  private final Map<String, DistributionSummary> resultSummaries = new ConcurrentHashMap<>();
+  private final DistributionSummary cellLevels;
+
+  public PinAccessMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+    this.cellLevels = DistributionSummary.builder("brooks.pins.proximity.cell-level")
+        .description("Cell level above the leaf grid chosen for proximity lookups")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Counts one access decision.
+   */
+  public void recordDecision(PinAccessPolicy.PolicyDecision decision, boolean forNotification) {
+    decisionCounter(decision.reason(), forNotification).increment();
+  }
+
+  /**
+   * Counts the decisions of a whole batch, touching each counter once per distinct reason.
+   */
+  public void recordDecisions(Collection<PinAccessService.AccessEvaluationResult> results, boolean forNotification) {
+    // Decisions are shared instances, so identity grouping is exact and allocation-light
+    Map<PinAccessPolicy.PolicyDecision, int[]> counts = new IdentityHashMap<>();
+    for (PinAccessService.AccessEvaluationResult result : results) {
+      counts.computeIfAbsent(result.decision(), decision -> new int[1])[0]++;
+    }
+    counts.forEach((decision, count) -> decisionCounter(decision.reason(), forNotification).increment(count[0]));
+  }
+
+  private Counter decisionCounter(String reason, boolean forNotification) {
+    String context = forNotification ? "notification" : "view";
+    return decisionCounters.computeIfAbsent(context + '|' + reason, key -> Counter.builder("brooks.pins.access.decisions")
+        .description("Pin access decisions by reason")
+        .tag("reason", reason)
+        .tag("context", context)
+        .register(meterRegistry));
+  }
+
+  /**
+   * Times one evaluation phase.
+   */
+  public <T> T timePhase(String phase, Supplier<T> work) {
+    return phaseTimers.computeIfAbsent(phase, key -> Timer.builder("brooks.pins.access.phase")
+        .description("Time spent per pin access evaluation phase")
+        .tag("phase", phase)
+        .register(meterRegistry))
+        .record(work);
+  }
+
+  /**
+   * Records how many pins a map or candidate query loaded and how many were returned.
+   */
+  public void recordScope(String scope, int candidates, int results) {
+    String tag = scope.toLowerCase(Locale.ROOT);
+    candidateSummaries.computeIfAbsent(tag, key -> DistributionSummary.builder("brooks.pins.map.candidates")
+        .description("Pins loaded per request before access evaluation")
+        .tag("scope", tag)
+        .register(meterRegistry))
+        .record(candidates);
+    resultSummaries.computeIfAbsent(tag, key -> DistributionSummary.builder("brooks.pins.map.results")
+        .description("Pins returned per request after access evaluation")
+        .tag("scope", tag)
+        .register(meterRegistry))
+        .record(results);
+  }
+
+  /**
+   * Records the resolution an adaptive proximity lookup settled on.
+   */
+  public void recordCellLevel(int level) {
+    cellLevels.record(level);
+  }
+}
@@ -3,14 +3,25 @@ package com.brooks.pins.service;
 import com.brooks.pins.*;
 import com.brooks.pins.client.ListsClient;
 import com.brooks.pins.client.SocialGraphClient;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-import org.locationtech.jts.geom.GeometryFactory;
-import org.locationtech.jts.geom.Point;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 /**
@@ -26,23 +37,38 @@ import org.springframework.stereotype.Service;
  */
 @Service
 public class PinAccessService {
+  private static final Logger log = LoggerFactory.getLogger(PinAccessService.class);
+  private static final SocialGraphView NO_RELATIONSHIP = new SocialGraphView(false, false, false, false, false);
+
   private final PinAclRepository pinAclRepository;
   private final SocialGraphClient socialGraphClient;
   private final ListsClient listsClient;
   private final PinAccessPolicy accessPolicy;
-  private final GeometryFactory geometryFactory;
+  private final MysteryZoneCache mysteryZones;
+  private final Executor downstreamExecutor;
+  private final Duration downstreamTimeout;
+  private final int maxRevealRadiusM;
+  private final PinAccessMetrics metrics;
 
   public PinAccessService(
       PinAclRepository pinAclRepository,
       SocialGraphClient socialGraphClient,
       ListsClient listsClient,
-      GeometryFactory geometryFactory
+      MysteryZoneCache mysteryZones,
+      @Qualifier("downstreamExecutor") Executor downstreamExecutor,
+      @Value("${brooks.downstream.timeout-ms}") long downstreamTimeoutMs,
+      @Value("${brooks.proximity.reveal.max-radius-m}") int maxRevealRadiusM,
+      PinAccessMetrics metrics
   ) {
     this.pinAclRepository = pinAclRepository;
     this.socialGraphClient = socialGraphClient;
     this.listsClient = listsClient;
     this.accessPolicy = new PinAccessPolicy();
-    this.geometryFactory = geometryFactory;
+    this.mysteryZones = mysteryZones;
+    this.downstreamExecutor = downstreamExecutor;
+    this.downstreamTimeout = Duration.ofMillis(downstreamTimeoutMs);
+    this.maxRevealRadiusM = maxRevealRadiusM;
+    this.metrics = metrics;
   }
 
   /**
@@ -60,15 +86,28 @@ public class PinAccessService {
       boolean forNotification,
       LocationRequest viewerLocation
   ) {
-    // Fetch social graph view (will be cached in future iteration)
-    SocialGraphView graphView = socialGraphClient.fetchGraphView(viewerId, pin.getOwnerId());
-
-    return evaluateWithGraphView(pin, viewerId, graphView, forNotification, viewerLocation);
+    // Answered from the viewer's cached snapshot, under the same deadline as batch evaluation
+    SocialGraphView graphView =
+        fetchGraphSnapshot(viewerId).orElse(SocialGraphSnapshot.EMPTY).viewOf(pin.getOwnerId());
+    PinAclIndex.PinAcl acl = metrics.timePhase(PinAccessMetrics.PHASE_ACL,
+        () -> PinAclIndex.PinAcl.of(pinAclRepository.findByPinId(pin.getId())));
+    Set<String> memberListIds = metrics.timePhase(PinAccessMetrics.PHASE_MEMBERSHIP,
+        () -> fetchMemberListIds(viewerId, acl.listIds()));
+
+    AccessEvaluationResult result = evaluateWithGraphView(pin, viewerId, graphView, acl, memberListIds,
+        forNotification, checkRevealRadius(pin, viewerLocation));
+    metrics.recordDecision(result.decision(), forNotification);
+    return result;
   }
 
   /**
    * Evaluates multiple pins for a single viewer efficiently.
-   * Caches social graph views to avoid N+1 queries.
+   * Resolves all owners' social graph views from one viewer snapshot and loads
+   * all ACL rows in one query to avoid N+1 lookups. The snapshot and list-membership
+   * lookups run concurrently and share one deadline; a lookup that misses the deadline
+   * falls back to the same deny-all default as an unavailable downstream service.
+   * Batch evaluation has no viewer location, so it only reads the AccessControlledPin
+   * fields and works on PinSummary projections as well as entities.
    *
    * @param pins The pins to evaluate
    * @param viewerId The viewer
@@ -76,89 +115,210 @@ public class PinAccessService {
    * @return Map of pin ID to access evaluation result
    */
   public Map<UUID, AccessEvaluationResult> evaluateBatch(
-      List<PinEntity> pins,
+      List<? extends AccessControlledPin> pins,
       UUID viewerId,
       boolean forNotification
   ) {
-    // Cache social graph views to avoid N+1 queries
-    Map<UUID, SocialGraphView> graphCache = new HashMap<>();
+    if (pins.isEmpty()) {
+      return new HashMap<>();
+    }
+    // Start the social graph lookup while ACL rows are loaded
+    return evaluateBatch(pins, viewerId, forNotification, lookupGraphSnapshot(viewerId));
+  }
+
+  /**
+   * Like evaluateBatch(pins, viewerId, forNotification), with a snapshot the caller has
+   * already fetched through fetchGraphSnapshot (or SocialGraphSnapshot.EMPTY when that
+   * lookup missed its deadline).
+   */
+  public Map<UUID, AccessEvaluationResult> evaluateBatch(
+      List<? extends AccessControlledPin> pins,
+      UUID viewerId,
+      boolean forNotification,
+      SocialGraphSnapshot snapshot
+  ) {
+    if (pins.isEmpty()) {
+      return new HashMap<>();
+    }
+    return evaluateBatch(pins, viewerId, forNotification, CompletableFuture.completedFuture(snapshot));
+  }
+
+  /**
+   * Fetches the viewer's social graph snapshot on the downstream executor under the
+   * downstream deadline, for callers that need it before evaluating a batch.
+   *
+   * @return The snapshot, or empty when the lookup missed the deadline or failed
+   */
+  public Optional<SocialGraphSnapshot> fetchGraphSnapshot(UUID viewerId) {
+    return Optional.ofNullable(await(lookupGraphSnapshot(viewerId), System.nanoTime() + downstreamTimeout.toNanos(),
+        null, "social graph snapshot"));
+  }
+
+  private CompletableFuture<SocialGraphSnapshot> lookupGraphSnapshot(UUID viewerId) {
+    return CompletableFuture.supplyAsync(
+        () -> metrics.timePhase(PinAccessMetrics.PHASE_GRAPH, () -> socialGraphClient.fetchGraphSnapshot(viewerId)),
+        downstreamExecutor);
+  }
+
+  private Map<UUID, AccessEvaluationResult> evaluateBatch(
+      List<? extends AccessControlledPin> pins,
+      UUID viewerId,
+      boolean forNotification,
+      CompletableFuture<SocialGraphSnapshot> snapshotLookup
+  ) {
     Map<UUID, AccessEvaluationResult> results = new HashMap<>();
+    long deadline = System.nanoTime() + downstreamTimeout.toNanos();
 
-    for (PinEntity pin : pins) {
-      SocialGraphView graphView = graphCache.computeIfAbsent(
-          pin.getOwnerId(),
-          ownerId -> socialGraphClient.fetchGraphView(viewerId, ownerId)
-      );
+    // Load ACL rows for the whole batch with a single pin_id IN (...) query
+    PinAclIndex aclIndex = metrics.timePhase(PinAccessMetrics.PHASE_ACL, () -> loadAclIndex(pins));
+
+    // Resolve the viewer's membership in every referenced list with one call
+    CompletableFuture<Set<String>> membershipLookup = aclIndex.listIds().isEmpty()
+        ? CompletableFuture.completedFuture(Set.of())
+        : CompletableFuture.supplyAsync(
+            () -> metrics.timePhase(PinAccessMetrics.PHASE_MEMBERSHIP,
+                () -> listsClient.findMemberListIds(viewerId, aclIndex.listIds())),
+            downstreamExecutor);
+
+    SocialGraphSnapshot snapshot =
+        await(snapshotLookup, deadline, SocialGraphSnapshot.EMPTY, "social graph snapshot");
+    Set<String> memberListIds = await(membershipLookup, deadline, Set.of(), "list membership");
+
+    // Resolve graph views for every distinct owner locally from the snapshot
+    Map<UUID, SocialGraphView> graphViews = resolveGraphViews(pins, snapshot);
+
+    for (AccessControlledPin pin : pins) {
+      SocialGraphView graphView = graphViews.getOrDefault(pin.getOwnerId(), NO_RELATIONSHIP);
 
       AccessEvaluationResult result = evaluateWithGraphView(
           pin,
           viewerId,
           graphView,
+          aclIndex.forPin(pin.getId()),
+          memberListIds,
           forNotification,
-          null // No location for batch map queries
+          true // No location for batch map queries, so the reveal radius is not checked
       );
       results.put(pin.getId(), result);
     }
 
+    metrics.recordDecisions(results.values(), forNotification);
     return results;
   }
 
+  private Map<UUID, SocialGraphView> resolveGraphViews(
+      List<? extends AccessControlledPin> pins,
+      SocialGraphSnapshot snapshot
+  ) {
+    Map<UUID, SocialGraphView> graphViews = new HashMap<>();
+    for (AccessControlledPin pin : pins) {
+      graphViews.computeIfAbsent(pin.getOwnerId(), snapshot::viewOf);
+    }
+    return graphViews;
+  }
+
+  /**
+   * Waits for a downstream lookup until the shared batch deadline.
+   * Timed-out lookups are cancelled and failed ones resolve to the fallback.
+   */
+  private <T> T await(CompletableFuture<T> lookup, long deadline, T fallback, String name) {
+    try {
+      return lookup.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException ex) {
+      lookup.cancel(true);
+      log.warn("Downstream {} lookup exceeded {} ms deadline. Using fallback.", name, downstreamTimeout.toMillis());
+      return fallback;
+    } catch (ExecutionException ex) {
+      log.warn("Downstream {} lookup failed. Using fallback. Error: {}", name, ex.getCause().getMessage());
+      return fallback;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      lookup.cancel(true);
+      return fallback;
+    }
+  }
+
+  private Set<String> fetchMemberListIds(UUID viewerId, Collection<String> listIds) {
+    if (listIds.isEmpty()) {
+      return Set.of();
+    }
+    return listsClient.findMemberListIds(viewerId, listIds);
+  }
+
+  private PinAclIndex loadAclIndex(List<? extends AccessControlledPin> pins) {
+    if (pins.isEmpty()) {
+      return PinAclIndex.EMPTY;
+    }
+    List<UUID> pinIds = new ArrayList<>(pins.size());
+    for (AccessControlledPin pin : pins) {
+      pinIds.add(pin.getId());
+    }
+    return PinAclIndex.of(pinAclRepository.findByPinIdIn(pinIds));
+  }
+
   /**
-   * Evaluates access with a pre-fetched social graph view.
+   * Evaluates access with a pre-fetched social graph view and ACL.
    * This is the core access evaluation logic.
    */
   private AccessEvaluationResult evaluateWithGraphView(
-      PinEntity pin,
+      AccessControlledPin pin,
       UUID viewerId,
       SocialGraphView graphView,
+      PinAclIndex.PinAcl acl,
+      Set<String> memberListIds,
       boolean forNotification,
-      LocationRequest viewerLocation
+      boolean inRevealRadius
   ) {
     Instant now = Instant.now();
+    int factors = 0;
 
     // Check time window
-    boolean timeEligible = !now.isBefore(pin.getAvailableFrom())
-        && now.isBefore(pin.getExpiresAt());
+    if (!now.isBefore(pin.getAvailableFrom()) && now.isBefore(pin.getExpiresAt())) {
+      factors |= PinAccessPolicy.TIME_ELIGIBLE;
+    }
 
     // Check if blocked
-    boolean blocked = graphView.blocked();
+    if (graphView.blocked()) {
+      factors |= PinAccessPolicy.BLOCKED;
+    }
 
     // Check ownership
     boolean isOwner = viewerId.equals(pin.getOwnerId());
 
     // Check audience type
-    boolean allowedByAudience = isAllowedByAudience(pin.getAudienceType(), isOwner, graphView);
+    if (isAllowedByAudience(pin.getAudienceType(), isOwner, graphView)) {
+      factors |= PinAccessPolicy.ALLOWED_BY_AUDIENCE;
+    }
 
-    // Load and check ACL
-    List<PinAclEntity> aclEntries = pinAclRepository.findByPinId(pin.getId());
-    AclCheckResult aclResult = checkAcl(aclEntries, viewerId);
+    // Check ACL
+    factors |= checkAcl(acl, memberListIds, viewerId);
 
     // Check relationship preferences
-    boolean canSeePins = isOwner || graphView.canSeePins();
-    boolean canReceiveNotifications = isOwner || graphView.canReceiveNotifications();
+    if (isOwner || graphView.canSeePins()) {
+      factors |= PinAccessPolicy.CAN_SEE_PINS;
+    }
+    if (forNotification) {
+      factors |= PinAccessPolicy.FOR_NOTIFICATION;
+    }
+    if (isOwner || graphView.canReceiveNotifications()) {
+      factors |= PinAccessPolicy.CAN_RECEIVE_NOTIFICATIONS;
+    }
 
     // Check reveal radius (proximity)
-    boolean inRevealRadius = checkRevealRadius(pin, viewerLocation);
+    if (pin.getRevealType() == RevealType.REACH_TO_REVEAL) {
+      factors |= PinAccessPolicy.REACH_TO_REVEAL;
+    }
+    if (inRevealRadius) {
+      factors |= PinAccessPolicy.IN_REVEAL_RADIUS;
+    }
 
     // Check future-self mode
-    boolean futureSelfMode = pin.isFutureSelf() && isOwner;
-
-    // Evaluate policy
-    PinAccessPolicy.PolicyDecision decision = accessPolicy.evaluate(
-        new PinAccessPolicy.PolicyInput(
-            timeEligible,
-            blocked,
-            allowedByAudience,
-            aclResult.hasAcl(),
-            aclResult.allowed(),
-            canSeePins,
-            forNotification,
-            canReceiveNotifications,
-            pin.getRevealType(),
-            inRevealRadius,
-            futureSelfMode
-        )
-    );
+    if (pin.isFutureSelf() && isOwner) {
+      factors |= PinAccessPolicy.FUTURE_SELF_MODE;
+    }
+
+    // Evaluate policy (table lookup, returns a shared decision instance)
+    PinAccessPolicy.PolicyDecision decision = accessPolicy.evaluate(factors);
 
     return new AccessEvaluationResult(decision, inRevealRadius, graphView);
   }
@@ -176,28 +336,22 @@ public class PinAccessService {
     };
   }
 
-  private AclCheckResult checkAcl(List<PinAclEntity> aclEntries, UUID viewerId) {
-    List<String> listIds = new ArrayList<>();
-    List<String> userIds = new ArrayList<>();
-
-    for (PinAclEntity acl : aclEntries) {
-      if (acl.getTargetType() == TargetType.LIST) {
-        listIds.add(acl.getTargetId().toString());
-      } else if (acl.getTargetType() == TargetType.USER) {
-        userIds.add(acl.getTargetId().toString());
-      }
+  /**
+   * Returns the ACL factor bits: none when the pin has no ACL, otherwise HAS_ACL
+   * plus ACL_ALLOWED when the viewer matches.
+   */
+  private int checkAcl(PinAclIndex.PinAcl acl, Set<String> memberListIds, UUID viewerId) {
+    if (!acl.hasAcl()) {
+      return 0;
     }
+    List<String> listIds = acl.listIds();
 
     boolean hasListAcl = !listIds.isEmpty();
-    boolean hasUserAcl = !userIds.isEmpty();
-    boolean hasAcl = hasListAcl || hasUserAcl;
-
-    if (!hasAcl) {
-      return new AclCheckResult(false, true);
-    }
+    boolean hasUserAcl = acl.userIdBits().length > 0;
 
-    boolean inAnyRequiredList = !hasListAcl || listsClient.isUserInAnyList(viewerId, listIds);
-    boolean allowedByUserAcl = !hasUserAcl || userIds.contains(viewerId.toString());
+    boolean inAnyRequiredList = !hasListAcl || containsAny(memberListIds, listIds);
+    boolean allowedByUserAcl = !hasUserAcl
+        || acl.containsUser(viewerId.getMostSignificantBits(), viewerId.getLeastSignificantBits());
 
     // If both list and user ACLs exist, user needs to match either
     // If only one type exists, user must match that type
@@ -205,7 +359,16 @@ public class PinAccessService {
         ? (inAnyRequiredList || allowedByUserAcl)
         : (hasListAcl ? inAnyRequiredList : allowedByUserAcl);
 
-    return new AclCheckResult(true, aclAllowed);
+    return aclAllowed ? PinAccessPolicy.HAS_ACL | PinAccessPolicy.ACL_ALLOWED : PinAccessPolicy.HAS_ACL;
+  }
+
+  private boolean containsAny(Set<String> memberListIds, List<String> listIds) {
+    for (String listId : listIds) {
+      if (memberListIds.contains(listId)) {
+        return true;
+      }
+    }
+    return false;
   }
 
   private boolean checkRevealRadius(PinEntity pin, LocationRequest viewerLocation) {
@@ -225,17 +388,16 @@ public class PinAccessService {
 
     // Check mystery polygon first (higher priority)
     if (pin.getMysteryGeom() != null) {
-      Point viewerPoint = GeoUtil.toPoint(viewerLocation, geometryFactory);
-      return GeoUtil.withinPolygon(viewerPoint, pin.getMysteryGeom());
+      return mysteryZones.contains(pin.getId(), pin.getMysteryGeom(), viewerLocation);
     }
 
-    // Check circular reveal radius (fall back to notifyRadiusM)
+    // Check circular reveal radius (fall back to notifyRadiusM), capped like proximity checks
     Integer effectiveRadius = pin.getRevealRadiusM() != null
         ? pin.getRevealRadiusM()
         : pin.getNotifyRadiusM();
     if (effectiveRadius != null) {
       double distance = GeoUtil.distanceMeters(viewerLocation, pinLocation);
-      return distance <= effectiveRadius;
+      return distance <= Math.min(effectiveRadius, maxRevealRadiusM);
     }
 
     return false; // REACH_TO_REVEAL without radius or polygon
@@ -257,10 +419,4 @@ public class PinAccessService {
       return decision.reason();
     }
   }
-
-  /**
-   * Result of ACL check.
-   */
-  private record AclCheckResult(boolean hasAcl, boolean allowed) {
-  }
 }
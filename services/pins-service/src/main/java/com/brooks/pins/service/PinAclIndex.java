@@ -0,0 +1,108 @@
+package com.brooks.pins.service;
+
+import com.brooks.pins.PinAclEntity;
+import com.brooks.pins.TargetType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Per-pin view of pin_acl rows, grouped once for a whole batch of pins.
+ * Lets access evaluation run without going back to the database per pin.
+ */
+final class PinAclIndex {
+  static final PinAclIndex EMPTY = new PinAclIndex(Map.of(), Set.of());
+
+  private final Map<UUID, PinAcl> aclByPinId;
+  private final Set<String> listIds;
+
+  private PinAclIndex(Map<UUID, PinAcl> aclByPinId, Set<String> listIds) {
+    this.aclByPinId = aclByPinId;
+    this.listIds = listIds;
+  }
+
+  /**
+   * Groups ACL rows by pin ID.
+   *
+   * @param entries ACL rows for any number of pins
+   * @return Index keyed by pin ID
+   */
+  static PinAclIndex of(List<PinAclEntity> entries) {
+    if (entries.isEmpty()) {
+      return EMPTY;
+    }
+    Map<UUID, List<PinAclEntity>> grouped = new HashMap<>();
+    for (PinAclEntity entry : entries) {
+      grouped.computeIfAbsent(entry.getPinId(), pinId -> new ArrayList<>()).add(entry);
+    }
+    Map<UUID, PinAcl> aclByPinId = new HashMap<>(grouped.size() * 2);
+    Set<String> listIds = new TreeSet<>();
+    grouped.forEach((pinId, pinEntries) -> {
+      PinAcl acl = PinAcl.of(pinEntries);
+      aclByPinId.put(pinId, acl);
+      listIds.addAll(acl.listIds());
+    });
+    return new PinAclIndex(aclByPinId, listIds);
+  }
+
+  /**
+   * Returns the ACL of a pin, or an empty ACL when the pin has no rows.
+   */
+  PinAcl forPin(UUID pinId) {
+    return aclByPinId.getOrDefault(pinId, PinAcl.NONE);
+  }
+
+  /**
+   * Returns the union of list IDs referenced by any pin in the index, sorted.
+   */
+  Set<String> listIds() {
+    return listIds;
+  }
+
+  /**
+   * ACL targets of a single pin split by target type.
+   * User targets are packed as (mostSignificantBits, leastSignificantBits) pairs so
+   * they can be matched without allocating or hashing UUIDs.
+   */
+  record PinAcl(List<String> listIds, long[] userIdBits) {
+    static final PinAcl NONE = new PinAcl(List.of(), new long[0]);
+
+    boolean hasAcl() {
+      return !listIds.isEmpty() || userIdBits.length > 0;
+    }
+
+    boolean containsUser(long msb, long lsb) {
+      for (int i = 0; i < userIdBits.length; i += 2) {
+        if (userIdBits[i] == msb && userIdBits[i + 1] == lsb) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    static PinAcl of(List<PinAclEntity> entries) {
+      if (entries.isEmpty()) {
+        return NONE;
+      }
+      List<String> listIds = new ArrayList<>();
+      List<UUID> userIds = new ArrayList<>();
+      for (PinAclEntity acl : entries) {
+        if (acl.getTargetType() == TargetType.LIST) {
+          listIds.add(acl.getTargetId().toString());
+        } else if (acl.getTargetType() == TargetType.USER) {
+          userIds.add(acl.getTargetId());
+        }
+      }
+      long[] userIdBits = new long[userIds.size() * 2];
+      for (int i = 0; i < userIds.size(); i++) {
+        userIdBits[2 * i] = userIds.get(i).getMostSignificantBits();
+        userIdBits[2 * i + 1] = userIds.get(i).getLeastSignificantBits();
+      }
+      return new PinAcl(List.copyOf(listIds), userIdBits);
+    }
+  }
+}
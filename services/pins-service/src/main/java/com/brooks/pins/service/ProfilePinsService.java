@@ -44,7 +44,8 @@ public class ProfilePinsService {
   private List<ProfileMemoryCard> loadVisibleMemories(UUID ownerId, int limit) {
     UUID viewerId = requireActor();
     Instant now = Instant.now();
-    List<PinEntity> pins = pinRepository.findByOwnerIdAndExpiresAtAfterAndAvailableFromBeforeOrderByCreatedAtDesc(ownerId, now, now);
+    // Read-only projections: coordinates and the stored preview, no entity hydration
+    List<PinSummary> pins = pinRepository.findSummariesByOwner(ownerId, now);
     Map<UUID, PinAccessService.AccessEvaluationResult> accessResults = pinAccessService.evaluateBatch(pins, viewerId, false);
 
     return pins.stream()
@@ -57,7 +58,7 @@ public class ProfilePinsService {
             pin.getId().toString(),
             applyMapPrecision(pin),
             pin.getMapPrecision(),
-            previewText(pin.getText()),
+            pin.getTextPreview(),
             pin.getAudienceType(),
             pin.getRevealType(),
             pin.getCreatedAt().toString(),
@@ -66,9 +67,9 @@ public class ProfilePinsService {
         .toList();
   }
 
-  private LocationRequest applyMapPrecision(PinEntity pin) {
-    double lat = pin.getGeom().getY();
-    double lng = pin.getGeom().getX();
+  private LocationRequest applyMapPrecision(PinSummary pin) {
+    double lat = pin.getLat();
+    double lng = pin.getLng();
     if (pin.getMapPrecision() == MapPrecision.BLURRED) {
       lat = Math.round(lat * 100.0) / 100.0;
       lng = Math.round(lng * 100.0) / 100.0;
@@ -76,17 +77,6 @@ public class ProfilePinsService {
     return new LocationRequest(lat, lng, pin.getAltitudeM());
   }
 
-  private String previewText(String text) {
-    if (text == null || text.isBlank()) {
-      return "Untitled memory";
-    }
-    String normalized = text.trim().replaceAll("\\s+", " ");
-    if (normalized.length() <= 140) {
-      return normalized;
-    }
-    return normalized.substring(0, 137) + "...";
-  }
-
   private UUID requireActor() {
     UUID actorId = SecurityContextUtil.currentUserId();
     if (actorId == null) {
@@ -1,20 +1,30 @@
 package com.brooks.pins.service;
 
 import com.brooks.pins.*;
+import com.brooks.pins.domain.CellId;
+import com.brooks.pins.domain.CellRanges;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 /**
  * Service responsible for proximity-based pin discovery.
  * Handles:
  * - Map bounding box queries
- * - Location bucket-based candidate selection
+ * - Location cell-based candidate selection with adaptive resolution
  * - Geofence candidate preparation
  */
 @Service
@@ -23,115 +33,175 @@ public class ProximityService {
   private final PinAccessService pinAccessService;
   private final PinNotificationStateRepository pinNotificationStateRepository;
   private final LocationBucket locationBucket;
+  private final PinAccessMetrics metrics;
+  private final ActivePinIndex activePinIndex;
+  private final GeofenceIndex geofenceIndex;
+  private final PublicTileCache publicTiles;
+  private final MysteryZoneCache mysteryZones;
+  private final int maxCellLevel;
+  private final int minCandidates;
+  private final int maxCandidates;
+  private final int maxRevealRadiusM;
+  private final double trajectoryChunkSpanM;
+  private final double trajectoryMaxSegmentM;
 
   public ProximityService(
       PinRepository pinRepository,
       PinAccessService pinAccessService,
       PinNotificationStateRepository pinNotificationStateRepository,
-      LocationBucket locationBucket
+      LocationBucket locationBucket,
+      PinAccessMetrics metrics,
+      ActivePinIndex activePinIndex,
+      GeofenceIndex geofenceIndex,
+      PublicTileCache publicTiles,
+      MysteryZoneCache mysteryZones,
+      @Value("${brooks.proximity.cells.max-level}") int maxCellLevel,
+      @Value("${brooks.proximity.cells.min-candidates}") int minCandidates,
+      @Value("${brooks.proximity.cells.max-candidates}") int maxCandidates,
+      @Value("${brooks.proximity.reveal.max-radius-m}") int maxRevealRadiusM,
+      @Value("${brooks.proximity.trajectory.chunk-span-m}") double trajectoryChunkSpanM,
+      @Value("${brooks.proximity.trajectory.max-segment-m}") double trajectoryMaxSegmentM
   ) {
     this.pinRepository = pinRepository;
     this.pinAccessService = pinAccessService;
     this.pinNotificationStateRepository = pinNotificationStateRepository;
     this.locationBucket = locationBucket;
+    this.metrics = metrics;
+    this.activePinIndex = activePinIndex;
+    this.geofenceIndex = geofenceIndex;
+    this.publicTiles = publicTiles;
+    this.mysteryZones = mysteryZones;
+    this.maxCellLevel = maxCellLevel;
+    this.minCandidates = minCandidates;
+    this.maxCandidates = maxCandidates;
+    this.maxRevealRadiusM = maxRevealRadiusM;
+    this.trajectoryChunkSpanM = trajectoryChunkSpanM;
+    this.trajectoryMaxSegmentM = trajectoryMaxSegmentM;
   }
 
   /**
    * Finds all pins visible to a viewer within a map bounding box.
    * Applies access control and map precision blurring.
    *
+   * Public pins of other owners come from the shared per-tile layer when it covers the
+   * bounding box; only the viewer's own, friends', followers' and access-listed pins are
+   * loaded and evaluated per viewer.
+   *
+   * The social graph snapshot is fetched once, under the downstream deadline. When that
+   * lookup misses it, only the viewer's own pins are loaded: an empty snapshot admits
+   * nothing else.
+   *
    * @param viewerId The user viewing the map
    * @param bbox Bounding box coordinates [minLng, minLat, maxLng, maxLat]
-   * @return List of visible pins with appropriate precision
+   * @param page Keyset page of candidate pins to evaluate
+   * @return Visible pins with appropriate precision, truncated flag and next cursor
    */
-  public List<MapPin> findPinsInBoundingBox(UUID viewerId, double[] bbox) {
+  public MapPinsResponse findPinsInBoundingBox(UUID viewerId, double[] bbox, MapPage page) {
     Instant now = Instant.now();
 
-    // Query database for pins in bounding box
-    List<PinEntity> pins = pinRepository.findInBoundingBox(
-        bbox[0], bbox[1], bbox[2], bbox[3], now
-    );
+    // Query database for plausibly visible pins in bounding box
+    Optional<SocialGraphSnapshot> snapshot = pinAccessService.fetchGraphSnapshot(viewerId);
+    Set<UUID> preApproved = new HashSet<>();
+    List<PinSummary> loaded;
+    if (snapshot.isEmpty()) {
+      loaded = findOwnerPinsInBoundingBox(viewerId, bbox, page, now);
+    } else {
+      MapOwnerFilter ownerFilter = MapOwnerFilter.home(viewerId, snapshot.get());
+      List<PublicTileCache.SharedPin> shared = publicTiles.load(bbox, now);
+      loaded = shared == null
+          ? findCandidatesInBoundingBox(ownerFilter, bbox, page, now)
+          : mergeSharedLayer(shared, findPersonalCandidatesInBoundingBox(ownerFilter, bbox, page, now),
+              ownerFilter, page, preApproved);
+    }
+    List<PinSummary> pins = withinPage(loaded, page);
 
     // Batch evaluate access control (avoids N+1 queries)
+    List<PinSummary> toEvaluate = preApproved.isEmpty()
+        ? pins
+        : pins.stream().filter(pin -> !preApproved.contains(pin.getId())).toList();
     Map<UUID, PinAccessService.AccessEvaluationResult> accessResults =
-        pinAccessService.evaluateBatch(pins, viewerId, false);
+        pinAccessService.evaluateBatch(toEvaluate, viewerId, false, snapshot.orElse(SocialGraphSnapshot.EMPTY));
 
     // Filter unrevealed REACH_TO_REVEAL pins for non-owners
     Set<UUID> unlockedIds = getUnlockedReachToRevealIds(pins, accessResults, viewerId);
 
     // Build response with access-controlled pins
     List<MapPin> results = new ArrayList<>();
-    for (PinEntity pin : pins) {
-      PinAccessService.AccessEvaluationResult result = accessResults.get(pin.getId());
-
-      if (result.isAllowed()) {
+    for (PinSummary pin : pins) {
+      if (!preApproved.contains(pin.getId())) {
+        PinAccessService.AccessEvaluationResult result = accessResults.get(pin.getId());
+        if (!result.isAllowed()) {
+          continue;
+        }
         // Hide unrevealed REACH_TO_REVEAL pins from non-owners
         if (pin.getRevealType() == RevealType.REACH_TO_REVEAL
             && !viewerId.equals(pin.getOwnerId())
             && !unlockedIds.contains(pin.getId())) {
           continue;
         }
-
-        LocationRequest location = applyMapPrecision(pin, pin.getMapPrecision());
-        results.add(new MapPin(
-            pin.getId().toString(),
-            pin.getOwnerId().toString(),
-            location,
-            pin.getMapPrecision(),
-            previewText(pin.getText()),
-            pin.getAudienceType(),
-            pin.getRevealType(),
-            viewerId.equals(pin.getOwnerId())
-        ));
       }
+
+      LocationRequest location = applyMapPrecision(pin);
+      results.add(new MapPin(
+          pin.getId().toString(),
+          pin.getOwnerId().toString(),
+          location,
+          pin.getMapPrecision(),
+          pin.getTextPreview(),
+          pin.getAudienceType(),
+          pin.getRevealType(),
+          viewerId.equals(pin.getOwnerId())
+      ));
     }
 
-    return results;
+    metrics.recordScope("HOME", pins.size(), results.size());
+    return pagedResponse(results, loaded, page);
   }
 
-  public List<MapPin> findOwnPinsInBoundingBox(UUID viewerId, double[] bbox) {
+  public MapPinsResponse findOwnPinsInBoundingBox(UUID viewerId, double[] bbox, MapPage page) {
     Instant now = Instant.now();
-    List<PinEntity> pins = pinRepository.findOwnerPinsInBoundingBox(
-        viewerId,
-        bbox[0],
-        bbox[1],
-        bbox[2],
-        bbox[3],
-        now
-    );
+    List<PinSummary> loaded = findOwnerPinsInBoundingBox(viewerId, bbox, page, now);
+    List<PinSummary> pins = withinPage(loaded, page);
 
     List<MapPin> results = new ArrayList<>();
-    for (PinEntity pin : pins) {
-      LocationRequest location = applyMapPrecision(pin, pin.getMapPrecision());
+    for (PinSummary pin : pins) {
+      LocationRequest location = applyMapPrecision(pin);
       results.add(new MapPin(
           pin.getId().toString(),
           pin.getOwnerId().toString(),
           location,
           pin.getMapPrecision(),
-          previewText(pin.getText()),
+          pin.getTextPreview(),
           pin.getAudienceType(),
           pin.getRevealType(),
           true
       ));
     }
 
-    return results;
+    metrics.recordScope("MINE", pins.size(), results.size());
+    return pagedResponse(results, loaded, page);
   }
 
-  public List<MapPin> findFriendPinsInBoundingBox(UUID viewerId, double[] bbox) {
+  public MapPinsResponse findFriendPinsInBoundingBox(UUID viewerId, double[] bbox, MapPage page) {
     Instant now = Instant.now();
-    List<PinEntity> pins = pinRepository.findInBoundingBox(
-        bbox[0], bbox[1], bbox[2], bbox[3], now
-    );
+    Optional<SocialGraphSnapshot> snapshot = pinAccessService.fetchGraphSnapshot(viewerId);
+    if (snapshot.isEmpty()) {
+      // An empty graph has no friends, so no pin could pass
+      metrics.recordScope("FRIENDS", 0, 0);
+      return new MapPinsResponse(List.of());
+    }
+    MapOwnerFilter ownerFilter = MapOwnerFilter.friends(viewerId, snapshot.get());
+    List<PinSummary> loaded = findCandidatesInBoundingBox(ownerFilter, bbox, page, now);
+    List<PinSummary> pins = withinPage(loaded, page);
 
     Map<UUID, PinAccessService.AccessEvaluationResult> accessResults =
-        pinAccessService.evaluateBatch(pins, viewerId, false);
+        pinAccessService.evaluateBatch(pins, viewerId, false, snapshot.get());
 
     // Filter unrevealed REACH_TO_REVEAL pins for non-owners
     Set<UUID> unlockedIds = getUnlockedReachToRevealIds(pins, accessResults, viewerId);
 
     List<MapPin> results = new ArrayList<>();
-    for (PinEntity pin : pins) {
+    for (PinSummary pin : pins) {
       PinAccessService.AccessEvaluationResult result = accessResults.get(pin.getId());
 
       if (!result.isAllowed() || viewerId.equals(pin.getOwnerId()) || !result.graphView().friend()) {
@@ -144,20 +214,329 @@ public class ProximityService {
         continue;
       }
 
-      LocationRequest location = applyMapPrecision(pin, pin.getMapPrecision());
+      LocationRequest location = applyMapPrecision(pin);
       results.add(new MapPin(
           pin.getId().toString(),
           pin.getOwnerId().toString(),
           location,
           pin.getMapPrecision(),
-          previewText(pin.getText()),
+          pin.getTextPreview(),
           pin.getAudienceType(),
           pin.getRevealType(),
           false
       ));
     }
 
-    return results;
+    metrics.recordScope("FRIENDS", pins.size(), results.size());
+    return pagedResponse(results, loaded, page);
+  }
+
+  /**
+   * Loads one keyset page of the owner's pin summaries in a bounding box, plus one extra
+   * row that signals truncation, from the in-memory index when it is serving.
+   */
+  private List<PinSummary> findOwnerPinsInBoundingBox(UUID ownerId, double[] bbox, MapPage page, Instant now) {
+    if (activePinIndex.isServing()) {
+      return summaries(activePinIndex.findInBoundingBox(bbox, now, pin -> ownerId.equals(pin.getOwnerId()),
+          page.after(), page.limit() + 1));
+    }
+    return pinRepository.findOwnerPinsInBoundingBox(ownerId, bbox[0], bbox[1], bbox[2], bbox[3], now,
+        page.after(), fetchOneMore(page));
+  }
+
+  /**
+   * Loads one keyset page of pin summaries in a bounding box restricted to the filter's owner
+   * sets, plus one extra row that signals truncation, from the in-memory index when it
+   * is serving.
+   */
+  private List<PinSummary> findCandidatesInBoundingBox(
+      MapOwnerFilter ownerFilter,
+      double[] bbox,
+      MapPage page,
+      Instant now
+  ) {
+    if (activePinIndex.isServing()) {
+      return summaries(
+          activePinIndex.findInBoundingBox(bbox, now, ownerFilter::admits, page.after(), page.limit() + 1));
+    }
+    return pinRepository.findVisibleCandidatesInBoundingBox(
+        ownerFilter.viewerId(),
+        ids(ownerFilter.publicOwnerIds()),
+        ids(ownerFilter.friendsOwnerIds()),
+        ids(ownerFilter.followersOwnerIds()),
+        bbox[0],
+        bbox[1],
+        bbox[2],
+        bbox[3],
+        now,
+        page.after(),
+        fetchOneMore(page)
+    );
+  }
+
+  /**
+   * Like findCandidatesInBoundingBox, but without the pins the shared public layer serves.
+   */
+  private List<PinSummary> findPersonalCandidatesInBoundingBox(
+      MapOwnerFilter ownerFilter,
+      double[] bbox,
+      MapPage page,
+      Instant now
+  ) {
+    if (activePinIndex.isServing()) {
+      return summaries(
+          activePinIndex.findInBoundingBox(bbox, now, ownerFilter::admitsPersonal, page.after(), page.limit() + 1));
+    }
+    return pinRepository.findPersonalCandidatesInBoundingBox(
+        ownerFilter.viewerId(),
+        ids(ownerFilter.publicOwnerIds()),
+        ids(ownerFilter.friendsOwnerIds()),
+        ids(ownerFilter.followersOwnerIds()),
+        bbox[0],
+        bbox[1],
+        bbox[2],
+        bbox[3],
+        now,
+        page.after(),
+        fetchOneMore(page)
+    );
+  }
+
+  /**
+   * Merges the shared-layer pins the owner filter admits into the personal candidates in ID
+   * order, keeping at most limit + 1 pins after the cursor so pagedResponse still detects
+   * truncation. Shared pins without ACL rows are added to preApproved: the owner filter has
+   * already checked everything else their access depends on.
+   */
+  private static List<PinSummary> mergeSharedLayer(
+      List<PublicTileCache.SharedPin> shared,
+      List<PinSummary> personal,
+      MapOwnerFilter ownerFilter,
+      MapPage page,
+      Set<UUID> preApproved
+  ) {
+    List<PinSummary> merged = new ArrayList<>(personal.size() + shared.size());
+    int next = 0;
+    for (PublicTileCache.SharedPin candidate : shared) {
+      PinSummary pin = candidate.pin();
+      if (!ownerFilter.admitsShared(pin.getOwnerId()) || MapPage.ID_ORDER.compare(pin.getId(), page.after()) <= 0) {
+        continue;
+      }
+      while (next < personal.size() && MapPage.ID_ORDER.compare(personal.get(next).getId(), pin.getId()) < 0) {
+        merged.add(personal.get(next++));
+      }
+      merged.add(pin);
+      if (!candidate.restricted()) {
+        preApproved.add(pin.getId());
+      }
+    }
+    merged.addAll(personal.subList(next, personal.size()));
+    return merged.size() > page.limit() + 1 ? merged.subList(0, page.limit() + 1) : merged;
+  }
+
+  private static UUID[] ids(Set<UUID> ownerIds) {
+    return ownerIds.toArray(UUID[]::new);
+  }
+
+  private static List<PinSummary> summaries(List<IndexedPin> pins) {
+    return pins.stream().map(PinSummary::of).toList();
+  }
+
+  private static List<IndexedPin> indexed(List<PinEntity> pins) {
+    return pins.stream().map(IndexedPin::of).toList();
+  }
+
+  private static Pageable fetchOneMore(MapPage page) {
+    return PageRequest.of(0, page.limit() + 1);
+  }
+
+  private static List<PinSummary> withinPage(List<PinSummary> loaded, MapPage page) {
+    return loaded.size() > page.limit() ? loaded.subList(0, page.limit()) : loaded;
+  }
+
+  /**
+   * Marks the response truncated when the extra row was loaded; the cursor is the ID of
+   * the last evaluated candidate, whether or not it was visible.
+   */
+  private static MapPinsResponse pagedResponse(List<MapPin> results, List<PinSummary> loaded, MapPage page) {
+    if (loaded.size() <= page.limit()) {
+      return new MapPinsResponse(results);
+    }
+    String nextCursor = loaded.get(page.limit() - 1).getId().toString();
+    return new MapPinsResponse(results, List.of(), true, nextCursor);
+  }
+
+  /**
+   * Loads active pins in the 3x3 cell neighbourhood around a bucket cell, widening to
+   * coarser cells (up to max-level) while the neighbourhood holds fewer than
+   * min-candidates pins. Each probe reads at most max-candidates + 1 rows.
+   *
+   * @param cellId Bucket cell, in leaf hierarchy form (see CellId.parent)
+   * @param cellLevel Level of cellId above the leaf cells
+   * @param now Evaluation time
+   * @return Active pins, newest first; max-candidates + 1 of them when the neighbourhood
+   *     holds more than max-candidates and was truncated
+   */
+  public List<IndexedPin> findActivePinsNear(long cellId, int cellLevel, Instant now) {
+    int level = cellLevel;
+    CellRanges ranges = neighbourhood(cellId, cellLevel, level);
+    long count = countActive(ranges, now);
+    while (count < minCandidates && level < maxCellLevel) {
+      level++;
+      ranges = neighbourhood(cellId, cellLevel, level);
+      count = countActive(ranges, now);
+    }
+    metrics.recordCellLevel(level);
+    if (activePinIndex.isServing()) {
+      return activePinIndex.findInCellRanges(ranges, now, maxCandidates + 1);
+    }
+    return indexed(pinRepository.findActiveInCellRanges(ranges.lows(), ranges.highs(), now, maxCandidates + 1));
+  }
+
+  /**
+   * Loads the active REACH_TO_REVEAL pins of other owners whose reveal radius (or notify
+   * radius when unset) contains the viewer's location. The search is bounded by
+   * brooks.proximity.reveal.max-radius-m, so only pins near the viewer are read.
+   *
+   * @param viewerId The user checking proximity
+   * @param location The viewer's location
+   * @param now Evaluation time
+   * @return Pins whose reveal zone contains the viewer
+   */
+  public List<IndexedPin> findRevealablePinsNear(UUID viewerId, LocationRequest location, Instant now) {
+    if (geofenceIndex.isServing()) {
+      return geofenceIndex.findContaining(viewerId, location.lat(), location.lng(), now);
+    }
+    if (activePinIndex.isServing()) {
+      return activePinIndex.findRevealableNear(viewerId, location.lat(), location.lng(), maxRevealRadiusM, now);
+    }
+    return indexed(pinRepository.findRevealableNear(viewerId, location.lat(), location.lng(), maxRevealRadiusM, now));
+  }
+
+  /**
+   * Loads a pin for a reveal check. Always reads the database: the indexes hold no pin
+   * content and may lag behind a deletion.
+   */
+  public Optional<PinEntity> findPinForReveal(UUID pinId) {
+    return pinRepository.findById(pinId);
+  }
+
+  /**
+   * Finds the REACH_TO_REVEAL pins of other owners whose reveal zone may contain any point
+   * within rangeM of a location: pins within rangeM plus max-reveal-radius, and mystery
+   * polygons near the area. Includes upcoming pins, and pins whose zone turns out not to
+   * reach the area; callers check zones themselves.
+   */
+  public List<IndexedPin> findRevealablePinsAround(UUID viewerId, LocationRequest location, double rangeM, Instant now) {
+    double[] bbox = GeoUtil.boundingBox(location.lat(), location.lng(), rangeM + maxRevealRadiusM);
+    return findRevealablePinsInBoundingBox(viewerId, bbox, now);
+  }
+
+  /**
+   * Finds the pins of other owners whose reveal zone a path passes through: circles the
+   * path comes within the radius of, and mystery polygons a path segment enters. Only
+   * pins active now count, and only through a segment that ends after the pin became
+   * available. Segments longer than trajectory.max-segment-m are not trusted as straight
+   * lines, so only their ends are tested.
+   *
+   * The path is read in chunks spanning at most trajectory.chunk-span-m, each with one
+   * bounding box query, so a batch costs a few queries rather than one per sample.
+   *
+   * @param samples Path samples ordered by recordedAt
+   * @return Reached pins, each once, in the order the path reaches them
+   */
+  public List<IndexedPin> findRevealablePinsAlong(UUID viewerId, List<TrajectorySample> samples, Instant now) {
+    Map<UUID, IndexedPin> reached = new LinkedHashMap<>();
+    int start = 0;
+    while (start < samples.size()) {
+      int end = start;
+      LocationRequest origin = samples.get(start).location();
+      while (end + 1 < samples.size()
+          && GeoUtil.distanceMeters(samples.get(end).location(), samples.get(end + 1).location()) <= trajectoryMaxSegmentM
+          && (end == start || GeoUtil.distanceMeters(origin, samples.get(end + 1).location()) <= trajectoryChunkSpanM)) {
+        end++;
+      }
+
+      for (IndexedPin pin : findRevealablePinsInBoundingBox(viewerId, pathBoundingBox(samples, start, end), now)) {
+        if (reached.containsKey(pin.getId()) || !isActive(pin, now)) {
+          continue;
+        }
+        for (int i = start == end ? start : start + 1; i <= end; i++) {
+          TrajectorySample from = samples.get(i == start ? start : i - 1);
+          TrajectorySample to = samples.get(i);
+          if (!to.recordedAt().isBefore(pin.getAvailableFrom()) && segmentReaches(pin, from, to)) {
+            reached.put(pin.getId(), pin);
+            break;
+          }
+        }
+      }
+      if (end == samples.size() - 1) {
+        break;
+      }
+      // Consecutive chunks share their boundary sample; after a long gap the next chunk starts anew
+      start = end > start ? end : end + 1;
+    }
+    return new ArrayList<>(reached.values());
+  }
+
+  public int maxRevealRadiusM() {
+    return maxRevealRadiusM;
+  }
+
+  private List<IndexedPin> findRevealablePinsInBoundingBox(UUID viewerId, double[] bbox, Instant now) {
+    if (activePinIndex.isServing()) {
+      return activePinIndex.findRevealableInBoundingBox(viewerId, bbox, now);
+    }
+    return indexed(pinRepository.findRevealableInBoundingBox(viewerId, bbox[0], bbox[1], bbox[2], bbox[3], now));
+  }
+
+  /**
+   * Bounding box of samples start..end, widened by max-reveal-radius.
+   */
+  private double[] pathBoundingBox(List<TrajectorySample> samples, int start, int end) {
+    double minLat = Double.MAX_VALUE;
+    double minLng = Double.MAX_VALUE;
+    double maxLat = -Double.MAX_VALUE;
+    double maxLng = -Double.MAX_VALUE;
+    for (int i = start; i <= end; i++) {
+      LocationRequest location = samples.get(i).location();
+      minLat = Math.min(minLat, location.lat());
+      minLng = Math.min(minLng, location.lng());
+      maxLat = Math.max(maxLat, location.lat());
+      maxLng = Math.max(maxLng, location.lng());
+    }
+    double[] southWest = GeoUtil.boundingBox(minLat, minLng, maxRevealRadiusM);
+    double[] northEast = GeoUtil.boundingBox(maxLat, maxLng, maxRevealRadiusM);
+    return new double[]{southWest[0], southWest[1], northEast[2], northEast[3]};
+  }
+
+  private boolean segmentReaches(IndexedPin pin, TrajectorySample from, TrajectorySample to) {
+    if (pin.getMysteryGeom() != null) {
+      return mysteryZones.crosses(pin.getId(), pin.getMysteryGeom(), from.location(), to.location());
+    }
+    Integer radiusM = pin.getRevealRadiusM() != null ? pin.getRevealRadiusM() : pin.getNotifyRadiusM();
+    if (radiusM == null) {
+      return false;
+    }
+    return GeoUtil.segmentDistanceMeters(pin.getLat(), pin.getLng(),
+        from.location().lat(), from.location().lng(), to.location().lat(), to.location().lng())
+        <= Math.min(radiusM, maxRevealRadiusM);
+  }
+
+  private static boolean isActive(IndexedPin pin, Instant now) {
+    return pin.getExpiresAt().isAfter(now) && pin.getAvailableFrom().isBefore(now);
+  }
+
+  private CellRanges neighbourhood(long cellId, int cellLevel, int level) {
+    long[] cells = CellId.withNeighbors(CellId.parent(cellId, level - cellLevel));
+    return CellRanges.of(cells, level);
+  }
+
+  private long countActive(CellRanges ranges, Instant now) {
+    if (activePinIndex.isServing()) {
+      return activePinIndex.countInCellRanges(ranges, now, maxCandidates + 1);
+    }
+    return pinRepository.countActiveInCellRanges(ranges.lows(), ranges.highs(), now, maxCandidates + 1);
   }
 
   /**
@@ -166,17 +545,26 @@ public class ProximityService {
    * register OS-level geofences for.
    *
    * @param viewerId The user requesting candidates
-   * @param bucket The location bucket identifier
-   * @return List of pin candidates with zones but not content
+   * @param bucket The location bucket identifier, a cell ID or a legacy "lat:lng" bucket
+   * @return Full response with pin candidates (zones but not content), truncated when the
+   *     neighbourhood held more than max-candidates active pins
    */
-  public List<PinCandidate> findCandidatesInBucket(UUID viewerId, String bucket) {
+  public PinCandidatesResponse findCandidatesInBucket(UUID viewerId, String bucket) {
     Instant now = Instant.now();
+    long cellId;
+    try {
+      cellId = locationBucket.parseCellId(bucket);
+    } catch (IllegalArgumentException ex) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid bucket");
+    }
 
-    // Query neighboring buckets for candidate pins
-    List<String> buckets = locationBucket.neighbors(bucket);
-    List<PinEntity> pins = pinRepository.findByBucketInAndExpiresAtAfterAndAvailableFromBefore(
-        buckets, now, now
-    );
+    // Query the neighbourhood of the bucket cell, widened where sparse
+    List<IndexedPin> pins = findActivePinsNear(
+        locationBucket.bucketAncestor(cellId), LocationBucket.LEAF_LEVELS, now);
+    boolean truncated = pins.size() > maxCandidates;
+    if (truncated) {
+      pins = pins.subList(0, maxCandidates);
+    }
 
     // Batch evaluate access control
     Map<UUID, PinAccessService.AccessEvaluationResult> accessResults =
@@ -184,25 +572,26 @@ public class ProximityService {
 
     // Build candidates
     List<PinCandidate> candidates = new ArrayList<>();
-    for (PinEntity pin : pins) {
+    for (IndexedPin pin : pins) {
       PinAccessService.AccessEvaluationResult result = accessResults.get(pin.getId());
 
       if (result.isAllowed()) {
         candidates.add(new PinCandidate(
             pin.getId().toString(),
             new LocationRequest(
-                pin.getGeom().getY(),
-                pin.getGeom().getX(),
+                pin.getLat(),
+                pin.getLng(),
                 pin.getAltitudeM()
             ),
             pin.getRevealType(),
-            pin.getRevealRadiusM(),
+            pin.getRevealRadiusM() != null ? Math.min(pin.getRevealRadiusM(), maxRevealRadiusM) : null,
             GeoUtil.toPolygonRequest(pin.getMysteryGeom())
         ));
       }
     }
 
-    return candidates;
+    metrics.recordScope("CANDIDATES", pins.size(), candidates.size());
+    return new PinCandidatesResponse(candidates, truncated);
   }
 
   /**
@@ -211,14 +600,13 @@ public class ProximityService {
    * BLURRED precision rounds to ~1.1km grid.
    *
    * @param pin The pin to get location for
-   * @param precision Desired precision level
-   * @return Location with appropriate precision
+   * @return Location with the pin's map precision
    */
-  private LocationRequest applyMapPrecision(PinEntity pin, MapPrecision precision) {
-    double lat = pin.getGeom().getY();
-    double lng = pin.getGeom().getX();
+  private LocationRequest applyMapPrecision(PinSummary pin) {
+    double lat = pin.getLat();
+    double lng = pin.getLng();
 
-    if (precision == MapPrecision.BLURRED) {
+    if (pin.getMapPrecision() == MapPrecision.BLURRED) {
       // Round to 2 decimal places (~1.1km precision)
       lat = Math.round(lat * 100.0) / 100.0;
       lng = Math.round(lng * 100.0) / 100.0;
@@ -227,22 +615,11 @@ public class ProximityService {
     return new LocationRequest(lat, lng, pin.getAltitudeM());
   }
 
-  private String previewText(String text) {
-    if (text == null || text.isBlank()) {
-      return "Untitled memory";
-    }
-    String normalized = text.trim().replaceAll("\\s+", " ");
-    if (normalized.length() <= 140) {
-      return normalized;
-    }
-    return normalized.substring(0, 137) + "...";
-  }
-
   /**
    * Returns IDs of REACH_TO_REVEAL pins that the viewer has already unlocked.
    */
   private Set<UUID> getUnlockedReachToRevealIds(
-      List<PinEntity> pins,
+      List<PinSummary> pins,
       Map<UUID, PinAccessService.AccessEvaluationResult> accessResults,
       UUID viewerId
   ) {
@@ -253,7 +630,7 @@ public class ProximityService {
           PinAccessService.AccessEvaluationResult result = accessResults.get(pin.getId());
           return result != null && result.isAllowed();
         })
-        .map(PinEntity::getId)
+        .map(PinSummary::getId)
         .collect(Collectors.toList());
 
     if (reachToRevealPinIds.isEmpty()) {
@@ -0,0 +1,311 @@
+package com.brooks.pins.service;
+
+import com.brooks.pins.AccessControlledPin;
+import com.brooks.pins.AudienceType;
+import com.brooks.pins.LocationRequest;
+import com.brooks.pins.MapPrecision;
+import com.brooks.pins.PinAclEntity;
+import com.brooks.pins.PinAclRepository;
+import com.brooks.pins.PinChangedEvent;
+import com.brooks.pins.PinRepository;
+import com.brooks.pins.PinSummary;
+import com.brooks.pins.RevealType;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Shared cache of the public map layer: active PUBLIC, VISIBLE_ALWAYS pins grouped by
+ * Web Mercator tile at a fixed zoom. Whether a viewer may see such a pin depends only on
+ * the owner (blocked, canSeePins) and on the pin's ACL rows, so one entry per tile serves
+ * every viewer; ProximityService filters it by the viewer's owner set and evaluates only
+ * the pins that carry an ACL.
+ *
+ * Entries are gzip-compressed binary in the two-level cache. They are dropped when a pin
+ * in the tile is created or deleted, and reloaded once the earliest expiry or availability
+ * change among their pins has passed. A loaded tile is only cached when the CellVersions
+ * counters covering it did not move during the load, so a read that raced a pin change
+ * cannot overwrite the change's eviction.
+ */
+@Component
+public class PublicTileCache {
+  static final String CACHE_NAME = "publicMapTiles";
+  private static final double MAX_MERCATOR_LAT = 85.05112878;
+
+  private final PinRepository pinRepository;
+  private final PinAclRepository pinAclRepository;
+  private final CacheManager cacheManager;
+  private final CellVersions cellVersions;
+  private final boolean enabled;
+  private final int zoom;
+  private final int maxTiles;
+  private final int maxPinsPerTile;
+
+  public PublicTileCache(
+      PinRepository pinRepository,
+      PinAclRepository pinAclRepository,
+      CacheManager cacheManager,
+      CellVersions cellVersions,
+      @Value("${brooks.pins.map.public-tiles.enabled}") boolean enabled,
+      @Value("${brooks.pins.map.public-tiles.zoom}") int zoom,
+      @Value("${brooks.pins.map.public-tiles.max-tiles}") int maxTiles,
+      @Value("${brooks.pins.map.public-tiles.max-pins-per-tile}") int maxPinsPerTile
+  ) {
+    this.pinRepository = pinRepository;
+    this.pinAclRepository = pinAclRepository;
+    this.cacheManager = cacheManager;
+    this.cellVersions = cellVersions;
+    this.enabled = enabled;
+    this.zoom = zoom;
+    this.maxTiles = maxTiles;
+    this.maxPinsPerTile = maxPinsPerTile;
+  }
+
+  /**
+   * Whether the shared layer serves this pin for viewers other than its owner.
+   */
+  public static boolean isShared(AccessControlledPin pin) {
+    return pin.getAudienceType() == AudienceType.PUBLIC && pin.getRevealType() == RevealType.VISIBLE_ALWAYS;
+  }
+
+  /**
+   * Returns the shared-layer pins inside a bounding box that are within their time window,
+   * in pin ID order. Returns null, so the caller falls back to per-viewer queries, when the
+   * cache is disabled, the box spans more than max-tiles tiles, or one of its tiles holds
+   * more than max-pins-per-tile shared pins.
+   *
+   * @param bbox Bounding box coordinates [minLng, minLat, maxLng, maxLat]
+   */
+  public List<SharedPin> load(double[] bbox, Instant now) {
+    if (!enabled) {
+      return null;
+    }
+    int minX = tileX(bbox[0]);
+    int maxX = tileX(bbox[2]);
+    int minY = tileY(bbox[3]);
+    int maxY = tileY(bbox[1]);
+    if (maxX < minX || maxY < minY || (long) (maxX - minX + 1) * (maxY - minY + 1) > maxTiles) {
+      return null;
+    }
+
+    Cache cache = cacheManager.getCache(CACHE_NAME);
+    List<SharedPin> pins = new ArrayList<>();
+    for (int x = minX; x <= maxX; x++) {
+      for (int y = minY; y <= maxY; y++) {
+        String key = key(x, y);
+        Tile tile = cache.get(key, Tile.class);
+        if (tile == null || tile.validUntil() <= now.toEpochMilli()) {
+          double[] box = tileBox(x, y);
+          long[] versions = cellVersions.inBoundingBox(box);
+          tile = loadTile(x, y, box, now);
+          // A pin changed (and the tile was evicted) while loading: serve, but do not cache
+          if (versions != null && Arrays.equals(versions, cellVersions.inBoundingBox(box))) {
+            cache.put(key, tile);
+          }
+        }
+        if (tile.overflow()) {
+          return null;
+        }
+        for (SharedPin shared : decode(tile.pins())) {
+          PinSummary pin = shared.pin();
+          if (inBoundingBox(bbox, pin)
+              && !now.isBefore(pin.getAvailableFrom()) && now.isBefore(pin.getExpiresAt())) {
+            pins.add(shared);
+          }
+        }
+      }
+    }
+    pins.sort((a, b) -> MapPage.ID_ORDER.compare(a.pin().getId(), b.pin().getId()));
+    return pins;
+  }
+
+  /**
+   * Drops the entry of the tile holding a created or deleted pin, on every node.
+   */
+  @TransactionalEventListener
+  public void onPinChanged(PinChangedEvent event) {
+    LocationRequest location = event.location();
+    if (!enabled || location == null) {
+      return;
+    }
+    cacheManager.getCache(CACHE_NAME).evict(key(tileX(location.lng()), tileY(location.lat())));
+  }
+
+  /**
+   * Loads one tile from the database. Each pin belongs to the single tile that tileX/tileY
+   * assign it, so pins on a shared edge are neither duplicated nor missed on eviction.
+   */
+  private Tile loadTile(int x, int y, double[] box, Instant now) {
+    List<PinSummary> loaded = pinRepository.findPublicLayerInBoundingBox(
+        box[0], box[1], box[2], box[3], now, PageRequest.of(0, maxPinsPerTile + 1));
+    if (loaded.size() > maxPinsPerTile) {
+      // Kept until a pin in the tile changes or the L2 entry expires
+      return new Tile(Long.MAX_VALUE, true, null);
+    }
+
+    List<PinSummary> pins = new ArrayList<>();
+    long validUntil = Long.MAX_VALUE;
+    for (PinSummary pin : loaded) {
+      if (tileX(pin.getLng()) != x || tileY(pin.getLat()) != y) {
+        continue;
+      }
+      pins.add(pin);
+      validUntil = Math.min(validUntil, pin.getExpiresAt().toEpochMilli());
+      if (pin.getAvailableFrom().isAfter(now)) {
+        validUntil = Math.min(validUntil, pin.getAvailableFrom().toEpochMilli());
+      }
+    }
+    Set<UUID> restricted = new HashSet<>();
+    if (!pins.isEmpty()) {
+      for (PinAclEntity acl : pinAclRepository.findByPinIdIn(pins.stream().map(PinSummary::getId).toList())) {
+        restricted.add(acl.getPinId());
+      }
+    }
+    return new Tile(validUntil, false, encode(pins, restricted));
+  }
+
+  /**
+   * Area whose pins belong to a tile, as [minLng, minLat, maxLng, maxLat].
+   */
+  private double[] tileBox(int x, int y) {
+    double[] bounds = VectorTileEncoder.tileBounds(zoom, x, y);
+    // Pins beyond the Mercator latitude limit belong to the first and last rows
+    double minLat = y == (1 << zoom) - 1 ? -90 : bounds[1];
+    double maxLat = y == 0 ? 90 : bounds[3];
+    return new double[]{bounds[0], minLat, bounds[2], maxLat};
+  }
+
+  private static boolean inBoundingBox(double[] bbox, PinSummary pin) {
+    return pin.getLng() >= bbox[0] && pin.getLat() >= bbox[1] && pin.getLng() <= bbox[2] && pin.getLat() <= bbox[3];
+  }
+
+  private String key(int x, int y) {
+    return zoom + "/" + x + "/" + y;
+  }
+
+  int tileX(double lng) {
+    int n = 1 << zoom;
+    return Math.max(0, Math.min(n - 1, (int) Math.floor((lng + 180.0) / 360.0 * n)));
+  }
+
+  int tileY(double lat) {
+    int n = 1 << zoom;
+    double latRad = Math.toRadians(Math.max(-MAX_MERCATOR_LAT, Math.min(MAX_MERCATOR_LAT, lat)));
+    double y = (1.0 - Math.log(Math.tan(latRad) + 1.0 / Math.cos(latRad)) / Math.PI) / 2.0 * n;
+    return Math.max(0, Math.min(n - 1, (int) Math.floor(y)));
+  }
+
+  static byte[] encode(List<PinSummary> pins, Set<UUID> restricted) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+      out.writeInt(pins.size());
+      for (PinSummary pin : pins) {
+        writeUuid(out, pin.getId());
+        writeUuid(out, pin.getOwnerId());
+        out.writeDouble(pin.getLat());
+        out.writeDouble(pin.getLng());
+        out.writeBoolean(pin.getAltitudeM() != null);
+        if (pin.getAltitudeM() != null) {
+          out.writeDouble(pin.getAltitudeM());
+        }
+        out.writeUTF(pin.getTextPreview());
+        out.writeByte(pin.getAudienceType().ordinal());
+        out.writeByte(pin.getRevealType().ordinal());
+        out.writeByte(pin.getMapPrecision().ordinal());
+        writeInstant(out, pin.getAvailableFrom());
+        writeInstant(out, pin.getExpiresAt());
+        out.writeBoolean(pin.isFutureSelf());
+        writeInstant(out, pin.getCreatedAt());
+        out.writeBoolean(restricted.contains(pin.getId()));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  static List<SharedPin> decode(byte[] bytes) {
+    try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(bytes)))) {
+      int size = in.readInt();
+      List<SharedPin> pins = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        UUID id = readUuid(in);
+        UUID ownerId = readUuid(in);
+        double lat = in.readDouble();
+        double lng = in.readDouble();
+        Double altitudeM = in.readBoolean() ? in.readDouble() : null;
+        PinSummary pin = new PinSummary(
+            id,
+            ownerId,
+            lat,
+            lng,
+            altitudeM,
+            in.readUTF(),
+            AudienceType.values()[in.readByte()],
+            RevealType.values()[in.readByte()],
+            MapPrecision.values()[in.readByte()],
+            readInstant(in),
+            readInstant(in),
+            in.readBoolean(),
+            readInstant(in)
+        );
+        pins.add(new SharedPin(pin, in.readBoolean()));
+      }
+      return pins;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+    out.writeLong(id.getMostSignificantBits());
+    out.writeLong(id.getLeastSignificantBits());
+  }
+
+  private static UUID readUuid(DataInputStream in) throws IOException {
+    return new UUID(in.readLong(), in.readLong());
+  }
+
+  private static void writeInstant(DataOutputStream out, Instant instant) throws IOException {
+    out.writeBoolean(instant != null);
+    if (instant != null) {
+      out.writeLong(instant.getEpochSecond());
+      out.writeInt(instant.getNano());
+    }
+  }
+
+  private static Instant readInstant(DataInputStream in) throws IOException {
+    return in.readBoolean() ? Instant.ofEpochSecond(in.readLong(), in.readInt()) : null;
+  }
+
+  /**
+   * Cached value of one tile. Overflowing tiles carry no pins.
+   *
+   * @param validUntil Epoch millis of the earliest expiry or availability change among the pins
+   * @param pins Output of encode()
+   */
+  public record Tile(long validUntil, boolean overflow, byte[] pins) {}
+
+  /**
+   * A shared-layer pin. Restricted pins have ACL rows and still need access evaluation.
+   */
+  public record SharedPin(PinSummary pin, boolean restricted) {}
+}
@@ -0,0 +1,209 @@
+package com.brooks.pins.service;
+
+import com.brooks.pins.LocationRequest;
+import com.brooks.pins.MapCluster;
+import com.brooks.pins.MapPin;
+import com.brooks.pins.MapPinsResponse;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal Mapbox Vector Tile (v2.1) encoder for the pins map layer.
+ * Writes point features only, into a "pins" layer (one feature per MapPin) and a
+ * "clusters" layer (one feature per MapCluster), using the Web Mercator tile scheme.
+ * Protobuf is written by hand to avoid a dependency for a handful of message types.
+ */
+public final class VectorTileEncoder {
+  public static final String MEDIA_TYPE = "application/vnd.mapbox-vector-tile";
+  static final int EXTENT = 4096;
+
+  // vector_tile.proto field numbers
+  private static final int TILE_LAYERS = 3;
+  private static final int LAYER_NAME = 1;
+  private static final int LAYER_FEATURES = 2;
+  private static final int LAYER_KEYS = 3;
+  private static final int LAYER_VALUES = 4;
+  private static final int LAYER_EXTENT = 5;
+  private static final int LAYER_VERSION = 15;
+  private static final int FEATURE_TAGS = 2;
+  private static final int FEATURE_TYPE = 3;
+  private static final int FEATURE_GEOMETRY = 4;
+  private static final int VALUE_STRING = 1;
+  private static final int VALUE_UINT = 5;
+  private static final int VALUE_BOOL = 7;
+  private static final int GEOM_TYPE_POINT = 1;
+  private static final int CMD_MOVE_TO_ONCE = (1 << 3) | 1;
+
+  private VectorTileEncoder() {
+  }
+
+  /**
+   * Returns the bounding box of a tile as [minLng, minLat, maxLng, maxLat].
+   */
+  public static double[] tileBounds(int z, int x, int y) {
+    double n = 1L << z;
+    return new double[]{
+        x / n * 360.0 - 180.0,
+        tileLat(y + 1, n),
+        (x + 1) / n * 360.0 - 180.0,
+        tileLat(y, n)
+    };
+  }
+
+  /**
+   * Checks that tile coordinates exist at the given zoom.
+   */
+  public static boolean isValidTile(int z, int x, int y) {
+    if (z < 0 || z > MapClusterer.MAX_ZOOM) {
+      return false;
+    }
+    long n = 1L << z;
+    return x >= 0 && x < n && y >= 0 && y < n;
+  }
+
+  /**
+   * Encodes the pins and clusters of one tile. Empty layers are omitted.
+   */
+  public static byte[] encode(int z, int x, int y, MapPinsResponse content) {
+    ByteArrayOutputStream tile = new ByteArrayOutputStream();
+    if (!content.pins().isEmpty()) {
+      LayerBuilder layer = new LayerBuilder("pins");
+      for (MapPin pin : content.pins()) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("id", pin.id());
+        properties.put("ownerId", pin.ownerId());
+        properties.put("mapPrecision", pin.mapPrecision().name());
+        properties.put("audienceType", pin.audienceType().name());
+        properties.put("revealType", pin.revealType().name());
+        properties.put("owner", pin.owner());
+        if (pin.textPreview() != null) {
+          properties.put("textPreview", pin.textPreview());
+        }
+        layer.addPoint(tilePoint(pin.location(), z, x, y), properties);
+      }
+      writeBytes(tile, TILE_LAYERS, layer.toByteArray());
+    }
+    if (!content.clusters().isEmpty()) {
+      LayerBuilder layer = new LayerBuilder("clusters");
+      for (MapCluster cluster : content.clusters()) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("cellId", cluster.cellId());
+        properties.put("count", (long) cluster.count());
+        layer.addPoint(tilePoint(cluster.location(), z, x, y), properties);
+      }
+      writeBytes(tile, TILE_LAYERS, layer.toByteArray());
+    }
+    return tile.toByteArray();
+  }
+
+  /**
+   * Projects a location to integer coordinates within the tile extent. Points just
+   * outside the tile (e.g. blurred locations) stay outside rather than being clamped.
+   */
+  static int[] tilePoint(LocationRequest location, int z, int x, int y) {
+    double n = 1L << z;
+    double latRad = Math.toRadians(location.lat());
+    double worldX = (location.lng() + 180.0) / 360.0 * n;
+    double worldY = (1.0 - Math.log(Math.tan(latRad) + 1.0 / Math.cos(latRad)) / Math.PI) / 2.0 * n;
+    return new int[]{
+        (int) Math.round((worldX - x) * EXTENT),
+        (int) Math.round((worldY - y) * EXTENT)
+    };
+  }
+
+  private static double tileLat(int y, double n) {
+    return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y / n))));
+  }
+
+  /**
+   * Accumulates one layer, deduplicating property keys and values as the spec requires.
+   */
+  private static final class LayerBuilder {
+    private final String name;
+    private final Map<String, Integer> keys = new LinkedHashMap<>();
+    private final Map<Object, Integer> values = new LinkedHashMap<>();
+    private final List<byte[]> features = new ArrayList<>();
+
+    LayerBuilder(String name) {
+      this.name = name;
+    }
+
+    void addPoint(int[] point, Map<String, Object> properties) {
+      ByteArrayOutputStream tags = new ByteArrayOutputStream();
+      properties.forEach((key, value) -> {
+        writeVarint(tags, keys.computeIfAbsent(key, k -> keys.size()));
+        writeVarint(tags, values.computeIfAbsent(value, v -> values.size()));
+      });
+      ByteArrayOutputStream geometry = new ByteArrayOutputStream();
+      writeVarint(geometry, CMD_MOVE_TO_ONCE);
+      writeVarint(geometry, zigZag(point[0]));
+      writeVarint(geometry, zigZag(point[1]));
+
+      ByteArrayOutputStream feature = new ByteArrayOutputStream();
+      writeBytes(feature, FEATURE_TAGS, tags.toByteArray());
+      writeTag(feature, FEATURE_TYPE, 0);
+      writeVarint(feature, GEOM_TYPE_POINT);
+      writeBytes(feature, FEATURE_GEOMETRY, geometry.toByteArray());
+      features.add(feature.toByteArray());
+    }
+
+    byte[] toByteArray() {
+      ByteArrayOutputStream layer = new ByteArrayOutputStream();
+      writeTag(layer, LAYER_VERSION, 0);
+      writeVarint(layer, 2);
+      writeBytes(layer, LAYER_NAME, name.getBytes(StandardCharsets.UTF_8));
+      for (byte[] feature : features) {
+        writeBytes(layer, LAYER_FEATURES, feature);
+      }
+      for (String key : keys.keySet()) {
+        writeBytes(layer, LAYER_KEYS, key.getBytes(StandardCharsets.UTF_8));
+      }
+      for (Object value : values.keySet()) {
+        writeBytes(layer, LAYER_VALUES, encodeValue(value));
+      }
+      writeTag(layer, LAYER_EXTENT, 0);
+      writeVarint(layer, EXTENT);
+      return layer.toByteArray();
+    }
+
+    private static byte[] encodeValue(Object value) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      if (value instanceof Boolean bool) {
+        writeTag(out, VALUE_BOOL, 0);
+        writeVarint(out, bool ? 1 : 0);
+      } else if (value instanceof Long number) {
+        writeTag(out, VALUE_UINT, 0);
+        writeVarint(out, number);
+      } else {
+        writeBytes(out, VALUE_STRING, value.toString().getBytes(StandardCharsets.UTF_8));
+      }
+      return out.toByteArray();
+    }
+  }
+
+  private static void writeTag(ByteArrayOutputStream out, int field, int wireType) {
+    writeVarint(out, ((long) field << 3) | wireType);
+  }
+
+  private static void writeBytes(ByteArrayOutputStream out, int field, byte[] bytes) {
+    writeTag(out, field, 2);
+    writeVarint(out, bytes.length);
+    out.writeBytes(bytes);
+  }
+
+  private static void writeVarint(ByteArrayOutputStream out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  private static long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+}
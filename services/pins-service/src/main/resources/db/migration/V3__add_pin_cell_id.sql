@@ -0,0 +1,33 @@
+-- 64-bit Morton cell IDs for location buckets
+-- Replaces string bucket lookups (bucket IN (...9 strings)) with BIGINT lookups.
+-- ${bucket_size_deg} is the configured bucket size (brooks.proximity.bucket-size-deg).
+
+-- Must stay in sync with com.brooks.pins.domain.CellId:
+-- x = floor(lng / size), y = floor(lat / size), offset by 2^31 and bit-interleaved
+-- with x on even bits and y on odd bits.
+CREATE OR REPLACE FUNCTION brooks_cell_id(lat DOUBLE PRECISION, lng DOUBLE PRECISION, size_deg DOUBLE PRECISION)
+RETURNS BIGINT AS $$
+DECLARE
+  x BIGINT := floor(lng / size_deg)::BIGINT + 2147483648;
+  y BIGINT := floor(lat / size_deg)::BIGINT + 2147483648;
+  cell BIGINT := 0;
+BEGIN
+  FOR i IN 0..31 LOOP
+    cell := cell | (((x >> i) & 1) << (2 * i)) | (((y >> i) & 1) << (2 * i + 1));
+  END LOOP;
+  RETURN cell;
+END;
+$$ LANGUAGE plpgsql IMMUTABLE STRICT;
+
+ALTER TABLE pins ADD COLUMN IF NOT EXISTS cell_id BIGINT;
+
+UPDATE pins
+SET cell_id = brooks_cell_id(ST_Y(geom), ST_X(geom), ${bucket_size_deg})
+WHERE cell_id IS NULL;
+
+ALTER TABLE pins ALTER COLUMN cell_id SET NOT NULL;
+
+-- Used by: PinRepository.findActiveInCellRanges and countActiveInCellRanges
+CREATE INDEX IF NOT EXISTS idx_pins_cell_time_composite ON pins (cell_id, expires_at, available_from);
+COMMENT ON INDEX idx_pins_cell_time_composite IS
+  'Optimizes proximity queries filtering by cell ID and time window';
@@ -0,0 +1,12 @@
+-- Hierarchical pin cells
+-- cell_id moves from the bucket grid to a leaf grid 3 quadtree levels finer.
+-- Bucket cells and every coarser cell are prefixes of the leaf ID (cell_id >> 2 * levels),
+-- so each one covers a contiguous cell_id range served by idx_pins_cell_time_composite.
+-- Must stay in sync with com.brooks.pins.LocationBucket.leafCellId and LEAF_LEVELS.
+
+UPDATE pins
+SET cell_id = brooks_cell_id(
+  ST_Y(geom),
+  ST_X(geom),
+  CAST(${bucket_size_deg} AS DOUBLE PRECISION) / (1 << 3)
+);
@@ -0,0 +1,13 @@
+-- Stored text preview for map and profile listings
+-- Lets the PinSummary projection skip the full text column. Whitespace runs collapse to
+-- one space and previews longer than 140 characters end in "..."; blank text stays NULL.
+-- This is the only definition of the preview: PinEntity re-reads the column after every write.
+
+ALTER TABLE pins ADD COLUMN text_preview VARCHAR(140) GENERATED ALWAYS AS (
+  CASE
+    WHEN btrim(regexp_replace(text, '\s+', ' ', 'g')) = '' THEN NULL
+    WHEN char_length(btrim(regexp_replace(text, '\s+', ' ', 'g'))) <= 140
+      THEN btrim(regexp_replace(text, '\s+', ' ', 'g'))
+    ELSE left(btrim(regexp_replace(text, '\s+', ' ', 'g')), 137) || '...'
+  END
+) STORED;
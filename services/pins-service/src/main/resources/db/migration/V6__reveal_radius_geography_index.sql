@@ -0,0 +1,9 @@
+-- Indexed radius search for proximity checks
+-- PinRepository.findRevealableNear bounds REACH_TO_REVEAL pins with
+-- ST_DWithin(CAST(geom AS geography), viewer, max reveal radius); the expression below
+-- must match that query for the planner to use the index.
+
+CREATE INDEX IF NOT EXISTS idx_pins_reveal_geography ON pins USING GIST (CAST(geom AS geography))
+  WHERE reveal_type = 'REACH_TO_REVEAL';
+COMMENT ON INDEX idx_pins_reveal_geography IS
+  'Optimizes metre-radius proximity checks for reach-to-reveal pins';
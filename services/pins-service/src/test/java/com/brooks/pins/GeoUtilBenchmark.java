@@ -0,0 +1,82 @@
+package com.brooks.pins;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares per-point haversine with the batched GeoUtil.withinRadius kernel on a
+ * candidate set shaped like a 3x3 bucket neighbourhood (~3.3 km square) around the
+ * viewer and reveal radii of tens of metres.
+ *
+ * Run with:
+ * mvn -pl services/pins-service test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.brooks.pins.GeoUtilBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeoUtilBenchmark {
+  private static final double VIEWER_LAT = 41.7151;
+  private static final double VIEWER_LNG = 44.8271;
+
+  @Param({"10000"})
+  private int batchSize;
+
+  @Param({"50"})
+  private double radiusMeters;
+
+  private double[] lats;
+  private double[] lngs;
+  private boolean[] within;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    lats = new double[batchSize];
+    lngs = new double[batchSize];
+    within = new boolean[batchSize];
+    for (int i = 0; i < batchSize; i++) {
+      lats[i] = VIEWER_LAT + (random.nextDouble() * 2 - 1) * 0.015;
+      lngs[i] = VIEWER_LNG + (random.nextDouble() * 2 - 1) * 0.015;
+    }
+  }
+
+  @Benchmark
+  public int haversine() {
+    int count = 0;
+    for (int i = 0; i < batchSize; i++) {
+      if (GeoUtil.distanceMeters(VIEWER_LAT, VIEWER_LNG, lats[i], lngs[i]) <= radiusMeters) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Benchmark
+  public int batched() {
+    return GeoUtil.withinRadius(VIEWER_LAT, VIEWER_LNG, radiusMeters, lats, lngs, within);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(GeoUtilBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
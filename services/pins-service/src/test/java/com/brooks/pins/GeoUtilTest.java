@@ -0,0 +1,87 @@
+package com.brooks.pins;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class GeoUtilTest {
+
+  @Test
+  void batchedRadiusTestAgreesWithHaversineEverywhere() {
+    Random random = new Random(7);
+    double[] viewerLats = {0, 41.7151, -33.8688, 60.0, 78.2, 84.9, -89.99};
+    double[] viewerLngs = {0, 44.8271, 151.2093, 179.9995, -179.9995, 10.0, 0};
+    double[] radii = {5, 50, 300, 2000};
+    for (int v = 0; v < viewerLats.length; v++) {
+      for (double radius : radii) {
+        int n = 20_000;
+        double[] lats = new double[n];
+        double[] lngs = new double[n];
+        double spread = Math.toDegrees(3 * radius / 6371000.0);
+        for (int i = 0; i < n; i++) {
+          lats[i] = Math.max(-90, Math.min(90, viewerLats[v] + (random.nextDouble() * 2 - 1) * spread));
+          double lng = viewerLngs[v] + (random.nextDouble() * 2 - 1) * spread * 8;
+          lngs[i] = lng > 180 ? lng - 360 : (lng < -180 ? lng + 360 : lng);
+        }
+        boolean[] within = new boolean[n];
+
+        int count = GeoUtil.withinRadius(viewerLats[v], viewerLngs[v], radius, lats, lngs, within);
+
+        int expectedCount = 0;
+        for (int i = 0; i < n; i++) {
+          boolean expected = GeoUtil.distanceMeters(viewerLats[v], viewerLngs[v], lats[i], lngs[i]) <= radius;
+          assertThat(within[i])
+              .as("viewer %s,%s point %s,%s radius %s", viewerLats[v], viewerLngs[v], lats[i], lngs[i], radius)
+              .isEqualTo(expected);
+          expectedCount += expected ? 1 : 0;
+        }
+        assertThat(count).isEqualTo(expectedCount);
+      }
+    }
+  }
+
+  @Test
+  void pointsOnTheThresholdUseTheExactDistance() {
+    double lat = 41.7151;
+    double lng = 44.8271;
+    double[] lats = new double[360];
+    double[] lngs = new double[360];
+    double[] radii = new double[360];
+    for (int i = 0; i < 360; i++) {
+      double bearing = Math.toRadians(i);
+      lats[i] = lat + Math.toDegrees(100 / 6371000.0) * Math.cos(bearing);
+      lngs[i] = lng + Math.toDegrees(100 / 6371000.0) * Math.sin(bearing) / Math.cos(Math.toRadians(lat));
+      radii[i] = GeoUtil.distanceMeters(lat, lng, lats[i], lngs[i]);
+    }
+    boolean[] within = new boolean[360];
+
+    assertThat(GeoUtil.withinRadii(lat, lng, lats, lngs, radii, within)).isEqualTo(360);
+
+    for (int i = 0; i < 360; i++) {
+      radii[i] = Math.nextDown(radii[i]);
+    }
+    assertThat(GeoUtil.withinRadii(lat, lng, lats, lngs, radii, within)).isZero();
+  }
+
+  @Test
+  void boundingBoxContainsTheRadius() {
+    double[] bbox = GeoUtil.boundingBox(60.0, 10.0, 1000);
+
+    assertThat(GeoUtil.distanceMeters(60.0, 10.0, bbox[3], 10.0)).isCloseTo(1000, offset(1e-6));
+    assertThat(GeoUtil.distanceMeters(60.0, 10.0, 60.0, bbox[2])).isGreaterThan(1000);
+  }
+
+  @Test
+  void segmentDistanceMeasuresToTheClosestPointOfTheSegment() {
+    // Path ~3.3 km east along 41.7N passing ~44 m south of the point
+    assertThat(GeoUtil.segmentDistanceMeters(41.7004, 44.8, 41.7, 44.78, 41.7, 44.82))
+        .isCloseTo(GeoUtil.distanceMeters(41.7004, 44.8, 41.7, 44.8), offset(0.5));
+    // Beyond the ends, and for zero-length segments, it is the distance to the nearest sample
+    assertThat(GeoUtil.segmentDistanceMeters(41.7, 44.85, 41.7, 44.78, 41.7, 44.82))
+        .isEqualTo(GeoUtil.distanceMeters(41.7, 44.85, 41.7, 44.82));
+    assertThat(GeoUtil.segmentDistanceMeters(41.7004, 44.8, 41.7, 44.81, 41.7, 44.81))
+        .isEqualTo(GeoUtil.distanceMeters(41.7004, 44.8, 41.7, 44.81));
+  }
+}
@@ -0,0 +1,44 @@
+package com.brooks.pins;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class PinAccessPolicyTest {
+  private final PinAccessPolicy policy = new PinAccessPolicy();
+
+  @Test
+  void compiledEvaluationMatchesRuleChainForEveryInput() {
+    for (int bits = 0; bits < 1 << 10; bits++) {
+      for (RevealType revealType : RevealType.values()) {
+        PinAccessPolicy.PolicyInput input = new PinAccessPolicy.PolicyInput(
+            (bits & 1) != 0,
+            (bits & 1 << 1) != 0,
+            (bits & 1 << 2) != 0,
+            (bits & 1 << 3) != 0,
+            (bits & 1 << 4) != 0,
+            (bits & 1 << 5) != 0,
+            (bits & 1 << 6) != 0,
+            (bits & 1 << 7) != 0,
+            revealType,
+            (bits & 1 << 8) != 0,
+            (bits & 1 << 9) != 0
+        );
+
+        PinAccessPolicy.PolicyDecision expected = policy.evaluate(input);
+        PinAccessPolicy.PolicyDecision compiled = policy.evaluate(PinAccessPolicy.factors(input));
+
+        assertThat(compiled).as("input %s", input).isEqualTo(expected);
+        assertThat(compiled).isSameAs(expected);
+      }
+    }
+  }
+
+  @Test
+  void decisionsAreSharedInstances() {
+    assertThat(PinAccessPolicy.PolicyDecision.allow()).isSameAs(PinAccessPolicy.PolicyDecision.allow());
+    assertThat(PinAccessPolicy.PolicyDecision.deny("ACL")).isSameAs(PinAccessPolicy.PolicyDecision.deny("ACL"));
+    assertThat(PinAccessPolicy.PolicyDecision.deny("OTHER"))
+        .isEqualTo(new PinAccessPolicy.PolicyDecision(false, "OTHER"));
+  }
+}
@@ -0,0 +1,248 @@
+package com.brooks.pins;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.brooks.pins.domain.CellId;
+import com.brooks.pins.domain.CellRanges;
+import com.brooks.pins.service.MapPage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * Runs the cell ID SQL function, the cell re-encoding migration, the generated text
+ * preview column and the native queries against PostGIS, checking them against their
+ * Java counterparts where they have one.
+ */
+@DataJpaTest
+@Testcontainers(disabledWithoutDocker = true)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class PinQueriesIntegrationTest {
+  private static final double BUCKET_SIZE_DEG = 0.01;
+  private static final int LEAF_LEVELS = LocationBucket.LEAF_LEVELS;
+
+  @Container
+  static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(
+      DockerImageName.parse("postgis/postgis:16-3.4").asCompatibleSubstituteFor("postgres"))
+      .withDatabaseName("pins_db")
+      .withUsername("pins_user")
+      .withPassword("pins_pass");
+
+  @DynamicPropertySource
+  static void registerProps(DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+    registry.add("spring.datasource.username", POSTGRES::getUsername);
+    registry.add("spring.datasource.password", POSTGRES::getPassword);
+    registry.add("brooks.proximity.bucket-size-deg", () -> BUCKET_SIZE_DEG);
+  }
+
+  private final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+  private final LocationBucket locationBucket = new LocationBucket(BUCKET_SIZE_DEG);
+  private final Instant now = Instant.now();
+
+  @Autowired
+  PinRepository pinRepository;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @ParameterizedTest
+  @CsvSource({
+      "41.7151, 44.8271",
+      "-33.8688, 151.2093",
+      "40.7128, -74.0060",
+      "-22.9068, -43.1729",
+      "0.0, 0.0",
+      "-0.000001, -0.000001",
+      "0.005, -0.005",
+      "89.99999, 180.0",
+      "-89.99999, -180.0",
+      "52.0, 179.99999",
+      "-52.0, -179.99999"
+  })
+  void sqlCellIdsMatchCellId(double lat, double lng) {
+    long bucketCell = sqlCellId(lat, lng, BUCKET_SIZE_DEG);
+    long leafCell = sqlCellId(lat, lng, BUCKET_SIZE_DEG / (1 << LEAF_LEVELS));
+
+    assertThat(bucketCell).isEqualTo(CellId.of(lat, lng, BUCKET_SIZE_DEG)).isEqualTo(locationBucket.cellId(lat, lng));
+    assertThat(leafCell).isEqualTo(locationBucket.leafCellId(lat, lng));
+    assertThat(CellId.fromGrid(bucketCell, LEAF_LEVELS)).isEqualTo(CellId.parent(leafCell, LEAF_LEVELS));
+  }
+
+  @Test
+  void cellMigrationReencodesStoredPinsToLeafCells() throws IOException {
+    PinEntity east = pinRepository.saveAndFlush(pin(41.7151, 44.8271, RevealType.VISIBLE_ALWAYS));
+    PinEntity west = pinRepository.saveAndFlush(pin(-12.0464, -77.0428, RevealType.VISIBLE_ALWAYS));
+    jdbcTemplate.update("UPDATE pins SET cell_id = brooks_cell_id(ST_Y(geom), ST_X(geom), ?)", BUCKET_SIZE_DEG);
+
+    String migration = new ClassPathResource("db/migration/V4__hierarchical_pin_cells.sql")
+        .getContentAsString(StandardCharsets.UTF_8)
+        .replace("${bucket_size_deg}", Double.toString(BUCKET_SIZE_DEG));
+    jdbcTemplate.execute(migration);
+
+    assertThat(storedCellId(east.getId())).isEqualTo(locationBucket.leafCellId(41.7151, 44.8271));
+    assertThat(storedCellId(west.getId())).isEqualTo(locationBucket.leafCellId(-12.0464, -77.0428));
+  }
+
+  @Test
+  void generatedTextPreviewIsReadBackIntoEntitiesAndSummaries() {
+    Map<String, String> previews = Map.of(
+        "  Sunset\n\tover   the river ", "Sunset over the river",
+        "x".repeat(140), "x".repeat(140),
+        "word ".repeat(60), "word ".repeat(27) + "wo..."
+    );
+    UUID ownerId = UUID.randomUUID();
+    for (Map.Entry<String, String> preview : previews.entrySet()) {
+      PinEntity pin = pin(41.7151, 44.8271, RevealType.VISIBLE_ALWAYS);
+      pin.setOwnerId(ownerId);
+      pin.setText(preview.getKey());
+      assertThat(pinRepository.saveAndFlush(pin).getTextPreview()).isEqualTo(preview.getValue());
+    }
+    PinEntity blank = pin(41.7151, 44.8271, RevealType.VISIBLE_ALWAYS);
+    blank.setOwnerId(ownerId);
+    blank.setText(" \n\t ");
+    assertThat(pinRepository.saveAndFlush(blank).getTextPreview()).isNull();
+
+    assertThat(pinRepository.findSummariesByOwner(ownerId, now))
+        .extracting(PinSummary::getTextPreview)
+        .containsExactlyInAnyOrderElementsOf(
+            Stream.concat(previews.values().stream(), Stream.of(PinSummary.UNTITLED)).toList());
+  }
+
+  @Test
+  void cellRangeQueriesFindPinsAcrossTheAntimeridian() {
+    PinEntity east = pinRepository.saveAndFlush(pin(-16.5, 179.9999, RevealType.VISIBLE_ALWAYS));
+    PinEntity west = pinRepository.saveAndFlush(pin(-16.5, -179.9999, RevealType.VISIBLE_ALWAYS));
+    pinRepository.saveAndFlush(pin(41.7151, 44.8271, RevealType.VISIBLE_ALWAYS));
+
+    CellRanges ranges = CellRanges.of(new long[]{
+        CellId.parent(east.getCellId(), LEAF_LEVELS),
+        CellId.parent(west.getCellId(), LEAF_LEVELS)
+    }, LEAF_LEVELS);
+
+    assertThat(pinRepository.findActiveInCellRanges(ranges.lows(), ranges.highs(), now, 10))
+        .extracting(PinEntity::getId)
+        .containsExactlyInAnyOrder(east.getId(), west.getId());
+    assertThat(pinRepository.countActiveInCellRanges(ranges.lows(), ranges.highs(), now, 10)).isEqualTo(2);
+    assertThat(pinRepository.countActiveInCellRanges(ranges.lows(), ranges.highs(), now, 1)).isEqualTo(1);
+  }
+
+  @Test
+  void visibleCandidateQueriesMatchOwnerArraysByAudience() {
+    UUID viewerId = UUID.randomUUID();
+    UUID friend = UUID.randomUUID();
+    UUID stranger = UUID.randomUUID();
+    PinEntity own = pin(41.7151, 44.8271, RevealType.VISIBLE_ALWAYS);
+    own.setOwnerId(viewerId);
+    own.setAudienceType(AudienceType.PRIVATE);
+    PinEntity friendOnly = pin(41.7152, 44.8272, RevealType.VISIBLE_ALWAYS);
+    friendOnly.setOwnerId(friend);
+    friendOnly.setAudienceType(AudienceType.FRIENDS);
+    PinEntity strangerPublic = pin(41.7153, 44.8273, RevealType.VISIBLE_ALWAYS);
+    strangerPublic.setOwnerId(stranger);
+    PinEntity strangerFriendsOnly = pin(41.7154, 44.8274, RevealType.REACH_TO_REVEAL);
+    strangerFriendsOnly.setOwnerId(stranger);
+    strangerFriendsOnly.setAudienceType(AudienceType.FRIENDS);
+    pinRepository.saveAllAndFlush(List.of(own, friendOnly, strangerPublic, strangerFriendsOnly));
+    // Well past the bind parameter limit of an IN list
+    UUID[] publicOwners = Stream.concat(Stream.of(friend, stranger), Stream.generate(UUID::randomUUID).limit(70_000))
+        .toArray(UUID[]::new);
+
+    assertThat(pinRepository.findVisibleCandidatesInBoundingBox(viewerId, publicOwners, new UUID[]{friend},
+        new UUID[0], 44.8, 41.7, 44.9, 41.8, now, MapPage.START, PageRequest.of(0, 10)))
+        .extracting(PinSummary::getId)
+        .containsExactlyInAnyOrder(own.getId(), friendOnly.getId(), strangerPublic.getId());
+    assertThat(pinRepository.findPersonalCandidatesInBoundingBox(viewerId, publicOwners, new UUID[]{friend},
+        new UUID[0], 44.8, 41.7, 44.9, 41.8, now, MapPage.START, PageRequest.of(0, 10)))
+        .extracting(PinSummary::getId)
+        .containsExactlyInAnyOrder(own.getId(), friendOnly.getId());
+  }
+
+  @Test
+  void revealQueriesMatchRadiusAndMysteryZones() {
+    UUID viewerId = UUID.randomUUID();
+    // ~44 m north of (41.7, 44.8) with a 60 m radius, and one ~2.2 km north
+    PinEntity near = pin(41.7004, 44.8, RevealType.REACH_TO_REVEAL);
+    near.setRevealRadiusM(60);
+    PinEntity far = pin(41.72, 44.8, RevealType.REACH_TO_REVEAL);
+    far.setRevealRadiusM(60);
+    PinEntity zoned = pin(41.71, 44.81, RevealType.REACH_TO_REVEAL);
+    zoned.setMysteryGeom(geometryFactory.createPolygon(new Coordinate[]{
+        new Coordinate(44.799, 41.699), new Coordinate(44.801, 41.699), new Coordinate(44.801, 41.701),
+        new Coordinate(44.799, 41.701), new Coordinate(44.799, 41.699)
+    }));
+    PinEntity own = pin(41.7, 44.8, RevealType.REACH_TO_REVEAL);
+    own.setOwnerId(viewerId);
+    own.setRevealRadiusM(60);
+    pinRepository.saveAllAndFlush(List.of(near, far, zoned, own));
+
+    assertThat(pinRepository.findRevealableNear(viewerId, 41.7, 44.8, 2000, now))
+        .extracting(PinEntity::getId)
+        .containsExactlyInAnyOrder(near.getId(), zoned.getId());
+    assertThat(pinRepository.findRevealableInBoundingBox(viewerId, 44.79, 41.69, 44.805, 41.705, now))
+        .extracting(PinEntity::getId)
+        .containsExactlyInAnyOrder(near.getId(), zoned.getId());
+  }
+
+  @Test
+  void cleanupQueriesRemoveOnlyPinsExpiredBeforeTheCutoff() {
+    PinEntity expired = pin(41.7151, 44.8271, RevealType.VISIBLE_ALWAYS);
+    expired.setAvailableFrom(now.minusSeconds(7200));
+    expired.setExpiresAt(now.minusSeconds(3600));
+    PinEntity active = pin(41.7151, 44.8271, RevealType.VISIBLE_ALWAYS);
+    pinRepository.saveAllAndFlush(List.of(expired, active));
+
+    assertThat(pinRepository.deleteExpiredPins(now, 10)).isEqualTo(1);
+    assertThat(pinRepository.findAllById(List.of(expired.getId(), active.getId())))
+        .extracting(PinEntity::getId)
+        .containsExactly(active.getId());
+  }
+
+  private long sqlCellId(double lat, double lng, double sizeDeg) {
+    return jdbcTemplate.queryForObject("SELECT brooks_cell_id(?, ?, ?)", Long.class, lat, lng, sizeDeg);
+  }
+
+  private long storedCellId(UUID pinId) {
+    return jdbcTemplate.queryForObject("SELECT cell_id FROM pins WHERE id = ?", Long.class, pinId);
+  }
+
+  private PinEntity pin(double lat, double lng, RevealType revealType) {
+    PinEntity pin = new PinEntity();
+    pin.setOwnerId(UUID.randomUUID());
+    pin.setText("Hello");
+    pin.setAudienceType(AudienceType.PUBLIC);
+    pin.setAvailableFrom(now.minusSeconds(60));
+    pin.setExpiresAt(now.plusSeconds(3600));
+    pin.setRevealType(revealType);
+    pin.setMapPrecision(MapPrecision.EXACT);
+    pin.setNotifyCooldownSeconds(3600);
+    pin.setNotifyRepeatable(false);
+    pin.setFutureSelf(false);
+    pin.setBucket(locationBucket.bucket(lat, lng));
+    pin.setCellId(locationBucket.leafCellId(lat, lng));
+    pin.setGeom(geometryFactory.createPoint(new Coordinate(lng, lat)));
+    return pin;
+  }
+}
@@ -0,0 +1,35 @@
+package com.brooks.pins;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+
+class PinSummaryTest {
+
+  @Test
+  void indexedPinProjectionCarriesCoordinatesAndPreview() {
+    PinEntity pin = new PinEntity();
+    pin.setId(UUID.randomUUID());
+    pin.setOwnerId(UUID.randomUUID());
+    pin.setText("   ");
+    pin.setAudienceType(AudienceType.FRIENDS);
+    pin.setRevealType(RevealType.VISIBLE_ALWAYS);
+    pin.setMapPrecision(MapPrecision.BLURRED);
+    pin.setAvailableFrom(Instant.EPOCH);
+    pin.setExpiresAt(Instant.EPOCH.plusSeconds(60));
+    pin.setGeom(new GeometryFactory(new PrecisionModel(), 4326).createPoint(new Coordinate(44.8271, 41.7151)));
+
+    PinSummary summary = PinSummary.of(IndexedPin.of(pin));
+
+    assertThat(summary.getId()).isEqualTo(pin.getId());
+    assertThat(summary.getLat()).isEqualTo(41.7151);
+    assertThat(summary.getLng()).isEqualTo(44.8271);
+    assertThat(summary.getTextPreview()).isEqualTo(PinSummary.UNTITLED);
+    assertThat(summary.getAudienceType()).isEqualTo(AudienceType.FRIENDS);
+  }
+}
@@ -2,6 +2,8 @@ package com.brooks.pins;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.brooks.pins.domain.CellId;
+import com.brooks.pins.domain.CellRanges;
 import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
@@ -57,6 +59,7 @@ class PinsServiceIntegrationTest {
     pin.setNotifyRepeatable(false);
     pin.setFutureSelf(false);
     pin.setBucket("0.00000:0.00000");
+    pin.setCellId(CellId.encode(0, 0));
     pin.setGeom(factory.createPoint(new Coordinate(0.0, 0.0)));
 
     pinRepository.save(pin);
@@ -64,6 +67,11 @@ class PinsServiceIntegrationTest {
     List<PinEntity> found = pinRepository.findByBucketInAndExpiresAtAfterAndAvailableFromBefore(
         List.of("0.00000:0.00000"), Instant.now(), Instant.now());
     assertThat(found).isNotEmpty();
+    CellRanges ranges = CellRanges.of(new long[]{CellId.parent(CellId.encode(0, 0), 2)}, 2);
+    assertThat(pinRepository.findActiveInCellRanges(ranges.lows(), ranges.highs(), Instant.now(), 10))
+        .isNotEmpty();
+    assertThat(pinRepository.countActiveInCellRanges(ranges.lows(), ranges.highs(), Instant.now(), 10))
+        .isEqualTo(1);
   }
 }
 
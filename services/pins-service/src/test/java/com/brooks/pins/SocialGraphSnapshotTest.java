@@ -0,0 +1,65 @@
+package com.brooks.pins;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class SocialGraphSnapshotTest {
+
+  @Test
+  void viewOfMatchesMembershipOfEveryPackedArray() {
+    List<UUID> friends = randomIds(64);
+    List<UUID> blocked = randomIds(3);
+    UUID hiddenFriend = friends.get(7);
+    SocialGraphSnapshot snapshot = new SocialGraphSnapshot(
+        pack(friends),
+        pack(friends.subList(0, 10)),
+        pack(blocked),
+        pack(friends.stream().filter(id -> !id.equals(hiddenFriend)).toList()),
+        new long[0]
+    );
+
+    for (UUID friend : friends) {
+      SocialGraphView view = snapshot.viewOf(friend);
+      assertThat(view.friend()).isTrue();
+      assertThat(view.blocked()).isFalse();
+      assertThat(view.canSeePins()).isEqualTo(!friend.equals(hiddenFriend));
+      assertThat(view.canReceiveNotifications()).isFalse();
+    }
+    assertThat(snapshot.viewOf(friends.get(3)).follower()).isEqualTo(friends.subList(0, 10).contains(friends.get(3)));
+    assertThat(snapshot.viewOf(blocked.get(1))).isEqualTo(new SocialGraphView(true, false, false, false, false));
+    assertThat(snapshot.viewOf(UUID.randomUUID())).isEqualTo(new SocialGraphView(false, false, false, false, false));
+  }
+
+  @Test
+  void emptySnapshotDeniesEveryRelationship() {
+    assertThat(SocialGraphSnapshot.EMPTY.isEmpty()).isTrue();
+    assertThat(SocialGraphSnapshot.EMPTY.viewOf(UUID.randomUUID()))
+        .isEqualTo(new SocialGraphView(false, false, false, false, false));
+  }
+
+  private static List<UUID> randomIds(int count) {
+    List<UUID> ids = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      ids.add(UUID.randomUUID());
+    }
+    return ids;
+  }
+
+  private static long[] pack(List<UUID> ids) {
+    List<UUID> sorted = ids.stream()
+        .sorted(Comparator.comparingLong(UUID::getMostSignificantBits)
+            .thenComparingLong(UUID::getLeastSignificantBits))
+        .toList();
+    long[] packed = new long[sorted.size() * 2];
+    for (int i = 0; i < sorted.size(); i++) {
+      packed[2 * i] = sorted.get(i).getMostSignificantBits();
+      packed[2 * i + 1] = sorted.get(i).getLeastSignificantBits();
+    }
+    return packed;
+  }
+}
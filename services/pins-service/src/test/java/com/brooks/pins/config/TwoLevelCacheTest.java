@@ -0,0 +1,77 @@
+package com.brooks.pins.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+class TwoLevelCacheTest {
+  private ConcurrentMapCache l2;
+  private CacheInvalidationPublisher publisher;
+  private SimpleMeterRegistry meterRegistry;
+  private TwoLevelCache cache;
+
+  @BeforeEach
+  void setUp() {
+    l2 = new ConcurrentMapCache("socialGraphView");
+    publisher = mock(CacheInvalidationPublisher.class);
+    meterRegistry = new SimpleMeterRegistry();
+    cache = new TwoLevelCache(
+        "socialGraphView",
+        Caffeine.newBuilder().maximumSize(100).expireAfterWrite(Duration.ofSeconds(5)).build(),
+        l2,
+        publisher,
+        meterRegistry
+    );
+  }
+
+  @Test
+  void l2HitIsPromotedToL1() {
+    l2.put("a|b", "view");
+
+    assertThat(cache.get("a|b", String.class)).isEqualTo("view");
+    l2.evict("a|b");
+    assertThat(cache.get("a|b", String.class)).isEqualTo("view");
+
+    assertThat(count("l1", "hit")).isEqualTo(1.0);
+    assertThat(count("l1", "miss")).isEqualTo(1.0);
+    assertThat(count("l2", "hit")).isEqualTo(1.0);
+  }
+
+  @Test
+  void evictDropsBothLayersAndBroadcasts() {
+    cache.put("a|b", "view");
+
+    cache.evict("a|b");
+
+    assertThat(cache.get("a|b")).isNull();
+    assertThat(l2.get("a|b")).isNull();
+    verify(publisher).publishEvict("socialGraphView", "a|b");
+  }
+
+  @Test
+  void localEvictionKeepsRedisEntry() {
+    cache.put("a|b", "view");
+
+    cache.evictLocal("a|b");
+
+    assertThat(l2.get("a|b")).isNotNull();
+    assertThat(cache.get("a|b", String.class)).isEqualTo("view");
+    assertThat(count("l2", "hit")).isEqualTo(1.0);
+  }
+
+  private double count(String layer, String result) {
+    return meterRegistry.get("brooks.cache.gets")
+        .tag("cache", "socialGraphView")
+        .tag("layer", layer)
+        .tag("result", result)
+        .counter()
+        .count();
+  }
+}
@@ -0,0 +1,110 @@
+package com.brooks.pins.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.brooks.pins.LocationBucket;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CellIdTest {
+  private static final double SIZE = 0.01;
+
+  @Test
+  void encodeRoundTripsSignedCoordinates() {
+    long[][] coordinates = {{0, 0}, {-1, -1}, {18000, -9000}, {-18000, 9000}, {Integer.MAX_VALUE, Integer.MIN_VALUE}};
+    for (long[] xy : coordinates) {
+      long cell = CellId.encode(xy[0], xy[1]);
+      assertThat(CellId.x(cell)).isEqualTo(xy[0]);
+      assertThat(CellId.y(cell)).isEqualTo(xy[1]);
+    }
+  }
+
+  @Test
+  void neighboursMatchDecodedGridOffsets() {
+    long[][] centres = {{0, 0}, {-1, 0}, {0, -1}, {12345, -6789}, {-18000, -9000}};
+    for (long[] xy : centres) {
+      List<Long> expected = new ArrayList<>();
+      for (int dy = -1; dy <= 1; dy++) {
+        for (int dx = -1; dx <= 1; dx++) {
+          expected.add(CellId.encode(xy[0] + dx, xy[1] + dy));
+        }
+      }
+      long[] neighbours = CellId.withNeighbors(CellId.encode(xy[0], xy[1]));
+      assertThat(neighbours).containsExactly(expected.stream().mapToLong(Long::longValue).toArray());
+    }
+  }
+
+  @Test
+  void locationsMapToFlooredGridCells() {
+    long cell = CellId.of(41.7151, 44.8271, SIZE);
+
+    assertThat(CellId.x(cell)).isEqualTo(4482);
+    assertThat(CellId.y(cell)).isEqualTo(4171);
+    assertThat(CellId.x(CellId.of(-0.001, -0.001, SIZE))).isEqualTo(-1);
+  }
+
+  @Test
+  void legacyBucketStringsParseToTheSameCell() {
+    LocationBucket locationBucket = new LocationBucket(SIZE);
+    double[][] locations = {{41.7151, 44.8271}, {-33.8688, 151.2093}, {40.7128, -74.0060}, {-0.001, -0.001}};
+    for (double[] location : locations) {
+      long cell = locationBucket.cellId(location[0], location[1]);
+      assertThat(locationBucket.parseCellId(locationBucket.bucket(location[0], location[1]))).isEqualTo(cell);
+      assertThat(locationBucket.parseCellId(Long.toString(cell))).isEqualTo(cell);
+    }
+  }
+
+  @Test
+  void malformedBucketsAreRejected() {
+    LocationBucket locationBucket = new LocationBucket(SIZE);
+
+    assertThatThrownBy(() -> locationBucket.parseCellId("north:east"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> locationBucket.parseCellId("cell-7"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void descendantsShareTheParentPrefix() {
+    long leaf = CellId.of(41.7151, 44.8271, SIZE / 8);
+    long bucket = CellId.of(41.7151, 44.8271, SIZE);
+
+    long ancestor = CellId.fromGrid(bucket, 3);
+
+    assertThat(CellId.parent(leaf, 3)).isEqualTo(ancestor);
+    assertThat(leaf).isBetween(CellId.firstDescendant(ancestor, 3), CellId.lastDescendant(ancestor, 3));
+    assertThat(CellId.lastDescendant(ancestor, 3) - CellId.firstDescendant(ancestor, 3)).isEqualTo(63);
+    long southWest = CellId.of(-0.004, -0.004, SIZE / 8);
+    assertThat(CellId.parent(southWest, 3)).isEqualTo(CellId.fromGrid(CellId.of(-0.004, -0.004, SIZE), 3));
+  }
+
+  @Test
+  void rangesCoverExactlyTheRequestedCells() {
+    long bucket = CellId.of(-33.8688, 151.2093, SIZE);
+    long[] block = CellId.withNeighbors(bucket);
+    CellRanges ranges = CellRanges.of(block, 2);
+
+    assertThat(ranges.size()).isBetween(1, 9);
+    for (long cell : block) {
+      assertThat(ranges.contains(CellId.firstDescendant(cell, 2))).isTrue();
+      assertThat(ranges.contains(CellId.lastDescendant(cell, 2))).isTrue();
+    }
+    long outside = CellId.encode(CellId.x(bucket) + 2, CellId.y(bucket));
+    assertThat(ranges.contains(CellId.firstDescendant(outside, 2))).isFalse();
+    for (int i = 1; i < ranges.size(); i++) {
+      assertThat(ranges.low(i)).isGreaterThan(ranges.high(i - 1) + 1);
+    }
+  }
+
+  @Test
+  void zOrderAdjacentCellsMergeIntoOneRange() {
+    // Cells 4..7 are the four children of level-1 cell 1
+    CellRanges ranges = CellRanges.of(new long[]{7, 4, 6, 5}, 1);
+
+    assertThat(ranges.size()).isEqualTo(1);
+    assertThat(ranges.low(0)).isEqualTo(16);
+    assertThat(ranges.high(0)).isEqualTo(31);
+  }
+}
@@ -0,0 +1,232 @@
+package com.brooks.pins.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.brooks.pins.AudienceType;
+import com.brooks.pins.IndexedPin;
+import com.brooks.pins.PinEntity;
+import com.brooks.pins.PinRepository;
+import com.brooks.pins.RevealType;
+import com.brooks.pins.domain.CellRanges;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.PrecisionModel;
+
+class ActivePinIndexTest {
+  private final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+  private final Instant now = Instant.now();
+
+  private PinRepository pinRepository;
+  private ActivePinIndex index;
+  private PinEntity inside;
+  private PinEntity onEdge;
+  private PinEntity outside;
+  private PinEntity upcoming;
+
+  @BeforeEach
+  void setUp() {
+    inside = pin(0.5, 0.5, 1L, now.minusSeconds(60), now.plusSeconds(3600));
+    onEdge = pin(1.0, 1.0, 1L, now.minusSeconds(60), now.plusSeconds(3600));
+    outside = pin(2.5, 2.5, 5L, now.minusSeconds(60), now.plusSeconds(3600));
+    upcoming = pin(0.2, 0.2, 1L, now.plusSeconds(600), now.plusSeconds(3600));
+    pinRepository = mock(PinRepository.class);
+    when(pinRepository.findByExpiresAtAfter(any())).thenReturn(List.of(inside, onEdge, outside, upcoming));
+    index = new ActivePinIndex(pinRepository, true);
+  }
+
+  @Test
+  void servesNothingUntilLoadedOrWhenDisabled() {
+    assertThat(index.isServing()).isFalse();
+
+    ActivePinIndex disabled = new ActivePinIndex(pinRepository, false);
+    disabled.load();
+
+    assertThat(disabled.isServing()).isFalse();
+  }
+
+  @Test
+  void boundingBoxLookupMatchesSqlSemantics() {
+    index.load();
+
+    List<IndexedPin> found = index.findInBoundingBox(new double[]{0, 0, 1, 1}, now, pin -> true, MapPage.START, 100);
+
+    // Envelope boundary counts as intersecting; pins not yet available are excluded
+    assertThat(found).extracting(IndexedPin::getId).containsExactlyInAnyOrder(inside.getId(), onEdge.getId());
+    assertThat(index.findInBoundingBox(new double[]{0, 0, 1, 1}, now, pin -> pin.getId().equals(inside.getId()), MapPage.START, 100))
+        .extracting(IndexedPin::getId).containsExactly(inside.getId());
+  }
+
+  @Test
+  void boundingBoxLookupPagesInIdOrder() {
+    index.load();
+    double[] bbox = {0, 0, 1, 1};
+    List<PinEntity> ordered = List.of(inside, onEdge).stream().sorted(
+        (a, b) -> MapPage.ID_ORDER.compare(a.getId(), b.getId())).toList();
+
+    assertThat(index.findInBoundingBox(bbox, now, pin -> true, MapPage.START, 1))
+        .extracting(IndexedPin::getId).containsExactly(ordered.get(0).getId());
+    assertThat(index.findInBoundingBox(bbox, now, pin -> true, ordered.get(0).getId(), 10))
+        .extracting(IndexedPin::getId).containsExactly(ordered.get(1).getId());
+  }
+
+  @Test
+  void cellLookupReturnsAvailablePinsOfRequestedCells() {
+    index.load();
+
+    assertThat(index.findInCellRanges(CellRanges.of(new long[]{1L, 3L}, 0), now, 10))
+        .extracting(IndexedPin::getId).containsExactlyInAnyOrder(inside.getId(), onEdge.getId());
+    assertThat(index.findInCellRanges(CellRanges.of(new long[]{5L}, 0), now, 10))
+        .extracting(IndexedPin::getId).containsExactly(outside.getId());
+    // Level-1 cell 1 covers leaf cells 4..7
+    assertThat(index.findInCellRanges(CellRanges.of(new long[]{1L}, 1), now, 10))
+        .extracting(IndexedPin::getId).containsExactly(outside.getId());
+  }
+
+  @Test
+  void cellLookupsAreCappedNewestFirst() {
+    PinEntity newer = pin(0.4, 0.4, 1L, now.minusSeconds(10), now.plusSeconds(3600));
+    when(pinRepository.findByExpiresAtAfter(any())).thenReturn(List.of(inside, onEdge, newer, upcoming));
+    index.load();
+    CellRanges ranges = CellRanges.of(new long[]{1L}, 0);
+
+    assertThat(index.findInCellRanges(ranges, now, 1))
+        .extracting(IndexedPin::getId).containsExactly(newer.getId());
+    assertThat(index.countInCellRanges(ranges, now, 2)).isEqualTo(2);
+    assertThat(index.countInCellRanges(ranges, now, 10)).isEqualTo(3);
+  }
+
+  @Test
+  void revealableLookupKeepsPinsWhoseRadiusContainsTheViewer() {
+    // ~44 m north of the viewer at (0.5, 0.5)
+    PinEntity wide = revealable(pin(0.5, 0.5004, 1L, now.minusSeconds(60), now.plusSeconds(3600)), 60, null);
+    PinEntity narrow = revealable(pin(0.5, 0.5004, 1L, now.minusSeconds(60), now.plusSeconds(3600)), 30, null);
+    PinEntity notifyOnly = revealable(pin(0.5004, 0.5, 1L, now.minusSeconds(60), now.plusSeconds(3600)), null, 50);
+    PinEntity beyondBound = revealable(pin(0.5, 0.52, 1L, now.minusSeconds(60), now.plusSeconds(3600)), 5000, null);
+    UUID viewerId = UUID.randomUUID();
+    PinEntity own = revealable(pin(0.5, 0.5, 1L, now.minusSeconds(60), now.plusSeconds(3600)), 60, null);
+    own.setOwnerId(viewerId);
+    when(pinRepository.findByExpiresAtAfter(any()))
+        .thenReturn(List.of(inside, wide, narrow, notifyOnly, beyondBound, own));
+    index.load();
+
+    assertThat(index.findRevealableNear(viewerId, 0.5, 0.5, 2000, now))
+        .extracting(IndexedPin::getId).containsExactlyInAnyOrder(wide.getId(), notifyOnly.getId());
+  }
+
+  @Test
+  void mysteryZonesMatchByContainmentWhereverThePinPointIs() {
+    // Pin point ~5.5 km away, but its zone reaches over the viewer at (0.5, 0.5)
+    PinEntity zoned = revealable(pin(0.55, 0.5, 1L, now.minusSeconds(60), now.plusSeconds(3600)), 10, null);
+    zoned.setMysteryGeom(square(0.49, 0.49, 0.56, 0.51));
+    PinEntity zoneElsewhere = revealable(pin(0.5, 0.5, 1L, now.minusSeconds(60), now.plusSeconds(3600)), 100, null);
+    zoneElsewhere.setMysteryGeom(square(0.6, 0.6, 0.7, 0.7));
+    when(pinRepository.findByExpiresAtAfter(any())).thenReturn(List.of(zoned, zoneElsewhere));
+    index.load();
+
+    assertThat(index.findRevealableNear(UUID.randomUUID(), 0.5, 0.5, 2000, now))
+        .extracting(IndexedPin::getId).containsExactly(zoned.getId());
+    // Bounding-box lookups still go by the pin point
+    assertThat(index.findInBoundingBox(new double[]{0.48, 0.48, 0.52, 0.52}, now, pin -> true, MapPage.START, 10))
+        .extracting(IndexedPin::getId).containsExactly(zoneElsewhere.getId());
+  }
+
+  @Test
+  void revealableAreaLookupIncludesUpcomingPinsAndZonesReachingIn() {
+    PinEntity near = revealable(pin(0.5, 0.5, 1L, now.minusSeconds(60), now.plusSeconds(3600)), 50, null);
+    PinEntity later = revealable(pin(0.51, 0.5, 1L, now.plusSeconds(600), now.plusSeconds(3600)), 50, null);
+    PinEntity zoned = revealable(pin(0.7, 0.7, 1L, now.minusSeconds(60), now.plusSeconds(3600)), null, null);
+    zoned.setMysteryGeom(square(0.45, 0.45, 0.7, 0.7));
+    PinEntity far = revealable(pin(0.7, 0.7, 1L, now.minusSeconds(60), now.plusSeconds(3600)), 50, null);
+    when(pinRepository.findByExpiresAtAfter(any())).thenReturn(List.of(inside, near, later, zoned, far));
+    index.load();
+
+    assertThat(index.findRevealableInBoundingBox(UUID.randomUUID(), new double[]{0.4, 0.4, 0.6, 0.6}, now))
+        .extracting(IndexedPin::getId).containsExactlyInAnyOrder(near.getId(), later.getId(), zoned.getId());
+  }
+
+  @Test
+  void refreshAppliesCreatesAndDeletes() {
+    index.load();
+    PinEntity created = pin(0.1, 0.1, 1L, now.minusSeconds(1), now.plusSeconds(60));
+    when(pinRepository.findById(created.getId())).thenReturn(Optional.of(created));
+    when(pinRepository.findById(inside.getId())).thenReturn(Optional.empty());
+
+    index.refresh(created.getId());
+    index.refresh(inside.getId());
+
+    assertThat(index.findInBoundingBox(new double[]{0, 0, 1, 1}, now, pin -> true, MapPage.START, 100))
+        .extracting(IndexedPin::getId).containsExactlyInAnyOrder(created.getId(), onEdge.getId());
+    assertThat(index.findInCellRanges(CellRanges.of(new long[]{0L}, 1), now, 10))
+        .extracting(IndexedPin::getId).containsExactlyInAnyOrder(created.getId(), onEdge.getId());
+  }
+
+  @Test
+  void refreshesDuringALoadSurviveTheSwapAndReconcileCatchesMissedChanges() {
+    PinEntity created = pin(0.1, 0.1, 1L, now.minusSeconds(1), now.plusSeconds(60));
+    when(pinRepository.findById(created.getId())).thenReturn(Optional.of(created));
+    // The pin is committed after the snapshot query ran, and its change arrives before the swap
+    when(pinRepository.findByExpiresAtAfter(any())).thenAnswer(invocation -> {
+      index.refresh(created.getId());
+      return List.of(inside);
+    });
+
+    index.load();
+
+    assertThat(index.findInBoundingBox(new double[]{0, 0, 1, 1}, now, pin -> true, MapPage.START, 100))
+        .extracting(IndexedPin::getId).containsExactlyInAnyOrder(inside.getId(), created.getId());
+
+    // A change whose broadcast never arrived is picked up by the next full reload
+    doReturn(List.of(inside, created, onEdge)).when(pinRepository).findByExpiresAtAfter(any());
+    index.reconcile();
+
+    assertThat(index.size()).isEqualTo(3);
+  }
+
+  @Test
+  void expiredPinsAreSwept() {
+    PinEntity expiring = pin(0.3, 0.3, 1L, now.minusSeconds(60), now.minusMillis(1));
+    when(pinRepository.findByExpiresAtAfter(any())).thenReturn(List.of(inside, expiring));
+    index.load();
+
+    index.evictExpired();
+
+    assertThat(index.size()).isEqualTo(1);
+  }
+
+  private static PinEntity revealable(PinEntity pin, Integer revealRadiusM, Integer notifyRadiusM) {
+    pin.setRevealType(RevealType.REACH_TO_REVEAL);
+    pin.setRevealRadiusM(revealRadiusM);
+    pin.setNotifyRadiusM(notifyRadiusM);
+    return pin;
+  }
+
+  private Polygon square(double minLng, double minLat, double maxLng, double maxLat) {
+    return geometryFactory.createPolygon(new Coordinate[]{
+        new Coordinate(minLng, minLat), new Coordinate(maxLng, minLat), new Coordinate(maxLng, maxLat),
+        new Coordinate(minLng, maxLat), new Coordinate(minLng, minLat)
+    });
+  }
+
+  private PinEntity pin(double lng, double lat, long cellId, Instant availableFrom, Instant expiresAt) {
+    PinEntity pin = new PinEntity();
+    pin.setId(UUID.randomUUID());
+    pin.setOwnerId(UUID.randomUUID());
+    pin.setAudienceType(AudienceType.PUBLIC);
+    pin.setCellId(cellId);
+    pin.setAvailableFrom(availableFrom);
+    pin.setExpiresAt(expiresAt);
+    pin.setGeom(geometryFactory.createPoint(new Coordinate(lng, lat)));
+    return pin;
+  }
+}
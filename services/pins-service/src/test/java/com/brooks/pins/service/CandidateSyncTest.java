@@ -0,0 +1,83 @@
+package com.brooks.pins.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.brooks.pins.LocationRequest;
+import com.brooks.pins.PinCandidate;
+import com.brooks.pins.PinCandidatesResponse;
+import com.brooks.pins.RevealType;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+class CandidateSyncTest {
+  private final Map<String, String> redis = new HashMap<>();
+  private final UUID viewerId = UUID.randomUUID();
+  private CandidateSync candidateSync;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    ValueOperations<String, String> values = mock(ValueOperations.class);
+    when(redisTemplate.opsForValue()).thenReturn(values);
+    when(values.get(anyString())).thenAnswer(invocation -> redis.get(invocation.<String>getArgument(0)));
+    doAnswer(invocation -> redis.put(invocation.getArgument(0), invocation.getArgument(1)))
+        .when(values).set(anyString(), anyString(), any(Duration.class));
+    candidateSync = new CandidateSync(redisTemplate, "sync:", 1800);
+  }
+
+  @Test
+  void firstSyncReturnsEveryCandidate() {
+    PinCandidatesResponse response = candidateSync.respond(viewerId, 42L, "t1", null, new PinCandidatesResponse(List.of(candidate("a"), candidate("b"))));
+
+    assertThat(response.delta()).isFalse();
+    assertThat(response.syncToken()).isEqualTo("t1");
+    assertThat(response.candidates()).extracting(PinCandidate::id).containsExactly("a", "b");
+    assertThat(response.removed()).isEmpty();
+  }
+
+  @Test
+  void laterSyncsReturnOnlyAddedAndRemovedCandidates() {
+    candidateSync.respond(viewerId, 42L, "t1", null, new PinCandidatesResponse(List.of(candidate("a"), candidate("b"))));
+
+    PinCandidatesResponse response = candidateSync.respond(viewerId, 42L, "t2", "t1", new PinCandidatesResponse(List.of(candidate("b"), candidate("c"))));
+
+    assertThat(response.delta()).isTrue();
+    assertThat(response.syncToken()).isEqualTo("t2");
+    assertThat(response.candidates()).extracting(PinCandidate::id).containsExactly("c");
+    assertThat(response.removed()).containsExactly("a");
+
+    PinCandidatesResponse emptied = candidateSync.respond(viewerId, 42L, "t3", "t2", new PinCandidatesResponse(List.of()));
+    assertThat(emptied.removed()).containsExactly("b", "c");
+    assertThat(candidateSync.respond(viewerId, 42L, "t4", "t3", new PinCandidatesResponse(List.of(candidate("d")))).candidates())
+        .extracting(PinCandidate::id).containsExactly("d");
+  }
+
+  @Test
+  void staleOrUnknownTokensGetAFullResponse() {
+    candidateSync.respond(viewerId, 42L, "t1", null, new PinCandidatesResponse(List.of(candidate("a"))));
+    candidateSync.respond(viewerId, 42L, "t2", "t1", new PinCandidatesResponse(List.of(candidate("a"))));
+
+    assertThat(candidateSync.respond(viewerId, 42L, "t3", "t1", new PinCandidatesResponse(List.of(candidate("a")))).delta()).isFalse();
+    assertThat(candidateSync.respond(viewerId, 43L, "t4", "t3", new PinCandidatesResponse(List.of(candidate("a")))).delta()).isFalse();
+    assertThat(candidateSync.respond(UUID.randomUUID(), 42L, "t5", "t3", new PinCandidatesResponse(List.of(candidate("a")))).delta()).isFalse();
+    assertThat(candidateSync.respond(viewerId, 42L, "t6", "t5", new PinCandidatesResponse(List.of(candidate("a")), true))
+        .truncated()).isTrue();
+  }
+
+  private static PinCandidate candidate(String id) {
+    return new PinCandidate(id, new LocationRequest(41.7151, 44.8271, null), RevealType.REACH_TO_REVEAL, 50, null);
+  }
+}
@@ -0,0 +1,99 @@
+package com.brooks.pins.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.brooks.pins.LocationBucket;
+import com.brooks.pins.LocationRequest;
+import com.brooks.pins.PinChangedEvent;
+import com.brooks.pins.PinUnlockedEvent;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+class CellVersionsTest {
+  private final LocationBucket locationBucket = new LocationBucket(0.01);
+  private final UUID viewerId = UUID.randomUUID();
+  private StringRedisTemplate redisTemplate;
+  private ValueOperations<String, String> values;
+  private CellVersions cellVersions;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    redisTemplate = mock(StringRedisTemplate.class);
+    values = mock(ValueOperations.class);
+    when(redisTemplate.opsForValue()).thenReturn(values);
+    when(values.multiGet(anyList()))
+        .thenAnswer(invocation -> Collections.nCopies(invocation.<List<?>>getArgument(0).size(), null));
+    // Version cells are 0.04 degrees across: 3 leaf levels down, 5 levels up
+    cellVersions = new CellVersions(redisTemplate, locationBucket, 5, "v:", "u:", 16, 60);
+  }
+
+  @Test
+  void pinChangesBumpTheirVersionCellOnce() {
+    cellVersions.onPinChanged(new PinChangedEvent(UUID.randomUUID(), new LocationRequest(41.7151, 44.8271, null)));
+
+    verify(values, times(1)).increment(startsWith("v:"));
+    verify(values, times(1)).increment(anyString());
+  }
+
+  @Test
+  void unlocksBumpOnlyTheViewersCounter() {
+    cellVersions.onPinUnlocked(new PinUnlockedEvent(viewerId, UUID.randomUUID()));
+
+    verify(values).increment("u:" + viewerId);
+    verify(values, never()).increment(startsWith("v:"));
+    verify(redisTemplate).expire("u:" + viewerId, Duration.ofSeconds(120));
+  }
+
+  @Test
+  void boundingBoxesReadOverlappingCellsUpToMaxCells() {
+    assertThat(cellVersions.inBoundingBox(new double[]{44.8201, 41.7001, 44.8202, 41.7002}, viewerId))
+        .containsExactly(0L, 0L);
+    assertThat(cellVersions.inBoundingBox(new double[]{44.81, 41.69, 44.93, 41.81}, viewerId)).hasSize(17);
+    assertThat(cellVersions.inBoundingBox(new double[]{44.0, 41.0, 45.0, 42.0}, viewerId)).isNull();
+    assertThat(cellVersions.inBoundingBox(new double[]{44.81, 41.69, 44.93, 41.81})).hasSize(16);
+    verify(values, times(3)).multiGet(anyList());
+  }
+
+  @Test
+  void bucketsReadTheirVersionCellNeighbourhood() {
+    long bucket = locationBucket.cellId(41.7151, 44.8271);
+
+    assertThat(cellVersions.aroundBucket(bucket, viewerId)).hasSize(10);
+  }
+
+  @Test
+  void redisFailuresDisableTheEtag() {
+    when(values.multiGet(anyList())).thenThrow(new IllegalStateException("down"));
+
+    assertThat(cellVersions.aroundBucket(locationBucket.cellId(41.7151, 44.8271), viewerId)).isNull();
+    verify(values, never()).increment(anyString());
+  }
+
+  @Test
+  void etagsChangeWithVersionsPartsAndWindow() {
+    Instant now = Instant.parse("2026-01-01T12:00:10Z");
+    String etag = cellVersions.etag(new long[]{1, 2}, now, "ALL", 14);
+
+    assertThat(etag).startsWith("W/\"").hasSize(36);
+    assertThat(cellVersions.etag(new long[]{1, 2}, now.plusSeconds(30), "ALL", 14)).isEqualTo(etag);
+    assertThat(cellVersions.etag(new long[]{1, 3}, now, "ALL", 14)).isNotEqualTo(etag);
+    assertThat(cellVersions.etag(new long[]{1, 2}, now, "MINE", 14)).isNotEqualTo(etag);
+    assertThat(cellVersions.etag(new long[]{1, 2}, now.plusSeconds(60), "ALL", 14)).isNotEqualTo(etag);
+  }
+}
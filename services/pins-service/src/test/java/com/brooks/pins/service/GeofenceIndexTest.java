@@ -0,0 +1,159 @@
+package com.brooks.pins.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.brooks.pins.AudienceType;
+import com.brooks.pins.IndexedPin;
+import com.brooks.pins.PinEntity;
+import com.brooks.pins.PinRepository;
+import com.brooks.pins.RevealType;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.PrecisionModel;
+
+class GeofenceIndexTest {
+  private final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+  private final Instant now = Instant.now();
+
+  private PinRepository pinRepository;
+  private GeofenceIndex index;
+
+  @BeforeEach
+  void setUp() {
+    pinRepository = mock(PinRepository.class);
+    index = new GeofenceIndex(pinRepository, true, 0.005, 64, 2000);
+  }
+
+  @Test
+  void servesNothingUntilLoadedOrWhenDisabled() {
+    assertThat(index.isServing()).isFalse();
+
+    GeofenceIndex disabled = new GeofenceIndex(pinRepository, false, 0.005, 64, 2000);
+    disabled.load();
+
+    assertThat(disabled.isServing()).isFalse();
+  }
+
+  @Test
+  void circlesContainPointsWithinTheirRadiusAcrossCellEdges() {
+    // Straddles the cell edge at lat 0.5; the viewers are ~44 m north and south of it
+    PinEntity wide = pin(0.5, 0.5, 60, null);
+    PinEntity narrow = pin(0.5, 0.5, 30, null);
+    PinEntity notifyOnly = pin(0.5, 0.5, null, 50);
+    PinEntity capped = pin(0.5, 0.52, 5000, null);
+    PinEntity upcoming = pin(0.5, 0.5, 60, null);
+    upcoming.setAvailableFrom(now.plusSeconds(600));
+    UUID viewerId = UUID.randomUUID();
+    PinEntity own = pin(0.5, 0.5, 60, null);
+    own.setOwnerId(viewerId);
+    load(wide, narrow, notifyOnly, capped, upcoming, own);
+
+    assertThat(index.findContaining(viewerId, 0.5004, 0.5, now))
+        .extracting(IndexedPin::getId).containsExactlyInAnyOrder(wide.getId(), notifyOnly.getId());
+    assertThat(index.findContaining(viewerId, 0.4996, 0.5, now))
+        .extracting(IndexedPin::getId).containsExactlyInAnyOrder(wide.getId(), notifyOnly.getId());
+    assertThat(index.findContaining(viewerId, 0.51, 0.5, now))
+        .extracting(IndexedPin::getId).containsExactly(capped.getId());
+  }
+
+  @Test
+  void mysteryZonesMatchByContainmentIncludingOversizedOnes() {
+    // Pin point outside its own zone, and a zone spanning far more than 64 cells
+    PinEntity zoned = pin(0.55, 0.5, 10, null);
+    zoned.setMysteryGeom(square(0.49, 0.49, 0.51, 0.51));
+    PinEntity huge = pin(0.0, 0.0, null, null);
+    huge.setMysteryGeom(square(0.0, 0.0, 1.0, 1.0));
+    PinEntity unreachable = pin(0.5, 0.5, null, null);
+    load(zoned, huge, unreachable);
+
+    assertThat(index.size()).isEqualTo(2);
+    assertThat(index.findContaining(UUID.randomUUID(), 0.5, 0.5, now))
+        .extracting(IndexedPin::getId).containsExactlyInAnyOrder(zoned.getId(), huge.getId());
+    assertThat(index.findContaining(UUID.randomUUID(), 0.55, 0.5, now))
+        .extracting(IndexedPin::getId).containsExactly(huge.getId());
+    assertThat(index.findContaining(UUID.randomUUID(), 1.5, 1.5, now)).isEmpty();
+  }
+
+  @Test
+  void refreshAndSweepKeepZonesCurrent() {
+    PinEntity existing = pin(0.5, 0.5, 60, null);
+    load(existing);
+    PinEntity created = pin(0.7, 0.7, 60, null);
+    PinEntity visible = pin(0.7, 0.7, 60, null);
+    visible.setRevealType(RevealType.VISIBLE_ALWAYS);
+    when(pinRepository.findById(created.getId())).thenReturn(Optional.of(created));
+    when(pinRepository.findById(visible.getId())).thenReturn(Optional.of(visible));
+    when(pinRepository.findById(existing.getId())).thenReturn(Optional.empty());
+
+    index.refresh(created.getId());
+    index.refresh(visible.getId());
+    index.refresh(existing.getId());
+
+    assertThat(index.findContaining(UUID.randomUUID(), 0.7, 0.7, now))
+        .extracting(IndexedPin::getId).containsExactly(created.getId());
+    assertThat(index.findContaining(UUID.randomUUID(), 0.5, 0.5, now)).isEmpty();
+
+    // Pins that lapsed after the snapshot query ran are swept
+    PinEntity lapsed = pin(0.9, 0.9, 60, null);
+    lapsed.setExpiresAt(now.minusSeconds(1));
+    load(created, lapsed);
+    index.evictExpired();
+    assertThat(index.size()).isEqualTo(1);
+  }
+
+  @Test
+  void refreshesDuringALoadSurviveTheSwap() {
+    PinEntity existing = pin(0.5, 0.5, 60, null);
+    PinEntity created = pin(0.7, 0.7, 60, null);
+    when(pinRepository.findById(created.getId())).thenReturn(Optional.of(created));
+    when(pinRepository.findByRevealTypeAndExpiresAtAfter(eq(RevealType.REACH_TO_REVEAL), any()))
+        .thenAnswer(invocation -> {
+          index.refresh(created.getId());
+          return List.of(existing);
+        });
+
+    index.load();
+
+    assertThat(index.findContaining(UUID.randomUUID(), 0.7, 0.7, now))
+        .extracting(IndexedPin::getId).containsExactly(created.getId());
+    assertThat(index.size()).isEqualTo(2);
+  }
+
+  private void load(PinEntity... pins) {
+    when(pinRepository.findByRevealTypeAndExpiresAtAfter(eq(RevealType.REACH_TO_REVEAL), any()))
+        .thenReturn(List.of(pins));
+    index.load();
+  }
+
+  private Polygon square(double minLng, double minLat, double maxLng, double maxLat) {
+    return geometryFactory.createPolygon(new Coordinate[]{
+        new Coordinate(minLng, minLat), new Coordinate(maxLng, minLat), new Coordinate(maxLng, maxLat),
+        new Coordinate(minLng, maxLat), new Coordinate(minLng, minLat)
+    });
+  }
+
+  private PinEntity pin(double lng, double lat, Integer revealRadiusM, Integer notifyRadiusM) {
+    PinEntity pin = new PinEntity();
+    pin.setId(UUID.randomUUID());
+    pin.setOwnerId(UUID.randomUUID());
+    pin.setAudienceType(AudienceType.PUBLIC);
+    pin.setRevealType(RevealType.REACH_TO_REVEAL);
+    pin.setRevealRadiusM(revealRadiusM);
+    pin.setNotifyRadiusM(notifyRadiusM);
+    pin.setAvailableFrom(now.minusSeconds(60));
+    pin.setExpiresAt(now.plusSeconds(3600));
+    pin.setGeom(geometryFactory.createPoint(new Coordinate(lng, lat)));
+    return pin;
+  }
+}
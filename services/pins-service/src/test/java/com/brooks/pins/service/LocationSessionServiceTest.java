@@ -0,0 +1,184 @@
+package com.brooks.pins.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.brooks.pins.AudienceType;
+import com.brooks.pins.IndexedPin;
+import com.brooks.pins.LocationRequest;
+import com.brooks.pins.PinAccessPolicy;
+import com.brooks.pins.PinChangedEvent;
+import com.brooks.pins.PinEntity;
+import com.brooks.pins.PinNotificationStateRepository;
+import com.brooks.pins.PinServiceRefactored;
+import com.brooks.pins.RevealType;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.springframework.web.server.ResponseStatusException;
+
+class LocationSessionServiceTest {
+  private final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+  private final UUID viewerId = UUID.randomUUID();
+  private final Instant now = Instant.now();
+
+  private ProximityService proximityService;
+  private PinServiceRefactored pinService;
+  private LocationSessionService sessions;
+  private IndexedPin nearby;
+  private IndexedPin zoned;
+
+  @BeforeEach
+  void setUp() {
+    // ~44 m north of (41.7, 44.8), and a mystery zone ~1 km east
+    nearby = IndexedPin.of(pin(41.7004, 44.8, 60));
+    PinEntity zonedPin = pin(41.7, 44.812, null);
+    zonedPin.setMysteryGeom(geometryFactory.createPolygon(new Coordinate[]{
+        new Coordinate(44.811, 41.699), new Coordinate(44.813, 41.699), new Coordinate(44.813, 41.701),
+        new Coordinate(44.811, 41.701), new Coordinate(44.811, 41.699)
+    }));
+    zoned = IndexedPin.of(zonedPin);
+
+    proximityService = mock(ProximityService.class);
+    when(proximityService.maxRevealRadiusM()).thenReturn(5000);
+    when(proximityService.findRevealablePinsAround(eq(viewerId), any(), anyDouble(), any()))
+        .thenReturn(List.of(nearby, zoned));
+    PinAccessService pinAccessService = mock(PinAccessService.class);
+    when(pinAccessService.evaluateBatch(anyList(), eq(viewerId), anyBoolean())).thenAnswer(invocation -> {
+      Map<UUID, PinAccessService.AccessEvaluationResult> results = new HashMap<>();
+      for (Object pin : invocation.<List<?>>getArgument(0)) {
+        results.put(((IndexedPin) pin).getId(), new PinAccessService.AccessEvaluationResult(
+            new PinAccessPolicy.PolicyDecision(true, "OK"), false, null));
+      }
+      return results;
+    });
+    pinService = mock(PinServiceRefactored.class);
+    sessions = new LocationSessionService(proximityService, pinAccessService,
+        mock(PinNotificationStateRepository.class), pinService,
+        new MysteryZoneCache(geometryFactory, 100), 1000, 60_000, 60_000, 2, 2);
+  }
+
+  @Test
+  void updatesRevealReachedZonesOnceFromTheLoadedSession() {
+    UUID sessionId = open();
+
+    sessions.update(sessionId, viewerId, new LocationRequest(41.7, 44.805, null));
+    sessions.update(sessionId, viewerId, new LocationRequest(41.7, 44.8, null));
+    sessions.update(sessionId, viewerId, new LocationRequest(41.7001, 44.8, null));
+    sessions.update(sessionId, viewerId, new LocationRequest(41.7, 44.812, null));
+
+    verify(pinService).reveal(viewerId, List.of(nearby));
+    verify(pinService).reveal(viewerId, List.of(zoned));
+    verify(proximityService, times(1)).findRevealablePinsAround(eq(viewerId), any(), anyDouble(), any());
+  }
+
+  @Test
+  void sessionsReloadAfterMovingAwayOrANearbyPinChange() {
+    UUID sessionId = open();
+    sessions.update(sessionId, viewerId, new LocationRequest(41.7, 44.79, null));
+
+    sessions.update(sessionId, viewerId, new LocationRequest(41.72, 44.79, null));
+    sessions.onPinChanged(new PinChangedEvent(UUID.randomUUID(), new LocationRequest(41.75, 44.79, null)));
+    sessions.update(sessionId, viewerId, new LocationRequest(41.72, 44.79, null));
+    sessions.onPinChanged(new PinChangedEvent(UUID.randomUUID(), new LocationRequest(45.0, 44.79, null)));
+    sessions.update(sessionId, viewerId, new LocationRequest(41.72, 44.79, null));
+
+    verify(proximityService, times(3)).findRevealablePinsAround(eq(viewerId), any(), anyDouble(), any());
+  }
+
+  @Test
+  void updatesOnlyReachTheViewersOwnOpenSessions() {
+    UUID sessionId = open();
+
+    assertThatThrownBy(() -> sessions.update(sessionId, UUID.randomUUID(), new LocationRequest(41.7, 44.8, null)))
+        .isInstanceOf(ResponseStatusException.class)
+        .hasMessageContaining("404");
+    assertThatThrownBy(() -> sessions.update(UUID.randomUUID(), viewerId, new LocationRequest(41.7, 44.8, null)))
+        .isInstanceOf(ResponseStatusException.class);
+    verify(pinService, never()).reveal(any(), anyList());
+  }
+
+  @Test
+  void sessionCountIsBounded() {
+    sessions.open(viewerId);
+    sessions.open(viewerId);
+
+    assertThat(sessions.sessionIds()).hasSize(2);
+    assertThatThrownBy(() -> sessions.open(viewerId))
+        .isInstanceOf(ResponseStatusException.class)
+        .hasMessageContaining("503");
+  }
+
+  @Test
+  void viewersOverTheirCapLoseTheirOldestSession() {
+    sessions = new LocationSessionService(proximityService, mock(PinAccessService.class),
+        mock(PinNotificationStateRepository.class), pinService,
+        new MysteryZoneCache(geometryFactory, 100), 1000, 60_000, 60_000, 10, 2);
+    UUID oldest = open();
+    sessions.open(viewerId);
+    sessions.open(viewerId);
+    sessions.open(UUID.randomUUID());
+
+    assertThat(sessions.sessionIds()).hasSize(3).doesNotContain(oldest);
+    assertThatThrownBy(() -> sessions.update(oldest, viewerId, new LocationRequest(41.7, 44.8, null)))
+        .isInstanceOf(ResponseStatusException.class)
+        .hasMessageContaining("404");
+  }
+
+  @Test
+  void concurrentOpensNeverExceedTheNodeCap() {
+    sessions = new LocationSessionService(proximityService, mock(PinAccessService.class),
+        mock(PinNotificationStateRepository.class), pinService,
+        new MysteryZoneCache(geometryFactory, 100), 1000, 60_000, 60_000, 10, 2);
+
+    long opened = IntStream.range(0, 200).parallel()
+        .filter(i -> {
+          try {
+            sessions.open(UUID.randomUUID());
+            return true;
+          } catch (ResponseStatusException ex) {
+            return false;
+          }
+        })
+        .count();
+
+    assertThat(opened).isEqualTo(10);
+    assertThat(sessions.sessionIds()).hasSize(10);
+  }
+
+  private UUID open() {
+    sessions.open(viewerId);
+    return sessions.sessionIds().iterator().next();
+  }
+
+  private PinEntity pin(double lat, double lng, Integer revealRadiusM) {
+    PinEntity pin = new PinEntity();
+    pin.setId(UUID.randomUUID());
+    pin.setOwnerId(UUID.randomUUID());
+    pin.setAudienceType(AudienceType.PUBLIC);
+    pin.setRevealType(RevealType.REACH_TO_REVEAL);
+    pin.setRevealRadiusM(revealRadiusM);
+    pin.setAvailableFrom(now.minusSeconds(60));
+    pin.setExpiresAt(now.plusSeconds(3600));
+    pin.setGeom(geometryFactory.createPoint(new Coordinate(lng, lat)));
+    return pin;
+  }
+}
@@ -0,0 +1,69 @@
+package com.brooks.pins.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+import com.brooks.pins.AudienceType;
+import com.brooks.pins.LocationRequest;
+import com.brooks.pins.MapCluster;
+import com.brooks.pins.MapPin;
+import com.brooks.pins.MapPinsResponse;
+import com.brooks.pins.MapPrecision;
+import com.brooks.pins.RevealType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class MapClustererTest {
+  private final MapClusterer clusterer = new MapClusterer(8, 3, 17);
+
+  @Test
+  void denseCellsBecomeCentroidsAndSparseCellsStayIndividual() {
+    List<MapPin> pins = new ArrayList<>();
+    // Zoom 10 with 8 cells per tile gives ~0.044 degree cells
+    pins.add(pin(41.710, 44.801));
+    pins.add(pin(41.712, 44.803));
+    pins.add(pin(41.714, 44.805));
+    pins.add(pin(41.716, 44.807));
+    pins.add(pin(41.900, 45.200));
+
+    MapPinsResponse response = clusterer.cluster(pins, 10);
+
+    assertThat(response.clusters()).hasSize(1);
+    MapCluster cluster = response.clusters().get(0);
+    assertThat(cluster.count()).isEqualTo(4);
+    assertThat(cluster.location().lat()).isCloseTo(41.713, offset(1e-9));
+    assertThat(cluster.location().lng()).isCloseTo(44.804, offset(1e-9));
+    assertThat(response.pins()).containsExactly(pins.get(4));
+  }
+
+  @Test
+  void streetLevelZoomAndSmallResultsAreNotClustered() {
+    List<MapPin> pins = List.of(pin(41.701, 44.801), pin(41.7011, 44.8011), pin(41.7012, 44.8012));
+
+    assertThat(clusterer.cluster(pins, 17).clusters()).isEmpty();
+    assertThat(clusterer.cluster(pins.subList(0, 2), 5).pins()).hasSize(2);
+    assertThat(clusterer.cluster(pins, 5).clusters()).hasSize(1);
+  }
+
+  @Test
+  void zoomIsDerivedFromTheBoundingBoxSpan() {
+    assertThat(clusterer.zoomFor(new double[]{-180, -90, 180, 90})).isEqualTo(0);
+    assertThat(clusterer.zoomFor(new double[]{44.7, 41.6, 45.05, 41.8})).isEqualTo(10);
+    assertThat(clusterer.zoomFor(new double[]{44.8, 41.7, 44.8, 41.7})).isEqualTo(MapClusterer.MAX_ZOOM);
+  }
+
+  private static MapPin pin(double lat, double lng) {
+    return new MapPin(
+        UUID.randomUUID().toString(),
+        UUID.randomUUID().toString(),
+        new LocationRequest(lat, lng, null),
+        MapPrecision.EXACT,
+        "preview",
+        AudienceType.PUBLIC,
+        RevealType.VISIBLE_ALWAYS,
+        false
+    );
+  }
+}
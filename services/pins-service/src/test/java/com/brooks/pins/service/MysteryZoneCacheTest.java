@@ -0,0 +1,59 @@
+package com.brooks.pins.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.brooks.pins.LocationRequest;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.PrecisionModel;
+
+class MysteryZoneCacheTest {
+  private final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+  private final MysteryZoneCache cache = new MysteryZoneCache(geometryFactory, 10);
+
+  @Test
+  void preparedZonesAgreeWithPolygonContains() {
+    // Concave 64-vertex star around Tbilisi
+    Coordinate[] ring = new Coordinate[65];
+    for (int i = 0; i < 64; i++) {
+      double angle = 2 * Math.PI * i / 64;
+      double radius = i % 2 == 0 ? 0.01 : 0.004;
+      ring[i] = new Coordinate(44.8271 + radius * Math.cos(angle), 41.7151 + radius * Math.sin(angle));
+    }
+    ring[64] = ring[0];
+    Polygon zone = geometryFactory.createPolygon(ring);
+    UUID pinId = UUID.randomUUID();
+
+    for (int i = 0; i < 400; i++) {
+      double lat = 41.7051 + 0.02 * (i / 20) / 20;
+      double lng = 44.8171 + 0.02 * (i % 20) / 20;
+      boolean expected = zone.contains(geometryFactory.createPoint(new Coordinate(lng, lat)));
+      assertThat(cache.contains(pinId, zone, new LocationRequest(lat, lng, null))).isEqualTo(expected);
+    }
+    assertThat(cache.contains(pinId, null, new LocationRequest(41.7151, 44.8271, null))).isFalse();
+  }
+
+  @Test
+  void segmentsCrossZonesThroughTheirInterior() {
+    Polygon zone = geometryFactory.createPolygon(new Coordinate[]{
+        new Coordinate(44.811, 41.699), new Coordinate(44.813, 41.699), new Coordinate(44.813, 41.701),
+        new Coordinate(44.811, 41.701), new Coordinate(44.811, 41.699)
+    });
+    UUID pinId = UUID.randomUUID();
+    LocationRequest west = new LocationRequest(41.7, 44.80, null);
+    LocationRequest east = new LocationRequest(41.7, 44.82, null);
+    LocationRequest inside = new LocationRequest(41.7, 44.812, null);
+
+    assertThat(cache.crosses(pinId, zone, west, east)).isTrue();
+    assertThat(cache.crosses(pinId, zone, west, inside)).isTrue();
+    assertThat(cache.crosses(pinId, zone, inside, inside)).isTrue();
+    assertThat(cache.crosses(pinId, zone, west, new LocationRequest(41.71, 44.82, null))).isFalse();
+    // Running along the southern edge only touches the boundary
+    assertThat(cache.crosses(pinId, zone,
+        new LocationRequest(41.699, 44.80, null), new LocationRequest(41.699, 44.82, null))).isFalse();
+    assertThat(cache.crosses(pinId, zone, west, west)).isFalse();
+  }
+}
@@ -0,0 +1,161 @@
+package com.brooks.pins.service;
+
+import com.brooks.pins.PinAccessPolicy;
+import com.brooks.pins.PinAclEntity;
+import com.brooks.pins.RevealType;
+import com.brooks.pins.TargetType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the original allocating policy evaluation (string ACL copies, PolicyInput and
+ * PolicyDecision per pin) with the compiled factor-bitmask path, per batch of pins.
+ *
+ * Run with:
+ * mvn -pl services/pins-service test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.brooks.pins.service.PinAccessPolicyBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PinAccessPolicyBenchmark {
+  @Param({"10000"})
+  private int batchSize;
+
+  private final PinAccessPolicy policy = new PinAccessPolicy();
+  private UUID viewerId;
+  private boolean[][] flags;
+  private RevealType[] revealTypes;
+  private List<List<PinAclEntity>> aclEntries;
+  private PinAclIndex.PinAcl[] acls;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    viewerId = UUID.randomUUID();
+    flags = new boolean[batchSize][];
+    revealTypes = new RevealType[batchSize];
+    aclEntries = new ArrayList<>(batchSize);
+    acls = new PinAclIndex.PinAcl[batchSize];
+    for (int i = 0; i < batchSize; i++) {
+      // Mostly-visible pins so evaluation usually walks the whole rule chain
+      flags[i] = new boolean[] {
+          random.nextInt(20) != 0,
+          random.nextInt(50) == 0,
+          random.nextInt(10) != 0,
+          random.nextInt(10) != 0,
+          random.nextBoolean(),
+          random.nextInt(4) == 0,
+          random.nextBoolean()
+      };
+      revealTypes[i] = random.nextInt(5) == 0 ? RevealType.REACH_TO_REVEAL : RevealType.VISIBLE_ALWAYS;
+      List<PinAclEntity> entries = new ArrayList<>();
+      int userTargets = random.nextInt(4) == 0 ? 1 + random.nextInt(3) : 0;
+      for (int t = 0; t < userTargets; t++) {
+        PinAclEntity entry = new PinAclEntity();
+        entry.setTargetType(TargetType.USER);
+        entry.setTargetId(random.nextInt(3) == 0 ? viewerId : UUID.randomUUID());
+        entries.add(entry);
+      }
+      aclEntries.add(entries);
+      acls[i] = PinAclIndex.PinAcl.of(entries);
+    }
+  }
+
+  @Benchmark
+  public void legacy(Blackhole blackhole) {
+    for (int i = 0; i < batchSize; i++) {
+      boolean[] f = flags[i];
+      List<String> userIds = new ArrayList<>();
+      for (PinAclEntity entry : aclEntries.get(i)) {
+        userIds.add(entry.getTargetId().toString());
+      }
+      boolean hasAcl = !userIds.isEmpty();
+      boolean aclAllowed = !hasAcl || userIds.contains(viewerId.toString());
+      blackhole.consume(legacyEvaluate(new PinAccessPolicy.PolicyInput(
+          f[0], f[1], f[2], hasAcl, aclAllowed, f[3], f[4], f[5], revealTypes[i], f[6], false
+      )));
+    }
+  }
+
+  @Benchmark
+  public void compiled(Blackhole blackhole) {
+    long viewerMsb = viewerId.getMostSignificantBits();
+    long viewerLsb = viewerId.getLeastSignificantBits();
+    for (int i = 0; i < batchSize; i++) {
+      boolean[] f = flags[i];
+      int factors = 0;
+      if (f[0]) factors |= PinAccessPolicy.TIME_ELIGIBLE;
+      if (f[1]) factors |= PinAccessPolicy.BLOCKED;
+      if (f[2]) factors |= PinAccessPolicy.ALLOWED_BY_AUDIENCE;
+      if (acls[i].hasAcl()) {
+        factors |= PinAccessPolicy.HAS_ACL;
+        if (acls[i].containsUser(viewerMsb, viewerLsb)) factors |= PinAccessPolicy.ACL_ALLOWED;
+      }
+      if (f[3]) factors |= PinAccessPolicy.CAN_SEE_PINS;
+      if (f[4]) factors |= PinAccessPolicy.FOR_NOTIFICATION;
+      if (f[5]) factors |= PinAccessPolicy.CAN_RECEIVE_NOTIFICATIONS;
+      if (revealTypes[i] == RevealType.REACH_TO_REVEAL) factors |= PinAccessPolicy.REACH_TO_REVEAL;
+      if (f[6]) factors |= PinAccessPolicy.IN_REVEAL_RADIUS;
+      blackhole.consume(policy.evaluate(factors));
+    }
+  }
+
+  /**
+   * The rule chain as it was before compilation, allocating a decision per call.
+   */
+  private static PinAccessPolicy.PolicyDecision legacyEvaluate(PinAccessPolicy.PolicyInput input) {
+    if (!input.timeEligible()) {
+      return new PinAccessPolicy.PolicyDecision(false, "TIME_WINDOW");
+    }
+    if (input.blocked()) {
+      return new PinAccessPolicy.PolicyDecision(false, "BLOCKED");
+    }
+    if (!input.allowedByAudience()) {
+      return new PinAccessPolicy.PolicyDecision(false, "AUDIENCE");
+    }
+    if (input.hasAcl() && !input.aclAllowed()) {
+      return new PinAccessPolicy.PolicyDecision(false, "ACL");
+    }
+    if (!input.canSeePins()) {
+      return new PinAccessPolicy.PolicyDecision(false, "REL_PREF");
+    }
+    if (input.forNotification() && !input.canReceiveNotifications()) {
+      return new PinAccessPolicy.PolicyDecision(false, "NOTIFY_PREF");
+    }
+    if (input.revealType() == RevealType.REACH_TO_REVEAL && !input.inRevealRadius()) {
+      return new PinAccessPolicy.PolicyDecision(false, "DISTANCE");
+    }
+    if (input.futureSelfMode() && !input.inRevealRadius()) {
+      return new PinAccessPolicy.PolicyDecision(false, "FUTURE_SELF");
+    }
+    return new PinAccessPolicy.PolicyDecision(true, "OK");
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(PinAccessPolicyBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
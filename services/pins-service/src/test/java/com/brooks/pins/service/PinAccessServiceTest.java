@@ -0,0 +1,334 @@
+package com.brooks.pins.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.brooks.pins.AudienceType;
+import com.brooks.pins.IndexedPin;
+import com.brooks.pins.LocationBucket;
+import com.brooks.pins.LocationRequest;
+import com.brooks.pins.MapPin;
+import com.brooks.pins.MapPrecision;
+import com.brooks.pins.PinAclEntity;
+import com.brooks.pins.PinAclRepository;
+import com.brooks.pins.PinEntity;
+import com.brooks.pins.PinNotificationStateRepository;
+import com.brooks.pins.PinRepository;
+import com.brooks.pins.PinSummary;
+import com.brooks.pins.RevealType;
+import com.brooks.pins.SocialGraphSnapshot;
+import com.brooks.pins.TargetType;
+import com.brooks.pins.client.ListsClient;
+import com.brooks.pins.client.SocialGraphClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+class PinAccessServiceTest {
+  private static final int MAX_REVEAL_RADIUS_M = 2000;
+
+  private final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+  private final UUID viewerId = UUID.randomUUID();
+  private final UUID ownerId = UUID.randomUUID();
+
+  private PinAclRepository pinAclRepository;
+  private SocialGraphClient socialGraphClient;
+  private ListsClient listsClient;
+  private PinAccessService pinAccessService;
+  private final ExecutorService downstreamExecutor = Executors.newFixedThreadPool(4);
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final PinAccessMetrics metrics = new PinAccessMetrics(meterRegistry);
+
+  @BeforeEach
+  void setUp() {
+    pinAclRepository = mock(PinAclRepository.class);
+    socialGraphClient = mock(SocialGraphClient.class);
+    listsClient = mock(ListsClient.class);
+    when(socialGraphClient.fetchGraphSnapshot(viewerId)).thenReturn(friendsSnapshot(List.of(ownerId)));
+    when(pinAclRepository.findByPinIdIn(anyCollection())).thenReturn(List.of());
+    pinAccessService = new PinAccessService(pinAclRepository, socialGraphClient, listsClient,
+        new MysteryZoneCache(geometryFactory, 100), downstreamExecutor, 2_000, MAX_REVEAL_RADIUS_M, metrics);
+  }
+
+  @AfterEach
+  void tearDown() {
+    downstreamExecutor.shutdownNow();
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 50, 500})
+  void mapRequestIssuesOneAclQueryRegardlessOfPinCount(int pinCount) {
+    List<PinSummary> pins = pins(pinCount).stream().map(IndexedPin::of).map(PinSummary::of).toList();
+    PinRepository pinRepository = mock(PinRepository.class);
+    when(pinRepository.findVisibleCandidatesInBoundingBox(
+        any(), any(), any(), any(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), any(),
+        any(), any()))
+        .thenReturn(pins);
+    ProximityService proximityService = new ProximityService(
+        pinRepository,
+        pinAccessService,
+        mock(PinNotificationStateRepository.class),
+        new LocationBucket(0.01),
+        metrics,
+        new ActivePinIndex(pinRepository, false),
+        new GeofenceIndex(pinRepository, false, 0.005, 64, 2000),
+        new PublicTileCache(pinRepository, pinAclRepository, new ConcurrentMapCacheManager(),
+            mock(CellVersions.class), false, 13, 64, 5000),
+        new MysteryZoneCache(geometryFactory, 100),
+        7,
+        1,
+        500,
+        2000,
+        2000,
+        5000
+    );
+
+    List<MapPin> visible = proximityService.findPinsInBoundingBox(
+        viewerId, new double[]{-1, -1, 1, 1}, MapPage.first(500)).pins();
+
+    assertThat(visible).hasSize(pinCount);
+    verify(pinAclRepository, times(1)).findByPinIdIn(anyCollection());
+    verify(pinAclRepository, never()).findByPinId(any());
+  }
+
+  @Test
+  void distinctOwnersAreResolvedFromOneSnapshotCall() {
+    List<PinEntity> pins = pins(200);
+    pins.forEach(pin -> pin.setOwnerId(UUID.randomUUID()));
+    when(socialGraphClient.fetchGraphSnapshot(viewerId))
+        .thenReturn(friendsSnapshot(pins.stream().map(PinEntity::getOwnerId).toList()));
+
+    Map<UUID, PinAccessService.AccessEvaluationResult> results =
+        pinAccessService.evaluateBatch(pins, viewerId, false);
+
+    assertThat(results.values()).allMatch(PinAccessService.AccessEvaluationResult::isAllowed);
+    verify(socialGraphClient, times(1)).fetchGraphSnapshot(viewerId);
+    verify(socialGraphClient, never()).fetchGraphView(any(), any());
+  }
+
+  @Test
+  void graphAndMembershipLookupsRunConcurrently() {
+    List<PinEntity> pins = pins(2);
+    UUID listId = UUID.randomUUID();
+    when(pinAclRepository.findByPinIdIn(anyCollection())).thenReturn(List.of(
+        acl(pins.get(0).getId(), TargetType.LIST, listId)
+    ));
+    // Each lookup only completes once the other has started, so a sequential
+    // implementation would run into the deadline and fall back to deny-all
+    CountDownLatch snapshotStarted = new CountDownLatch(1);
+    CountDownLatch membershipStarted = new CountDownLatch(1);
+    when(socialGraphClient.fetchGraphSnapshot(viewerId)).thenAnswer(invocation -> {
+      snapshotStarted.countDown();
+      membershipStarted.await(5, TimeUnit.SECONDS);
+      return friendsSnapshot(List.of(ownerId));
+    });
+    when(listsClient.findMemberListIds(eq(viewerId), anyCollection())).thenAnswer(invocation -> {
+      membershipStarted.countDown();
+      snapshotStarted.await(5, TimeUnit.SECONDS);
+      return Set.of(listId.toString());
+    });
+
+    Map<UUID, PinAccessService.AccessEvaluationResult> results =
+        pinAccessService.evaluateBatch(pins, viewerId, false);
+
+    assertThat(results.values()).allMatch(PinAccessService.AccessEvaluationResult::isAllowed);
+  }
+
+  @Test
+  void lookupsThatMissTheDeadlineFallBackToDenyAll() {
+    pinAccessService = new PinAccessService(pinAclRepository, socialGraphClient, listsClient,
+        new MysteryZoneCache(geometryFactory, 100), downstreamExecutor, 100, MAX_REVEAL_RADIUS_M, metrics);
+    CountDownLatch release = new CountDownLatch(1);
+    when(socialGraphClient.fetchGraphSnapshot(viewerId)).thenAnswer(invocation -> {
+      release.await(5, TimeUnit.SECONDS);
+      return friendsSnapshot(List.of(ownerId));
+    });
+    PinEntity pin = pins(1).get(0);
+    pin.setAudienceType(AudienceType.FRIENDS);
+
+    long startedAt = System.nanoTime();
+    Map<UUID, PinAccessService.AccessEvaluationResult> results =
+        pinAccessService.evaluateBatch(List.of(pin), viewerId, false);
+    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+    release.countDown();
+
+    assertThat(results.get(pin.getId()).getDenialReason()).isEqualTo("AUDIENCE");
+    assertThat(elapsedMs).isLessThan(2_000);
+  }
+
+  @Test
+  void snapshotFetchedForMapFilteringIsBoundedByTheSameDeadline() {
+    pinAccessService = new PinAccessService(pinAclRepository, socialGraphClient, listsClient,
+        new MysteryZoneCache(geometryFactory, 100), downstreamExecutor, 100, MAX_REVEAL_RADIUS_M, metrics);
+    CountDownLatch release = new CountDownLatch(1);
+    when(socialGraphClient.fetchGraphSnapshot(viewerId)).thenAnswer(invocation -> {
+      release.await(5, TimeUnit.SECONDS);
+      return friendsSnapshot(List.of(ownerId));
+    });
+
+    long startedAt = System.nanoTime();
+    Optional<SocialGraphSnapshot> snapshot = pinAccessService.fetchGraphSnapshot(viewerId);
+    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+    release.countDown();
+
+    assertThat(snapshot).isEmpty();
+    assertThat(elapsedMs).isLessThan(2_000);
+  }
+
+  @Test
+  void singlePinSnapshotLookupIsBoundedByTheSameDeadline() {
+    pinAccessService = new PinAccessService(pinAclRepository, socialGraphClient, listsClient,
+        new MysteryZoneCache(geometryFactory, 100), downstreamExecutor, 100, MAX_REVEAL_RADIUS_M, metrics);
+    CountDownLatch release = new CountDownLatch(1);
+    when(socialGraphClient.fetchGraphSnapshot(viewerId)).thenAnswer(invocation -> {
+      release.await(5, TimeUnit.SECONDS);
+      return friendsSnapshot(List.of(ownerId));
+    });
+    PinEntity pin = pins(1).get(0);
+    pin.setAudienceType(AudienceType.FRIENDS);
+
+    long startedAt = System.nanoTime();
+    PinAccessService.AccessEvaluationResult result = pinAccessService.evaluate(pin, viewerId, false, null);
+    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+    release.countDown();
+
+    assertThat(result.getDenialReason()).isEqualTo("AUDIENCE");
+    assertThat(elapsedMs).isLessThan(2_000);
+  }
+
+  @Test
+  void batchAclRowsAreAppliedToTheirOwnPins() {
+    List<PinEntity> pins = pins(3);
+    UUID listId = UUID.randomUUID();
+    when(pinAclRepository.findByPinIdIn(anyCollection())).thenReturn(List.of(
+        acl(pins.get(0).getId(), TargetType.USER, viewerId),
+        acl(pins.get(1).getId(), TargetType.USER, UUID.randomUUID()),
+        acl(pins.get(2).getId(), TargetType.LIST, listId)
+    ));
+    when(listsClient.findMemberListIds(eq(viewerId), anyCollection())).thenReturn(Set.of());
+
+    Map<UUID, PinAccessService.AccessEvaluationResult> results =
+        pinAccessService.evaluateBatch(pins, viewerId, false);
+
+    assertThat(results.get(pins.get(0).getId()).isAllowed()).isTrue();
+    assertThat(results.get(pins.get(1).getId()).getDenialReason()).isEqualTo("ACL");
+    assertThat(results.get(pins.get(2).getId()).getDenialReason()).isEqualTo("ACL");
+    assertThat(meterRegistry.get("brooks.pins.access.decisions").tag("reason", "ACL").counter().count())
+        .isEqualTo(2.0);
+    assertThat(meterRegistry.get("brooks.pins.access.decisions").tag("reason", "OK").counter().count())
+        .isEqualTo(1.0);
+    assertThat(meterRegistry.get("brooks.pins.access.phase").tag("phase", "acl").timer().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void listAclsOfAllPinsAreResolvedWithOneMembershipCall() {
+    List<PinEntity> pins = pins(3);
+    UUID memberList = UUID.randomUUID();
+    UUID otherList = UUID.randomUUID();
+    when(pinAclRepository.findByPinIdIn(anyCollection())).thenReturn(List.of(
+        acl(pins.get(0).getId(), TargetType.LIST, memberList),
+        acl(pins.get(1).getId(), TargetType.LIST, otherList),
+        acl(pins.get(2).getId(), TargetType.LIST, memberList),
+        acl(pins.get(2).getId(), TargetType.LIST, otherList)
+    ));
+    when(listsClient.findMemberListIds(eq(viewerId), anyCollection())).thenReturn(Set.of(memberList.toString()));
+
+    Map<UUID, PinAccessService.AccessEvaluationResult> results =
+        pinAccessService.evaluateBatch(pins, viewerId, false);
+
+    assertThat(results.get(pins.get(0).getId()).isAllowed()).isTrue();
+    assertThat(results.get(pins.get(1).getId()).getDenialReason()).isEqualTo("ACL");
+    assertThat(results.get(pins.get(2).getId()).isAllowed()).isTrue();
+    verify(listsClient, times(1)).findMemberListIds(
+        eq(viewerId),
+        eq(new TreeSet<>(Set.of(memberList.toString(), otherList.toString())))
+    );
+    verify(listsClient, never()).isUserInAnyList(any(), any());
+  }
+
+  @Test
+  void emptyBatchSkipsAclQuery() {
+    assertThat(pinAccessService.evaluateBatch(List.of(), viewerId, false)).isEmpty();
+    verify(pinAclRepository, never()).findByPinIdIn(anyCollection());
+  }
+
+  @Test
+  void revealRadiusIsCappedAtTheMaxRevealRadius() {
+    PinEntity pin = pins(1).get(0);
+    pin.setRevealType(RevealType.REACH_TO_REVEAL);
+    pin.setRevealRadiusM(5000);
+
+    // ~3 km and ~1 km north of the pin
+    assertThat(pinAccessService.evaluate(pin, viewerId, false, new LocationRequest(0.027, 0.0, null))
+        .getDenialReason()).isEqualTo("DISTANCE");
+    assertThat(pinAccessService.evaluate(pin, viewerId, false, new LocationRequest(0.009, 0.0, null))
+        .isAllowed()).isTrue();
+  }
+
+  private List<PinEntity> pins(int count) {
+    Instant now = Instant.now();
+    List<PinEntity> pins = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      PinEntity pin = new PinEntity();
+      pin.setId(UUID.randomUUID());
+      pin.setOwnerId(ownerId);
+      pin.setText("Pin " + i);
+      pin.setAudienceType(AudienceType.PUBLIC);
+      pin.setAvailableFrom(now.minusSeconds(60));
+      pin.setExpiresAt(now.plusSeconds(3600));
+      pin.setRevealType(RevealType.VISIBLE_ALWAYS);
+      pin.setMapPrecision(MapPrecision.EXACT);
+      pin.setGeom(geometryFactory.createPoint(new Coordinate(0.0, 0.0)));
+      pins.add(pin);
+    }
+    return pins;
+  }
+
+  private PinAclEntity acl(UUID pinId, TargetType targetType, UUID targetId) {
+    PinAclEntity acl = new PinAclEntity();
+    acl.setPinId(pinId);
+    acl.setTargetType(targetType);
+    acl.setTargetId(targetId);
+    return acl;
+  }
+
+  private static SocialGraphSnapshot friendsSnapshot(Collection<UUID> friendIds) {
+    long[] packed = friendIds.stream()
+        .sorted(Comparator.comparingLong(UUID::getMostSignificantBits)
+            .thenComparingLong(UUID::getLeastSignificantBits))
+        .flatMapToLong(id -> LongStream.of(id.getMostSignificantBits(), id.getLeastSignificantBits()))
+        .toArray();
+    return new SocialGraphSnapshot(packed, packed, new long[0], packed, packed);
+  }
+}
@@ -0,0 +1,544 @@
+package com.brooks.pins.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.brooks.pins.AudienceType;
+import com.brooks.pins.IndexedPin;
+import com.brooks.pins.LocationBucket;
+import com.brooks.pins.LocationRequest;
+import com.brooks.pins.MapPin;
+import com.brooks.pins.MapPinsResponse;
+import com.brooks.pins.MapPrecision;
+import com.brooks.pins.PinAccessPolicy;
+import com.brooks.pins.PinAclEntity;
+import com.brooks.pins.PinAclRepository;
+import com.brooks.pins.PinCandidatesResponse;
+import com.brooks.pins.PinEntity;
+import com.brooks.pins.PinNotificationStateRepository;
+import com.brooks.pins.PinRepository;
+import com.brooks.pins.PinSummary;
+import com.brooks.pins.RevealType;
+import com.brooks.pins.SocialGraphSnapshot;
+import com.brooks.pins.TrajectorySample;
+import com.brooks.pins.domain.CellId;
+import com.brooks.pins.domain.CellRanges;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.domain.Pageable;
+
+class ProximityServiceTest {
+  private static final double[] BBOX = {-1, -1, 1, 1};
+  private static final int MAX_CANDIDATES = 100;
+  private static final int MAX_REVEAL_RADIUS_M = 2000;
+  private static final double CHUNK_SPAN_M = 2000;
+  private static final double MAX_SEGMENT_M = 5000;
+  private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory(new PrecisionModel(), 4326);
+
+  private final UUID viewerId = UUID.randomUUID();
+  private final UUID friend = UUID.randomUUID();
+  private final UUID followee = UUID.randomUUID();
+  private final UUID stranger = UUID.randomUUID();
+  private final UUID hiddenFriend = UUID.randomUUID();
+  private final UUID blockedFriend = UUID.randomUUID();
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private PinRepository pinRepository;
+  private PinAccessService pinAccessService;
+  private SocialGraphSnapshot snapshot;
+  private ProximityService proximityService;
+
+  @BeforeEach
+  void setUp() {
+    pinRepository = mock(PinRepository.class);
+    pinAccessService = mock(PinAccessService.class);
+    snapshot = new SocialGraphSnapshot(
+        pack(List.of(friend, hiddenFriend, blockedFriend)),
+        pack(List.of(followee)),
+        pack(List.of(blockedFriend)),
+        pack(List.of(friend, followee, stranger, blockedFriend)),
+        new long[0]
+    );
+    when(pinAccessService.fetchGraphSnapshot(viewerId)).thenReturn(Optional.of(snapshot));
+    proximityService = new ProximityService(
+        pinRepository,
+        pinAccessService,
+        mock(PinNotificationStateRepository.class),
+        new LocationBucket(0.01),
+        new PinAccessMetrics(meterRegistry),
+        new ActivePinIndex(pinRepository, false),
+        new GeofenceIndex(pinRepository, false, 0.005, 64, MAX_REVEAL_RADIUS_M),
+        disabledPublicTiles(),
+        new MysteryZoneCache(GEOMETRY_FACTORY, 100),
+        7,
+        1,
+        MAX_CANDIDATES,
+        MAX_REVEAL_RADIUS_M,
+        CHUNK_SPAN_M,
+        MAX_SEGMENT_M
+    );
+  }
+
+  @Test
+  void homeQueryOnlyLoadsOwnersThatCanPassAccessEvaluation() {
+    proximityService.findPinsInBoundingBox(viewerId, BBOX, MapPage.first(MAX_CANDIDATES));
+
+    OwnerSets sets = captureOwnerSets();
+    assertThat(sets.viewerId()).isEqualTo(viewerId);
+    assertThat(sets.publicOwners()).containsExactlyInAnyOrder(friend, followee, stranger);
+    assertThat(sets.friendsOwners()).containsExactly(friend);
+    assertThat(sets.followersOwners()).containsExactly(followee);
+    verify(pinRepository, never())
+        .findInBoundingBox(anyDouble(), anyDouble(), anyDouble(), anyDouble(), any(), any(), any());
+    assertThat(meterRegistry.get("brooks.pins.map.candidates").tag("scope", "home").summary().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void homeQueryWithoutASnapshotOnlyLoadsTheViewersOwnPins() {
+    when(pinAccessService.fetchGraphSnapshot(viewerId)).thenReturn(Optional.empty());
+
+    proximityService.findPinsInBoundingBox(viewerId, BBOX, MapPage.first(MAX_CANDIDATES));
+
+    verify(pinRepository).findOwnerPinsInBoundingBox(
+        eq(viewerId), eq(-1.0), eq(-1.0), eq(1.0), eq(1.0), any(), eq(MapPage.START), any());
+    verify(pinRepository, never()).findVisibleCandidatesInBoundingBox(
+        any(), any(), any(), any(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), any(), any(), any());
+    verify(pinRepository, never())
+        .findPublicLayerInBoundingBox(anyDouble(), anyDouble(), anyDouble(), anyDouble(), any(), any());
+    verify(pinAccessService).evaluateBatch(any(), eq(viewerId), eq(false), eq(SocialGraphSnapshot.EMPTY));
+  }
+
+  @Test
+  void friendsQueryWithoutASnapshotReturnsAnEmptyPage() {
+    when(pinAccessService.fetchGraphSnapshot(viewerId)).thenReturn(Optional.empty());
+
+    MapPinsResponse response =
+        proximityService.findFriendPinsInBoundingBox(viewerId, BBOX, MapPage.first(MAX_CANDIDATES));
+
+    assertThat(response.pins()).isEmpty();
+    assertThat(response.truncated()).isFalse();
+    verifyNoInteractions(pinRepository);
+    verify(pinAccessService, never()).evaluateBatch(any(), any(), anyBoolean(), any());
+  }
+
+  @Test
+  void ownerSetsOfAnySizeAreBoundInFull() {
+    List<UUID> owners = Stream.generate(UUID::randomUUID).limit(40_000).toList();
+    snapshot = new SocialGraphSnapshot(new long[0], new long[0], new long[0], pack(owners), new long[0]);
+    when(pinAccessService.fetchGraphSnapshot(viewerId)).thenReturn(Optional.of(snapshot));
+
+    proximityService.findPinsInBoundingBox(viewerId, BBOX, MapPage.first(MAX_CANDIDATES));
+
+    assertThat(captureOwnerSets().publicOwners()).containsExactlyInAnyOrderElementsOf(owners);
+  }
+
+  @Test
+  void friendsQueryExcludesViewerAndNonFriends() {
+    proximityService.findFriendPinsInBoundingBox(viewerId, BBOX, MapPage.first(MAX_CANDIDATES));
+
+    OwnerSets sets = captureOwnerSets();
+    assertThat(sets.viewerId()).isEqualTo(MapOwnerFilter.NO_OWNER);
+    assertThat(sets.publicOwners()).containsExactly(friend);
+    assertThat(sets.friendsOwners()).containsExactly(friend);
+    assertThat(sets.followersOwners()).isEmpty();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void servingIndexAppliesTheSameOwnerFilterWithoutQueryingTheDatabase() {
+    ActivePinIndex index = mock(ActivePinIndex.class);
+    when(index.isServing()).thenReturn(true);
+    when(index.findInBoundingBox(eq(BBOX), any(), any(), any(), anyInt())).thenReturn(List.of());
+    proximityService = new ProximityService(
+        pinRepository,
+        pinAccessService,
+        mock(PinNotificationStateRepository.class),
+        new LocationBucket(0.01),
+        new PinAccessMetrics(meterRegistry),
+        index,
+        new GeofenceIndex(pinRepository, false, 0.005, 64, MAX_REVEAL_RADIUS_M),
+        disabledPublicTiles(),
+        new MysteryZoneCache(GEOMETRY_FACTORY, 100),
+        7,
+        1,
+        MAX_CANDIDATES,
+        MAX_REVEAL_RADIUS_M,
+        CHUNK_SPAN_M,
+        MAX_SEGMENT_M
+    );
+
+    proximityService.findPinsInBoundingBox(viewerId, BBOX, MapPage.first(MAX_CANDIDATES));
+
+    ArgumentCaptor<Predicate<IndexedPin>> filter = ArgumentCaptor.forClass(Predicate.class);
+    verify(index).findInBoundingBox(eq(BBOX), any(), filter.capture(), eq(MapPage.START), eq(MAX_CANDIDATES + 1));
+    assertThat(filter.getValue().test(indexedPin(stranger, AudienceType.PUBLIC))).isTrue();
+    assertThat(filter.getValue().test(indexedPin(stranger, AudienceType.FRIENDS))).isFalse();
+    assertThat(filter.getValue().test(indexedPin(followee, AudienceType.FOLLOWERS))).isTrue();
+    assertThat(filter.getValue().test(indexedPin(blockedFriend, AudienceType.PUBLIC))).isFalse();
+    assertThat(filter.getValue().test(indexedPin(viewerId, AudienceType.PRIVATE))).isTrue();
+    verifyNoInteractions(pinRepository);
+  }
+
+  @Test
+  void mapQueriesLoadOneExtraRowToDetectTruncation() {
+    List<PinSummary> loaded = List.of(summary(friend), summary(friend), summary(friend));
+    PinAccessService.AccessEvaluationResult denied = new PinAccessService.AccessEvaluationResult(
+        new PinAccessPolicy.PolicyDecision(false, "AUDIENCE"), false, null);
+    when(pinAccessService.evaluateBatch(any(), eq(viewerId), eq(false), eq(snapshot))).thenReturn(
+        loaded.stream().collect(Collectors.toMap(PinSummary::getId, pin -> denied)));
+    when(pinRepository.findVisibleCandidatesInBoundingBox(
+        any(), any(), any(), any(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), any(), any(), any()))
+        .thenReturn(loaded);
+    UUID after = UUID.randomUUID();
+
+    MapPinsResponse response = proximityService.findPinsInBoundingBox(viewerId, BBOX, new MapPage(after, 2));
+
+    ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+    verify(pinRepository).findVisibleCandidatesInBoundingBox(
+        any(), any(), any(), any(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), any(), eq(after),
+        pageable.capture());
+    assertThat(pageable.getValue().getPageSize()).isEqualTo(3);
+    assertThat(response.truncated()).isTrue();
+    assertThat(response.nextCursor()).isEqualTo(loaded.get(1).getId().toString());
+
+    when(pinRepository.findVisibleCandidatesInBoundingBox(
+        any(), any(), any(), any(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), any(), any(), any()))
+        .thenReturn(loaded.subList(0, 2));
+    MapPinsResponse lastPage = proximityService.findPinsInBoundingBox(viewerId, BBOX, new MapPage(after, 2));
+    assertThat(lastPage.truncated()).isFalse();
+    assertThat(lastPage.nextCursor()).isNull();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void publicPinsComeFromTheSharedLayerAndOnlyPersonalOrAccessListedPinsAreEvaluated() {
+    double[] viewport = {0.495, 0.495, 0.505, 0.505};
+    PinSummary strangerPin = summary(stranger);
+    PinSummary blockedPin = summary(blockedFriend);
+    PinSummary listedPin = summary(followee);
+    PinSummary friendsPin = new PinSummary(UUID.randomUUID(), friend, 0.5, 0.5, null, null, AudienceType.FRIENDS,
+        RevealType.VISIBLE_ALWAYS, MapPrecision.EXACT, Instant.now().minusSeconds(60), Instant.now().plusSeconds(60),
+        false, Instant.now());
+    when(pinRepository.findPublicLayerInBoundingBox(anyDouble(), anyDouble(), anyDouble(), anyDouble(), any(), any()))
+        .thenReturn(List.of(strangerPin, blockedPin, listedPin));
+    PinAclRepository pinAclRepository = mock(PinAclRepository.class);
+    PinAclEntity acl = new PinAclEntity();
+    acl.setPinId(listedPin.getId());
+    when(pinAclRepository.findByPinIdIn(any())).thenReturn(List.of(acl));
+    when(pinRepository.findPersonalCandidatesInBoundingBox(
+        any(), any(), any(), any(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), any(), any(), any()))
+        .thenReturn(List.of(friendsPin));
+    PinAccessService.AccessEvaluationResult allowed = new PinAccessService.AccessEvaluationResult(
+        PinAccessPolicy.PolicyDecision.allow(), true, null);
+    when(pinAccessService.evaluateBatch(any(), eq(viewerId), eq(false), eq(snapshot))).thenAnswer(invocation ->
+        ((List<PinSummary>) invocation.getArgument(0)).stream()
+            .collect(Collectors.toMap(PinSummary::getId, pin -> allowed)));
+    proximityService = new ProximityService(
+        pinRepository,
+        pinAccessService,
+        mock(PinNotificationStateRepository.class),
+        new LocationBucket(0.01),
+        new PinAccessMetrics(meterRegistry),
+        new ActivePinIndex(pinRepository, false),
+        new GeofenceIndex(pinRepository, false, 0.005, 64, MAX_REVEAL_RADIUS_M),
+        new PublicTileCache(pinRepository, pinAclRepository, new ConcurrentMapCacheManager(), unchangedCellVersions(),
+            true, 13, 64, 5000),
+        new MysteryZoneCache(GEOMETRY_FACTORY, 100),
+        7,
+        1,
+        MAX_CANDIDATES,
+        MAX_REVEAL_RADIUS_M,
+        CHUNK_SPAN_M,
+        MAX_SEGMENT_M
+    );
+
+    MapPinsResponse response = proximityService.findPinsInBoundingBox(viewerId, viewport, MapPage.first(MAX_CANDIDATES));
+
+    assertThat(response.pins()).extracting(MapPin::id).containsExactlyInAnyOrder(
+        strangerPin.getId().toString(), listedPin.getId().toString(), friendsPin.getId().toString());
+    ArgumentCaptor<List<PinSummary>> evaluated = ArgumentCaptor.forClass(List.class);
+    verify(pinAccessService).evaluateBatch(evaluated.capture(), eq(viewerId), eq(false), eq(snapshot));
+    assertThat(evaluated.getValue()).extracting(PinSummary::getId)
+        .containsExactlyInAnyOrder(listedPin.getId(), friendsPin.getId());
+    verify(pinRepository, never()).findVisibleCandidatesInBoundingBox(
+        any(), any(), any(), any(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), any(), any(), any());
+
+    // A second request reuses the cached tiles
+    clearInvocations(pinRepository);
+    proximityService.findPinsInBoundingBox(viewerId, viewport, MapPage.first(MAX_CANDIDATES));
+    verify(pinRepository, never())
+        .findPublicLayerInBoundingBox(anyDouble(), anyDouble(), anyDouble(), anyDouble(), any(), any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void sharedAndPersonalPinsAreMergedIntoOnePage() {
+    List<PinSummary> sorted = Stream.of(summary(stranger), summary(stranger), summary(viewerId))
+        .sorted((a, b) -> MapPage.ID_ORDER.compare(a.getId(), b.getId()))
+        .toList();
+    List<PinSummary> shared = sorted.stream().filter(pin -> pin.getOwnerId().equals(stranger)).toList();
+    when(pinRepository.findPublicLayerInBoundingBox(anyDouble(), anyDouble(), anyDouble(), anyDouble(), any(), any()))
+        .thenReturn(shared);
+    when(pinRepository.findPersonalCandidatesInBoundingBox(
+        any(), any(), any(), any(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), any(), any(), any()))
+        .thenReturn(sorted.stream().filter(pin -> pin.getOwnerId().equals(viewerId)).toList());
+    PinAclRepository pinAclRepository = mock(PinAclRepository.class);
+    when(pinAclRepository.findByPinIdIn(any())).thenReturn(List.of());
+    PinAccessService.AccessEvaluationResult allowed = new PinAccessService.AccessEvaluationResult(
+        PinAccessPolicy.PolicyDecision.allow(), true, null);
+    when(pinAccessService.evaluateBatch(any(), eq(viewerId), eq(false), eq(snapshot))).thenAnswer(invocation ->
+        ((List<PinSummary>) invocation.getArgument(0)).stream()
+            .collect(Collectors.toMap(PinSummary::getId, pin -> allowed)));
+    proximityService = new ProximityService(
+        pinRepository,
+        pinAccessService,
+        mock(PinNotificationStateRepository.class),
+        new LocationBucket(0.01),
+        new PinAccessMetrics(meterRegistry),
+        new ActivePinIndex(pinRepository, false),
+        new GeofenceIndex(pinRepository, false, 0.005, 64, MAX_REVEAL_RADIUS_M),
+        new PublicTileCache(pinRepository, pinAclRepository, new ConcurrentMapCacheManager(), unchangedCellVersions(),
+            true, 13, 64, 5000),
+        new MysteryZoneCache(GEOMETRY_FACTORY, 100),
+        7,
+        1,
+        MAX_CANDIDATES,
+        MAX_REVEAL_RADIUS_M,
+        CHUNK_SPAN_M,
+        MAX_SEGMENT_M
+    );
+
+    MapPinsResponse page = proximityService.findPinsInBoundingBox(
+        viewerId, new double[]{0.495, 0.495, 0.505, 0.505}, MapPage.first(2));
+
+    assertThat(page.pins()).extracting(MapPin::id)
+        .containsExactly(sorted.get(0).getId().toString(), sorted.get(1).getId().toString());
+    assertThat(page.truncated()).isTrue();
+    assertThat(page.nextCursor()).isEqualTo(sorted.get(1).getId().toString());
+  }
+
+  @Test
+  void proximityChecksSearchWithinTheMaxRevealRadius() {
+    Instant now = Instant.now();
+
+    proximityService.findRevealablePinsNear(viewerId, new LocationRequest(41.7151, 44.8271, null), now);
+
+    verify(pinRepository).findRevealableNear(viewerId, 41.7151, 44.8271, MAX_REVEAL_RADIUS_M, now);
+    verify(pinRepository, never()).findActiveInCellRanges(any(), any(), any(), anyInt());
+  }
+
+  @Test
+  void revealChecksReloadThePinFromTheDatabase() {
+    PinEntity pin = revealablePin(41.7151, 44.8271, Instant.now().minusSeconds(60));
+    when(pinRepository.findById(pin.getId())).thenReturn(Optional.of(pin));
+
+    assertThat(proximityService.findPinForReveal(pin.getId())).containsSame(pin);
+    verify(pinRepository).findById(pin.getId());
+  }
+
+  @Test
+  void trajectoriesRevealZonesPassedBetweenSamples() {
+    Instant now = Instant.now();
+    // ~44 m off the path, far from both samples; a mystery zone the path crosses; a pin ~1.1 km off
+    PinEntity passed = revealablePin(41.7004, 44.8, now.minusSeconds(3600));
+    PinEntity zoned = revealablePin(41.7, 44.812, now.minusSeconds(3600));
+    zoned.setRevealRadiusM(null);
+    zoned.setMysteryGeom(GEOMETRY_FACTORY.createPolygon(new Coordinate[]{
+        new Coordinate(44.811, 41.699), new Coordinate(44.813, 41.699), new Coordinate(44.813, 41.701),
+        new Coordinate(44.811, 41.701), new Coordinate(44.811, 41.699)
+    }));
+    PinEntity missed = revealablePin(41.71, 44.8, now.minusSeconds(3600));
+    // Became available after the viewer passed, and not available yet
+    PinEntity late = revealablePin(41.7, 44.805, now.minusSeconds(30));
+    PinEntity upcoming = revealablePin(41.7, 44.805, now.plusSeconds(600));
+    when(pinRepository.findRevealableInBoundingBox(eq(viewerId), anyDouble(), anyDouble(), anyDouble(), anyDouble(), eq(now)))
+        .thenReturn(List.of(zoned, missed, late, upcoming, passed));
+
+    List<IndexedPin> reached = proximityService.findRevealablePinsAlong(viewerId, List.of(
+        new TrajectorySample(new LocationRequest(41.7, 44.79, null), now.minusSeconds(120)),
+        new TrajectorySample(new LocationRequest(41.7, 44.83, null), now.minusSeconds(60))
+    ), now);
+
+    assertThat(reached).extracting(IndexedPin::getId).containsExactly(zoned.getId(), passed.getId());
+    verify(pinRepository, times(1))
+        .findRevealableInBoundingBox(eq(viewerId), anyDouble(), anyDouble(), anyDouble(), anyDouble(), eq(now));
+  }
+
+  @Test
+  void trajectoryGapsLongerThanMaxSegmentOnlyTestTheSamples() {
+    Instant now = Instant.now();
+    PinEntity between = revealablePin(41.7004, 44.8, now.minusSeconds(3600));
+    PinEntity atSample = revealablePin(41.7004, 44.9, now.minusSeconds(3600));
+    when(pinRepository.findRevealableInBoundingBox(eq(viewerId), anyDouble(), anyDouble(), anyDouble(), anyDouble(), eq(now)))
+        .thenReturn(List.of(between, atSample));
+
+    // ~16.6 km apart
+    List<IndexedPin> reached = proximityService.findRevealablePinsAlong(viewerId, List.of(
+        new TrajectorySample(new LocationRequest(41.7, 44.7, null), now.minusSeconds(600)),
+        new TrajectorySample(new LocationRequest(41.7, 44.9, null), now.minusSeconds(60))
+    ), now);
+
+    assertThat(reached).extracting(IndexedPin::getId).containsExactly(atSample.getId());
+    verify(pinRepository, times(2))
+        .findRevealableInBoundingBox(eq(viewerId), anyDouble(), anyDouble(), anyDouble(), anyDouble(), eq(now));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void denseNeighbourhoodsAreCutToMaxCandidatesAndMarkedTruncated() {
+    List<PinEntity> dense = LongStream.range(0, MAX_CANDIDATES + 1)
+        .mapToObj(i -> revealablePin(41.7151, 44.8271, Instant.now().minusSeconds(60)))
+        .toList();
+    when(pinRepository.countActiveInCellRanges(any(), any(), any(), anyInt())).thenReturn(MAX_CANDIDATES + 1L);
+    when(pinRepository.findActiveInCellRanges(any(), any(), any(), eq(MAX_CANDIDATES + 1))).thenReturn(dense);
+    PinAccessService.AccessEvaluationResult allowed = new PinAccessService.AccessEvaluationResult(
+        PinAccessPolicy.PolicyDecision.allow(), true, null);
+    when(pinAccessService.evaluateBatch(any(), eq(viewerId), eq(true))).thenAnswer(invocation ->
+        ((List<IndexedPin>) invocation.getArgument(0)).stream()
+            .collect(Collectors.toMap(IndexedPin::getId, pin -> allowed)));
+
+    PinCandidatesResponse response = proximityService.findCandidatesInBucket(viewerId, "41.7151:44.8271");
+
+    assertThat(response.truncated()).isTrue();
+    assertThat(response.candidates()).hasSize(MAX_CANDIDATES);
+    assertThat(cellLevel()).isEqualTo(3);
+
+    when(pinRepository.findActiveInCellRanges(any(), any(), any(), eq(MAX_CANDIDATES + 1)))
+        .thenReturn(dense.subList(0, MAX_CANDIDATES));
+    assertThat(proximityService.findCandidatesInBucket(viewerId, "41.7151:44.8271").truncated()).isFalse();
+  }
+
+  @Test
+  void sparseNeighbourhoodsWidenToCoarserCells() {
+    LocationBucket locationBucket = new LocationBucket(0.01);
+    long bucketCell = locationBucket.bucketAncestor(locationBucket.cellId(41.7151, 44.8271));
+    when(pinRepository.countActiveInCellRanges(any(), any(), any(), anyInt())).thenReturn(0L, 0L, 3L);
+
+    proximityService.findActivePinsNear(bucketCell, 3, Instant.now());
+
+    CellRanges expected = CellRanges.of(CellId.withNeighbors(CellId.parent(bucketCell, 2)), 5);
+    verify(pinRepository).findActiveInCellRanges(
+        eq(expected.lows()), eq(expected.highs()), any(), eq(MAX_CANDIDATES + 1));
+    assertThat(cellLevel()).isEqualTo(5);
+  }
+
+  @Test
+  void bucketQueriesStartAtTheBucketAndNeverGoCoarserThanMaxLevel() {
+    LocationBucket locationBucket = new LocationBucket(0.01);
+    long bucketCell = locationBucket.bucketAncestor(locationBucket.cellId(41.7151, 44.8271));
+    when(pinRepository.countActiveInCellRanges(any(), any(), any(), anyInt())).thenReturn(101L);
+
+    proximityService.findActivePinsNear(bucketCell, 3, Instant.now());
+
+    verify(pinRepository, times(1)).countActiveInCellRanges(any(), any(), any(), anyInt());
+    assertThat(cellLevel()).isEqualTo(3);
+
+    when(pinRepository.countActiveInCellRanges(any(), any(), any(), anyInt())).thenReturn(0L);
+    proximityService.findActivePinsNear(bucketCell, 3, Instant.now());
+
+    assertThat(meterRegistry.get("brooks.pins.proximity.cell-level").summary().max()).isEqualTo(7);
+  }
+
+  private double cellLevel() {
+    return meterRegistry.get("brooks.pins.proximity.cell-level").summary().totalAmount();
+  }
+
+  private PublicTileCache disabledPublicTiles() {
+    return new PublicTileCache(pinRepository, mock(PinAclRepository.class), new ConcurrentMapCacheManager(),
+        mock(CellVersions.class), false, 13, 64, 5000);
+  }
+
+  private static CellVersions unchangedCellVersions() {
+    CellVersions cellVersions = mock(CellVersions.class);
+    when(cellVersions.inBoundingBox(any(double[].class))).thenReturn(new long[]{0});
+    return cellVersions;
+  }
+
+  private static PinSummary summary(UUID ownerId) {
+    Instant now = Instant.now();
+    return new PinSummary(UUID.randomUUID(), ownerId, 0.5, 0.5, null, null, AudienceType.PUBLIC,
+        RevealType.VISIBLE_ALWAYS, MapPrecision.EXACT, now.minusSeconds(60), now.plusSeconds(60), false, now);
+  }
+
+  private PinEntity revealablePin(double lat, double lng, Instant availableFrom) {
+    PinEntity pin = pin(stranger, AudienceType.PUBLIC);
+    pin.setId(UUID.randomUUID());
+    pin.setRevealType(RevealType.REACH_TO_REVEAL);
+    pin.setRevealRadiusM(60);
+    pin.setAvailableFrom(availableFrom);
+    pin.setExpiresAt(Instant.now().plusSeconds(3600));
+    pin.setGeom(GEOMETRY_FACTORY.createPoint(new Coordinate(lng, lat)));
+    return pin;
+  }
+
+  private IndexedPin indexedPin(UUID ownerId, AudienceType audienceType) {
+    PinEntity pin = revealablePin(41.7151, 44.8271, Instant.now().minusSeconds(60));
+    pin.setOwnerId(ownerId);
+    pin.setAudienceType(audienceType);
+    return IndexedPin.of(pin);
+  }
+
+  private static PinEntity pin(UUID ownerId, AudienceType audienceType) {
+    PinEntity pin = new PinEntity();
+    pin.setOwnerId(ownerId);
+    pin.setAudienceType(audienceType);
+    return pin;
+  }
+
+  private OwnerSets captureOwnerSets() {
+    ArgumentCaptor<UUID> viewer = ArgumentCaptor.forClass(UUID.class);
+    ArgumentCaptor<UUID[]> publicOwners = ArgumentCaptor.forClass(UUID[].class);
+    ArgumentCaptor<UUID[]> friendsOwners = ArgumentCaptor.forClass(UUID[].class);
+    ArgumentCaptor<UUID[]> followersOwners = ArgumentCaptor.forClass(UUID[].class);
+    verify(pinRepository).findVisibleCandidatesInBoundingBox(
+        viewer.capture(),
+        publicOwners.capture(),
+        friendsOwners.capture(),
+        followersOwners.capture(),
+        eq(-1.0), eq(-1.0), eq(1.0), eq(1.0), any(), eq(MapPage.START), any());
+    return new OwnerSets(viewer.getValue(), List.of(publicOwners.getValue()), List.of(friendsOwners.getValue()),
+        List.of(followersOwners.getValue()));
+  }
+
+  private static long[] pack(List<UUID> ids) {
+    return ids.stream()
+        .sorted(Comparator.comparingLong(UUID::getMostSignificantBits)
+            .thenComparingLong(UUID::getLeastSignificantBits))
+        .flatMapToLong(id -> LongStream.of(id.getMostSignificantBits(), id.getLeastSignificantBits()))
+        .toArray();
+  }
+
+  private record OwnerSets(
+      UUID viewerId,
+      List<UUID> publicOwners,
+      List<UUID> friendsOwners,
+      List<UUID> followersOwners
+  ) {}
+}
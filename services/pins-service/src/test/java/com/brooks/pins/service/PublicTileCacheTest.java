@@ -0,0 +1,168 @@
+package com.brooks.pins.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.brooks.pins.AudienceType;
+import com.brooks.pins.LocationRequest;
+import com.brooks.pins.MapPrecision;
+import com.brooks.pins.PinAclEntity;
+import com.brooks.pins.PinAclRepository;
+import com.brooks.pins.PinChangedEvent;
+import com.brooks.pins.PinRepository;
+import com.brooks.pins.PinSummary;
+import com.brooks.pins.RevealType;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+class PublicTileCacheTest {
+  private static final double LAT = 41.7151;
+  private static final double LNG = 44.8271;
+  private static final double[] VIEWPORT = {LNG - 0.005, LAT - 0.005, LNG + 0.005, LAT + 0.005};
+
+  private final Instant now = Instant.parse("2026-05-01T12:00:00Z");
+  private PinRepository pinRepository;
+  private PinAclRepository pinAclRepository;
+  private CellVersions cellVersions;
+  private PublicTileCache cache;
+
+  @BeforeEach
+  void setUp() {
+    pinRepository = mock(PinRepository.class);
+    pinAclRepository = mock(PinAclRepository.class);
+    when(pinAclRepository.findByPinIdIn(anyCollection())).thenReturn(List.of());
+    cellVersions = mock(CellVersions.class);
+    when(cellVersions.inBoundingBox(any(double[].class))).thenReturn(new long[]{0});
+    cache = tiles(true, 5000);
+  }
+
+  @Test
+  void encodedTilesRoundTripEveryField() {
+    PinSummary pin = new PinSummary(UUID.randomUUID(), UUID.randomUUID(), LAT, LNG, 12.5, "Sunset over the river",
+        AudienceType.PUBLIC, RevealType.VISIBLE_ALWAYS, MapPrecision.BLURRED, now, now.plusSeconds(3600), false,
+        now.minusNanos(1234));
+    PinSummary untitled = publicPin(now, now.plusSeconds(60));
+
+    List<PublicTileCache.SharedPin> decoded =
+        PublicTileCache.decode(PublicTileCache.encode(List.of(pin, untitled), Set.of(untitled.getId())));
+
+    assertThat(decoded).hasSize(2);
+    assertThat(decoded.get(0).restricted()).isFalse();
+    assertThat(decoded.get(0).pin()).usingRecursiveComparison().isEqualTo(pin);
+    assertThat(decoded.get(1).restricted()).isTrue();
+    assertThat(decoded.get(1).pin()).usingRecursiveComparison().isEqualTo(untitled);
+  }
+
+  @Test
+  void tilesAreSharedUntilAPinInThemChanges() {
+    PinSummary pin = publicPin(now.minusSeconds(60), now.plusSeconds(3600));
+    whenTileQueried(List.of(pin));
+
+    assertThat(cache.load(VIEWPORT, now)).extracting(PublicTileCacheTest::id).containsExactly(pin.getId());
+    verify(pinRepository, atLeastOnce()).findPublicLayerInBoundingBox(
+        anyDouble(), anyDouble(), anyDouble(), anyDouble(), any(), any());
+    clearInvocations(pinRepository);
+
+    assertThat(cache.load(VIEWPORT, now)).hasSize(1);
+    verifyNoInteractions(pinRepository);
+
+    cache.onPinChanged(new PinChangedEvent(pin.getId(), new LocationRequest(LAT, LNG, null)));
+    cache.load(VIEWPORT, now);
+    verify(pinRepository, times(1)).findPublicLayerInBoundingBox(
+        anyDouble(), anyDouble(), anyDouble(), anyDouble(), any(), any());
+  }
+
+  @Test
+  void tilesLoadedWhileAPinInThemChangesAreNotCached() {
+    PinSummary pin = publicPin(now.minusSeconds(60), now.plusSeconds(3600));
+    PinSummary created = publicPin(now.minusSeconds(1), now.plusSeconds(3600));
+    // The change commits, bumps its cell and evicts the tile while the old rows are being read
+    when(pinRepository.findPublicLayerInBoundingBox(anyDouble(), anyDouble(), anyDouble(), anyDouble(), any(), any()))
+        .thenAnswer(invocation -> {
+          when(cellVersions.inBoundingBox(any(double[].class))).thenReturn(new long[]{1});
+          cache.onPinChanged(new PinChangedEvent(created.getId(), new LocationRequest(LAT, LNG, null)));
+          return List.of(pin);
+        });
+
+    assertThat(cache.load(VIEWPORT, now)).extracting(PublicTileCacheTest::id).containsExactly(pin.getId());
+
+    whenTileQueried(List.of(pin, created));
+    assertThat(cache.load(VIEWPORT, now)).hasSize(2);
+  }
+
+  @Test
+  void pinsOutsideTheirTimeWindowAreSkippedAndTheTileReloadsWhenOneChanges() {
+    PinSummary expiring = publicPin(now.minusSeconds(60), now.plusSeconds(60));
+    PinSummary upcoming = publicPin(now.plusSeconds(30), now.plusSeconds(3600));
+    whenTileQueried(List.of(expiring, upcoming));
+
+    assertThat(cache.load(VIEWPORT, now)).extracting(PublicTileCacheTest::id).containsExactly(expiring.getId());
+    clearInvocations(pinRepository);
+
+    assertThat(cache.load(VIEWPORT, now.plusSeconds(31))).hasSize(2);
+    verify(pinRepository, times(1)).findPublicLayerInBoundingBox(
+        anyDouble(), anyDouble(), anyDouble(), anyDouble(), any(), any());
+    assertThat(cache.load(VIEWPORT, now.plusSeconds(61))).extracting(PublicTileCacheTest::id)
+        .containsExactly(upcoming.getId());
+  }
+
+  @Test
+  void accessListedPinsAreMarkedRestricted() {
+    PinSummary listed = publicPin(now.minusSeconds(60), now.plusSeconds(3600));
+    whenTileQueried(List.of(listed));
+    PinAclEntity acl = new PinAclEntity();
+    acl.setPinId(listed.getId());
+    when(pinAclRepository.findByPinIdIn(anyCollection())).thenReturn(List.of(acl));
+
+    assertThat(cache.load(VIEWPORT, now)).extracting(PublicTileCache.SharedPin::restricted).containsExactly(true);
+  }
+
+  @Test
+  void largeViewportsDenseTilesAndDisabledCachesFallBack() {
+    assertThat(cache.load(new double[]{-1, -1, 1, 1}, now)).isNull();
+    assertThat(tiles(false, 5000).load(VIEWPORT, now)).isNull();
+    verifyNoInteractions(pinRepository);
+
+    PublicTileCache dense = tiles(true, 1);
+    whenTileQueried(List.of(publicPin(now, now.plusSeconds(60)), publicPin(now, now.plusSeconds(60))));
+    assertThat(dense.load(VIEWPORT, now)).isNull();
+    clearInvocations(pinRepository);
+    assertThat(dense.load(VIEWPORT, now)).isNull();
+    verify(pinRepository, never()).findPublicLayerInBoundingBox(
+        anyDouble(), anyDouble(), anyDouble(), anyDouble(), any(), any());
+  }
+
+  private PublicTileCache tiles(boolean enabled, int maxPinsPerTile) {
+    return new PublicTileCache(pinRepository, pinAclRepository, new ConcurrentMapCacheManager(), cellVersions,
+        enabled, 13, 64, maxPinsPerTile);
+  }
+
+  private void whenTileQueried(List<PinSummary> pins) {
+    when(pinRepository.findPublicLayerInBoundingBox(anyDouble(), anyDouble(), anyDouble(), anyDouble(), any(), any()))
+        .thenReturn(pins);
+  }
+
+  private static UUID id(PublicTileCache.SharedPin shared) {
+    return shared.pin().getId();
+  }
+
+  private PinSummary publicPin(Instant availableFrom, Instant expiresAt) {
+    return new PinSummary(UUID.randomUUID(), UUID.randomUUID(), LAT, LNG, null, null, AudienceType.PUBLIC,
+        RevealType.VISIBLE_ALWAYS, MapPrecision.EXACT, availableFrom, expiresAt, false, now.minusSeconds(120));
+  }
+}
@@ -0,0 +1,143 @@
+package com.brooks.pins.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+import com.brooks.pins.AudienceType;
+import com.brooks.pins.LocationRequest;
+import com.brooks.pins.MapCluster;
+import com.brooks.pins.MapPin;
+import com.brooks.pins.MapPinsResponse;
+import com.brooks.pins.MapPrecision;
+import com.brooks.pins.RevealType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class VectorTileEncoderTest {
+  @Test
+  void tileBoundsFollowTheWebMercatorScheme() {
+    double[] world = VectorTileEncoder.tileBounds(0, 0, 0);
+    assertThat(world[0]).isEqualTo(-180.0);
+    assertThat(world[2]).isEqualTo(180.0);
+    assertThat(world[3]).isCloseTo(85.0511, offset(1e-4));
+
+    // Tbilisi at zoom 12
+    double[] tile = VectorTileEncoder.tileBounds(12, 2558, 1524);
+    assertThat(tile[0]).isLessThan(44.8271).isGreaterThan(44.8271 - 360.0 / 4096);
+    assertThat(tile[1]).isLessThan(41.7151);
+    assertThat(tile[3]).isGreaterThan(41.7151);
+
+    assertThat(VectorTileEncoder.isValidTile(12, 2558, 1524)).isTrue();
+    assertThat(VectorTileEncoder.isValidTile(2, 4, 0)).isFalse();
+    assertThat(VectorTileEncoder.isValidTile(23, 0, 0)).isFalse();
+  }
+
+  @Test
+  void pointsAreProjectedIntoTheTileExtent() {
+    double[] tile = VectorTileEncoder.tileBounds(12, 2558, 1524);
+
+    int[] northWest = VectorTileEncoder.tilePoint(new LocationRequest(tile[3], tile[0], null), 12, 2558, 1524);
+    int[] southEast = VectorTileEncoder.tilePoint(new LocationRequest(tile[1], tile[2], null), 12, 2558, 1524);
+
+    assertThat(northWest).containsExactly(0, 0);
+    assertThat(southEast).containsExactly(VectorTileEncoder.EXTENT, VectorTileEncoder.EXTENT);
+  }
+
+  @Test
+  void encodesPinsAndClustersAsSeparateLayers() {
+    MapPinsResponse content = new MapPinsResponse(
+        List.of(pin("a"), pin("b")),
+        List.of(new MapCluster("42", new LocationRequest(41.715, 44.827, null), 12))
+    );
+
+    byte[] tile = VectorTileEncoder.encode(12, 2558, 1524, content);
+
+    List<Field> layers = fields(tile);
+    assertThat(layers).extracting(Field::number).containsExactly(3, 3);
+
+    List<Field> pinsLayer = fields(layers.get(0).bytes());
+    assertThat(string(first(pinsLayer, 1))).isEqualTo("pins");
+    assertThat(first(pinsLayer, 15).value()).isEqualTo(2);
+    assertThat(first(pinsLayer, 5).value()).isEqualTo(VectorTileEncoder.EXTENT);
+    assertThat(all(pinsLayer, 2)).hasSize(2);
+    // Shared property values ("PUBLIC", "EXACT", ...) are stored once per layer
+    assertThat(all(pinsLayer, 3)).extracting(VectorTileEncoderTest::string)
+        .containsExactly("id", "ownerId", "mapPrecision", "audienceType", "revealType", "owner", "textPreview");
+    assertThat(all(pinsLayer, 4)).hasSize(8);
+
+    List<Field> feature = fields(all(pinsLayer, 2).get(0).bytes());
+    assertThat(first(feature, 3).value()).isEqualTo(1);
+    assertThat(fields(first(feature, 4).bytes(), true)).extracting(Field::value).element(0).isEqualTo(9L);
+
+    List<Field> clustersLayer = fields(layers.get(1).bytes());
+    assertThat(string(first(clustersLayer, 1))).isEqualTo("clusters");
+    List<Field> countValue = fields(all(clustersLayer, 4).get(1).bytes());
+    assertThat(first(countValue, 5).value()).isEqualTo(12);
+  }
+
+  @Test
+  void emptyContentEncodesAnEmptyTile() {
+    assertThat(VectorTileEncoder.encode(3, 1, 1, new MapPinsResponse(List.of()))).isEmpty();
+  }
+
+  private static MapPin pin(String id) {
+    return new MapPin(id, "owner", new LocationRequest(41.7151, 44.8271, null), MapPrecision.EXACT,
+        "hello", AudienceType.PUBLIC, RevealType.VISIBLE_ALWAYS, false);
+  }
+
+  private record Field(int number, long value, byte[] bytes) {}
+
+  private static List<Field> fields(byte[] message) {
+    return fields(message, false);
+  }
+
+  // Reads a protobuf message, or a packed varint sequence when packed is set
+  private static List<Field> fields(byte[] message, boolean packed) {
+    List<Field> fields = new ArrayList<>();
+    int[] position = {0};
+    while (position[0] < message.length) {
+      if (packed) {
+        fields.add(new Field(0, varint(message, position), null));
+        continue;
+      }
+      long key = varint(message, position);
+      int number = (int) (key >>> 3);
+      if ((key & 7) == 2) {
+        int length = (int) varint(message, position);
+        byte[] bytes = Arrays.copyOfRange(message, position[0], position[0] + length);
+        position[0] += length;
+        fields.add(new Field(number, 0, bytes));
+      } else {
+        fields.add(new Field(number, varint(message, position), null));
+      }
+    }
+    return fields;
+  }
+
+  private static long varint(byte[] bytes, int[] position) {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = bytes[position[0]++];
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  private static Field first(List<Field> fields, int number) {
+    return all(fields, number).get(0);
+  }
+
+  private static List<Field> all(List<Field> fields, int number) {
+    return fields.stream().filter(field -> field.number() == number).toList();
+  }
+
+  private static String string(Field field) {
+    return new String(field.bytes(), StandardCharsets.UTF_8);
+  }
+}
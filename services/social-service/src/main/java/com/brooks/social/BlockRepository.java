@@ -1,10 +1,17 @@
 package com.brooks.social;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface BlockRepository extends JpaRepository<BlockEntity, UUID> {
   Optional<BlockEntity> findByBlockerIdAndBlockedId(UUID blockerId, UUID blockedId);
   boolean existsByBlockerIdAndBlockedId(UUID blockerId, UUID blockedId);
+
+  @Query("select case when b.blockerId = :userId then b.blockedId else b.blockerId end "
+      + "from BlockEntity b where b.blockerId = :userId or b.blockedId = :userId")
+  List<UUID> findBlockedEitherWay(@Param("userId") UUID userId);
 }
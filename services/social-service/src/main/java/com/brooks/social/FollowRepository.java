@@ -4,6 +4,8 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface FollowRepository extends JpaRepository<FollowEntity, UUID> {
   Optional<FollowEntity> findByFollowerIdAndFolloweeId(UUID followerId, UUID followeeId);
@@ -11,4 +13,7 @@ public interface FollowRepository extends JpaRepository<FollowEntity, UUID> {
   List<FollowEntity> findByFolloweeIdAndStatusOrderByIdDesc(UUID followeeId, FollowStatus status);
   long countByFollowerIdAndStatus(UUID followerId, FollowStatus status);
   long countByFolloweeIdAndStatus(UUID followeeId, FollowStatus status);
+
+  @Query("select f.followeeId from FollowEntity f where f.followerId = :followerId")
+  List<UUID> findFolloweeIds(@Param("followerId") UUID followerId);
 }
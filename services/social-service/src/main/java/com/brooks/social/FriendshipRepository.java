@@ -4,6 +4,8 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface FriendshipRepository extends JpaRepository<FriendshipEntity, UUID> {
   Optional<FriendshipEntity> findByUserIdAndFriendId(UUID userId, UUID friendId);
@@ -12,4 +14,7 @@ public interface FriendshipRepository extends JpaRepository<FriendshipEntity, UU
   List<FriendshipEntity> findByFriendIdAndStatusOrderByRequestedAtDesc(UUID friendId, FriendshipStatus status);
   List<FriendshipEntity> findByUserIdAndStatusOrderByRequestedAtDesc(UUID userId, FriendshipStatus status);
   long countByUserIdAndStatus(UUID userId, FriendshipStatus status);
+
+  @Query("select f.friendId from FriendshipEntity f where f.userId = :userId and f.status = :status")
+  List<UUID> findFriendIds(@Param("userId") UUID userId, @Param("status") FriendshipStatus status);
 }
@@ -1,9 +1,11 @@
 package com.brooks.social;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface RelationshipPreferenceRepository extends JpaRepository<RelationshipPreferenceEntity, UUID> {
   Optional<RelationshipPreferenceEntity> findByViewerIdAndSubjectId(UUID viewerId, UUID subjectId);
+  List<RelationshipPreferenceEntity> findByViewerId(UUID viewerId);
 }
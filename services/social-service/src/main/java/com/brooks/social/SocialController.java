@@ -105,4 +105,9 @@ public class SocialController {
   ) {
     return ResponseEntity.ok(socialService.graphView(viewerId, subjectId));
   }
+
+  @GetMapping("/internal/graph/snapshot")
+  public ResponseEntity<SocialGraphSnapshot> graphSnapshot(@RequestParam UUID viewerId) {
+    return ResponseEntity.ok(socialService.graphSnapshot(viewerId));
+  }
 }
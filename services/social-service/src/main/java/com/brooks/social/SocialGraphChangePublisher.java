@@ -0,0 +1,39 @@
+package com.brooks.social;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Publishes committed relationship changes to Redis so that services caching
+ * graph views (pins-service) can drop stale entries.
+ * Message format is "userId|otherUserId".
+ */
+@Component
+public class SocialGraphChangePublisher {
+  private static final Logger log = LoggerFactory.getLogger(SocialGraphChangePublisher.class);
+  private final StringRedisTemplate redisTemplate;
+  private final String channel;
+
+  public SocialGraphChangePublisher(
+      StringRedisTemplate redisTemplate,
+      @Value("${brooks.social.graph-changed-channel}") String channel
+  ) {
+    this.redisTemplate = redisTemplate;
+    this.channel = channel;
+  }
+
+  @TransactionalEventListener
+  public void onGraphChanged(SocialGraphChangedEvent event) {
+    try {
+      redisTemplate.convertAndSend(channel, event.userId() + "|" + event.otherUserId());
+    } catch (Exception ex) {
+      // Consumers fall back to their cache TTL when the notification is lost
+      log.warn("Failed to publish graph change for userId={}, otherUserId={}. Error: {}",
+          event.userId(), event.otherUserId(), ex.getMessage());
+    }
+  }
+}
@@ -0,0 +1,12 @@
+package com.brooks.social;
+
+import java.util.UUID;
+
+/**
+ * Raised when the relationship between two users changes in a way that
+ * affects their graph view in either direction.
+ */
+public record SocialGraphChangedEvent(
+    UUID userId,
+    UUID otherUserId
+) {}
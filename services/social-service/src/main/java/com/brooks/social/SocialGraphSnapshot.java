@@ -0,0 +1,14 @@
+package com.brooks.social;
+
+/**
+ * Everything needed to answer graph-view questions for one viewer against any subject.
+ * Each array holds UUIDs packed as (mostSignificantBits, leastSignificantBits) pairs,
+ * sorted by most then least significant bits (signed comparison).
+ */
+public record SocialGraphSnapshot(
+    long[] friendIds,
+    long[] followeeIds,
+    long[] blockedIds,
+    long[] canSeePinsIds,
+    long[] canReceiveNotificationsIds
+) {}
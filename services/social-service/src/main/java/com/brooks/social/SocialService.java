@@ -2,8 +2,11 @@ package com.brooks.social;
 
 import com.brooks.security.SecurityContextUtil;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,17 +18,20 @@ public class SocialService {
   private final FollowRepository followRepository;
   private final RelationshipPreferenceRepository relationshipPreferenceRepository;
   private final BlockRepository blockRepository;
+  private final ApplicationEventPublisher eventPublisher;
 
   public SocialService(
       FriendshipRepository friendshipRepository,
       FollowRepository followRepository,
       RelationshipPreferenceRepository relationshipPreferenceRepository,
-      BlockRepository blockRepository
+      BlockRepository blockRepository,
+      ApplicationEventPublisher eventPublisher
   ) {
     this.friendshipRepository = friendshipRepository;
     this.followRepository = followRepository;
     this.relationshipPreferenceRepository = relationshipPreferenceRepository;
     this.blockRepository = blockRepository;
+    this.eventPublisher = eventPublisher;
   }
 
   @Transactional
@@ -39,6 +45,7 @@ public class SocialService {
           follow.setFolloweeId(targetUserId);
           follow.setStatus(FollowStatus.ACTIVE);
           FollowEntity saved = followRepository.save(follow);
+          publishGraphChanged(actorId, targetUserId);
           return new FollowResponse(saved.getId().toString(), saved.getStatus().name());
         });
   }
@@ -120,6 +127,7 @@ public class SocialService {
           reciprocal.setAcceptedAt(request.getAcceptedAt());
           return friendshipRepository.save(reciprocal);
         });
+    publishGraphChanged(request.getUserId(), request.getFriendId());
 
     return new FriendshipResponse(request.getId().toString(), request.getStatus().name());
   }
@@ -140,6 +148,7 @@ public class SocialService {
     UUID actorId = requireActor();
     friendshipRepository.findByUserIdAndFriendId(actorId, userId).ifPresent(friendshipRepository::delete);
     friendshipRepository.findByUserIdAndFriendId(userId, actorId).ifPresent(friendshipRepository::delete);
+    publishGraphChanged(actorId, userId);
   }
 
   @Transactional(readOnly = true)
@@ -188,6 +197,7 @@ public class SocialService {
   public void unfollow(UUID targetUserId) {
     UUID actorId = requireActor();
     followRepository.findByFollowerIdAndFolloweeId(actorId, targetUserId).ifPresent(followRepository::delete);
+    publishGraphChanged(actorId, targetUserId);
   }
 
   @Transactional
@@ -201,6 +211,7 @@ public class SocialService {
     prefs.setCanSeePins(request.canSeePins());
     prefs.setCanReceiveProximityNotifications(request.canReceiveProximityNotifications());
     relationshipPreferenceRepository.save(prefs);
+    publishGraphChanged(viewerId, subjectId);
   }
 
   @Transactional
@@ -211,6 +222,7 @@ public class SocialService {
       block.setBlockerId(actorId);
       block.setBlockedId(targetUserId);
       blockRepository.save(block);
+      publishGraphChanged(actorId, targetUserId);
     }
   }
 
@@ -234,6 +246,50 @@ public class SocialService {
     return new SocialGraphView(blocked, friend, follower, canSeePins, canReceiveNotifications);
   }
 
+  /**
+   * Returns the viewer's whole relevant neighbourhood in packed, sorted form so that
+   * callers can answer graph-view questions for any subject locally.
+   * Uses one query per relationship table.
+   */
+  @Transactional(readOnly = true)
+  public SocialGraphSnapshot graphSnapshot(UUID viewerId) {
+    List<UUID> canSeePins = new ArrayList<>();
+    List<UUID> canReceiveNotifications = new ArrayList<>();
+    for (RelationshipPreferenceEntity prefs : relationshipPreferenceRepository.findByViewerId(viewerId)) {
+      if (prefs.isCanSeePins()) {
+        canSeePins.add(prefs.getSubjectId());
+      }
+      if (prefs.isCanReceiveProximityNotifications()) {
+        canReceiveNotifications.add(prefs.getSubjectId());
+      }
+    }
+    return new SocialGraphSnapshot(
+        packSorted(friendshipRepository.findFriendIds(viewerId, FriendshipStatus.ACCEPTED)),
+        packSorted(followRepository.findFolloweeIds(viewerId)),
+        packSorted(blockRepository.findBlockedEitherWay(viewerId)),
+        packSorted(canSeePins),
+        packSorted(canReceiveNotifications)
+    );
+  }
+
+  private static long[] packSorted(List<UUID> ids) {
+    List<UUID> sorted = ids.stream()
+        .distinct()
+        .sorted(Comparator.comparingLong(UUID::getMostSignificantBits)
+            .thenComparingLong(UUID::getLeastSignificantBits))
+        .toList();
+    long[] packed = new long[sorted.size() * 2];
+    for (int i = 0; i < sorted.size(); i++) {
+      packed[2 * i] = sorted.get(i).getMostSignificantBits();
+      packed[2 * i + 1] = sorted.get(i).getLeastSignificantBits();
+    }
+    return packed;
+  }
+
+  private void publishGraphChanged(UUID userId, UUID otherUserId) {
+    eventPublisher.publishEvent(new SocialGraphChangedEvent(userId, otherUserId));
+  }
+
   private UUID requireActor() {
     UUID actorId = SecurityContextUtil.currentUserId();
     if (actorId == null) {